@@ -18,6 +18,19 @@ class Mastermind extends World {
   int exactMatchesCount;
   int inexactMatchesCount;
   ILoMatches listOfMatches;
+  SampledSolver sampler;
+  GeneticSolver evolver;
+  CandidateFilter candidates;
+  IVariantEngine engine;
+  RowReport[] analysis;
+  java.util.ArrayDeque<String> pendingKeys;
+  int maxEventsPerTick;
+  boolean applyingKeys;
+  WorldScene cachedScene;
+  EditTimeline timeline;
+  BoardHistory history;
+  boolean replaying;
+  GameConfig config;
 
 
   //Initializes the game by creating a Random object for generating random sequences of colors
@@ -28,26 +41,9 @@ class Mastermind extends World {
   // represents the settings for a game of Mastermind
   Mastermind(boolean duplicatesAllowed, int lengthOfSequence, int numberOfGuesses, ILoColor possibleColors, Random random) {
 
-    // makes sure that the length of the sequence to be guessed is always greater than 0
-    if (lengthOfSequence <= 0)  {
-      throw new IllegalArgumentException("length guesses must be greater than 0!");
-    }
-
-    // makes sure that the number of guesses the player has is greater than 0 
-    if (numberOfGuesses <= 0) {
-      throw new IllegalArgumentException("number of guesses must be greater than 0!");
-    }
-
-    // makes sure that the possible colors the player has to guess from is greater than 0 
-    if (possibleColors.length() <= 0) {
-      throw new IllegalArgumentException("sequence of colors must be greater than 0!");
-    }
-
-    // makes sure that if no duplicates are allowed, then the number of possible colors is greater than the 
-    // sequence length
-    if (!duplicatesAllowed && (possibleColors.length() < lengthOfSequence)) {
-      throw new IllegalArgumentException("sequence of colors must not be greater than the amount of possible colors!");
-    }
+    // the settings shared by every game with this palette, length, number of guesses and rule on
+    // duplicates, which are checked when they are first made
+    this.config = GameConfig.of(duplicatesAllowed, lengthOfSequence, numberOfGuesses, possibleColors);
 
     // creates a random integer
     this.rand = new Random();
@@ -75,13 +71,20 @@ class Mastermind extends World {
 
     this.listOfMatches = new MtLoMatches();
 
+    // the rules the guesses are scored by, copied since an engine keeps scratch space while scoring
+    this.engine = this.config.engine.copy();
 
-    // the correct sequence to be guessed
+    // the correct sequence to be guessed, timed for the flight recorder
+    SecretGeneratedEvent secretEvent = new SecretGeneratedEvent();
+    secretEvent.begin();
     this.correctSequence = possibleColors.generateRandomSequence(rand, duplicatesAllowed, lengthOfSequence);
+    secretEvent.report(lengthOfSequence, duplicatesAllowed);
 
-    // the current list of guesses the player has made so far
-    this.listOfGuesses = this.rowsOfGuesses(numberOfGuesses, lengthOfSequence);
+    // the current list of guesses the player has made so far, starting from the shared blank board
+    this.listOfGuesses = this.config.blankBoard;
 
+    new GameCreatedEvent().report(lengthOfSequence, this.config.colors, numberOfGuesses, duplicatesAllowed);
+    GameMetrics.METRICS.gamesStarted.increment();
   }
 
 
@@ -104,10 +107,123 @@ class Mastermind extends World {
       return new MtLoColor();  
     }
     else {
-      return new ConsLoColor(Color.WHITE, this.createBlankGuesses(guesses - 1));
+      return ConsLoColor.blank(this.createBlankGuesses(guesses - 1));
+    }
+  }
+
+
+  // keeps the board in persistent vectors, so each edit shares nearly all of the board with the one
+  // before it, and every board of the current row is kept for z and y to go back and forth between
+  // them, and returns this game
+  public Mastermind useVectorBoard() {
+    this.listOfGuesses = VectorBoard.of(this.listOfGuesses, this.numberOfGuesses, this.lengthOfSequence);
+    this.history = new BoardHistory(this.listOfGuesses);
+    return this;
+  }
+
+  // adds the board to the history of the current row, when one is kept and no timeline undoes edits
+  void recordBoard() {
+    if (this.history != null && this.timeline == null) {
+      this.history.record(this.listOfGuesses);
+    }
+  }
+
+  // starts the history over from the board as it is, once a row is done, since the rows before the
+  // current one cannot be edited anymore
+  void startRowHistory() {
+    if (this.history != null) {
+      this.history = new BoardHistory(this.listOfGuesses);
+    }
+  }
+
+  // keeps a timeline of the given number of edits, submissions included, which z undoes and y
+  // redoes for practice, and returns this game
+  public Mastermind practice(int capacity) {
+    this.timeline = new EditTimeline(capacity);
+    return this;
+  }
+
+  // returns how many pegs have been placed in the given row
+  public int pegsPlaced(int row) {
+    return this.listOfGuesses.pegsPlaced(row);
+  }
+
+  // adds the given edit to the timeline, if one is kept and the edit is not being redone
+  void recordEdit(int row, int position, int oldColor, int newColor) {
+    if (this.timeline != null && !this.replaying) {
+      this.timeline.record(EditTimeline.delta(row, position, oldColor, newColor));
+    }
+  }
+
+  // undoes the last edit: a peg goes back to its color before, and a submission loses its Matches
+  // and makes its row the current one again
+  public void undoEdit() {
+    if (this.timeline == null || !this.timeline.canUndo()) {
+      return;
+    }
+    long delta = this.timeline.undo();
+    int row = EditTimeline.row(delta);
+    this.cachedScene = null;
+    if (EditTimeline.position(delta) == EditTimeline.SUBMIT) {
+      this.forgetFeedback();
+      this.undoSubmission(row, EditTimeline.newColor(delta));
+    }
+    else if (EditTimeline.oldColor(delta) == EditTimeline.BLANK) {
+      this.listOfGuesses = this.listOfGuesses.removeLastColor(row);
+    }
+    else {
+      this.listOfGuesses = this.listOfGuesses.placeGuess(row,
+          this.possibleColors.getColorAtIndex(EditTimeline.oldColor(delta)));
     }
   }
 
+  // takes back the submission of the given row, recorded with the given kind: its Matches are
+  // dropped and it is the current row again
+  void undoSubmission(int row, int kind) {
+    this.listOfMatches = ((ConsLoMatches) this.listOfMatches).rest;
+    this.currentNumberOfGuesses = row;
+    this.exactMatchesCount = this.listOfMatches.getMatchAtIndex(0).exact;
+    this.inexactMatchesCount = this.listOfMatches.getMatchAtIndex(0).inexact;
+  }
+
+  // submits the given row again, recorded with the given kind, as enter would
+  World redoSubmission(int row, int kind) {
+    return this.applyKey("enter");
+  }
+
+  // drops everything worked out from the Matches so far, the solvers behind the hints and the
+  // analysis of the rows, for when a submission is undone or redone
+  void forgetFeedback() {
+    this.sampler = null;
+    this.evolver = null;
+    this.candidates = null;
+    this.analysis = null;
+  }
+
+  // redoes the last undone edit, scoring a submission again by the usual rules
+  public World redoEdit() {
+    if (this.timeline == null || !this.timeline.canRedo()) {
+      return this;
+    }
+    long delta = this.timeline.redo();
+    int row = EditTimeline.row(delta);
+    World result = this;
+    this.replaying = true;
+    this.cachedScene = null;
+    if (EditTimeline.position(delta) == EditTimeline.SUBMIT) {
+      this.forgetFeedback();
+      result = this.redoSubmission(row, EditTimeline.newColor(delta));
+    }
+    else if (EditTimeline.newColor(delta) == EditTimeline.BLANK) {
+      this.listOfGuesses = this.listOfGuesses.removeLastColor(row);
+    }
+    else {
+      this.listOfGuesses = this.listOfGuesses.placeGuess(row,
+          this.possibleColors.getColorAtIndex(EditTimeline.newColor(delta)));
+    }
+    this.replaying = false;
+    return result;
+  }
 
   // counts the current number of guesses 
   public int countNumberOfGuesses() {
@@ -122,13 +238,54 @@ class Mastermind extends World {
 
 
 
-  // handles key events for the game
+  // queues key events instead of applying them at once, applying at most the given number of them on
+  // each tick and drawing the scene once per tick, and returns this game
+  public Mastermind queueInput(int maxEventsPerTick) {
+    if (maxEventsPerTick <= 0) {
+      throw new IllegalArgumentException("max events per tick must be greater than 0!");
+    }
+    this.pendingKeys = new java.util.ArrayDeque<String>();
+    this.maxEventsPerTick = maxEventsPerTick;
+    return this;
+  }
+
+  // applies the queued key events, at most the max per tick, stopping if one of them ends the game
+  public World onTick() {
+    if (this.pendingKeys == null || this.pendingKeys.isEmpty()) {
+      return this;
+    }
+    World result = this;
+    this.applyingKeys = true;
+    for (int applied = 0; applied < this.maxEventsPerTick && !this.pendingKeys.isEmpty() && result == this;
+        applied += 1) {
+      result = this.onKeyEvent(this.pendingKeys.poll());
+    }
+    this.applyingKeys = false;
+    this.cachedScene = null;
+    return result;
+  }
 
-  // places a color guess based on what number key is pressed
+  // handles key events for the game, timing each one for the flight recorder. When input is queued,
+  // the key is kept for the next tick, and only timed once that tick applies it
   public World onKeyEvent(String key) {
-    // places a color guess based on what number key is pressed
-    if ("123456789".contains(key)) {
+    if (this.pendingKeys != null && !this.applyingKeys) {
+      this.pendingKeys.add(key);
+      return this;
+    }
+    KeyPressEvent event = new KeyPressEvent();
+    event.begin();
+    GameMetrics.METRICS.keyEvents.increment();
+    World result = this.applyKey(key);
+    event.report(key, this.currentNumberOfGuesses);
+    return result;
+  }
+
+  // applies the given key to the game
+  public World applyKey(String key) {
+    // places a color guess based on what number key is pressed, if the palette has that many colors
+    if ("123456789".contains(key) && Integer.valueOf(key) <= this.possibleColors.length()) {
       Color selectedColor = this.possibleColors.getColorAtIndex(Integer.valueOf(key) - 1);
+      int placed = this.timeline == null ? 0 : this.pegsPlaced(this.currentNumberOfGuesses);
 
       // if duplicates are allowed, place the guess
       if (this.duplicatesAllowed) {
@@ -139,28 +296,38 @@ class Mastermind extends World {
         this.listOfGuesses = this.listOfGuesses.placeGuess(this.currentNumberOfGuesses, selectedColor);
       }
       // if the color is already in the row, do nothing
+
+      if (this.timeline != null && this.pegsPlaced(this.currentNumberOfGuesses) > placed) {
+        this.recordEdit(this.currentNumberOfGuesses, placed, EditTimeline.BLANK, Integer.valueOf(key) - 1);
+      }
+      this.recordBoard();
     }
 
     // if enter key is pressed and the row has all guesses placed, submit the current row of guesses
     else if (key.equals("enter") && this.listOfGuesses.isRowFull(currentNumberOfGuesses)) { 
 
       ILoColor currentGuess = this.listOfGuesses.getRowAtIndex(currentNumberOfGuesses);  
+      Matches result = this.scoreRow(currentGuess);
 
       // returns the exact matches
-      this.exactMatchesCount = currentGuess.exactMatches(this.correctSequence);
+      this.exactMatchesCount = result.exact;
       // returns the inexact matches
-      this.inexactMatchesCount = currentGuess.inexactMatches(this.correctSequence);
+      this.inexactMatchesCount = result.inexact;
 
       this.listOfMatches = new ConsLoMatches(new Matches(exactMatchesCount, inexactMatchesCount), listOfMatches);
-
-      // checks if the current guess matches the correct sequence exactly, and if it does then game is won
-      if (currentGuess.exactMatches(this.correctSequence) == this.lengthOfSequence) {
-        // End the world if the guess is correct
-        return this.endOfWorld("yay you won! :)");
-      }
-
-      if (this.numberOfGuesses == this.currentNumberOfGuesses) {
-        return this.endOfWorld("aw you lost! :(");
+      this.recordEdit(this.currentNumberOfGuesses, EditTimeline.SUBMIT, EditTimeline.BLANK, EditTimeline.BLANK);
+      this.startRowHistory();
+
+      // checks if the current guess matches the correct sequence exactly, and if it does then game is
+      // won, or if it was the last guess, then it is lost. The rules are shared with GameState
+      int status = GameState.outcome(this.exactMatchesCount, this.lengthOfSequence, this.currentNumberOfGuesses,
+          this.numberOfGuesses);
+      new SubmissionEvent().report(this.currentNumberOfGuesses, this.exactMatchesCount, this.inexactMatchesCount,
+          status);
+      GameMetrics.METRICS.submissions.increment();
+      if (status != GameState.PLAYING) {
+        // End the world if the guess is correct or there are no guesses left
+        return this.endGame(status);
       }
 
       // if no match, increment number of guesses to move on to next row
@@ -168,15 +335,183 @@ class Mastermind extends World {
     }
     // when backspace is pressed, delete the most recently placed guess
     else if (key.equals("backspace")) {
+      int placed = this.timeline == null ? 0 : this.pegsPlaced(this.currentNumberOfGuesses);
+      if (placed > 0) {
+        Color removed = this.listOfGuesses.getRowAtIndex(this.currentNumberOfGuesses).getColorAtIndex(placed - 1);
+        this.recordEdit(this.currentNumberOfGuesses, placed - 1, this.possibleColors.indexOfColor(removed),
+            EditTimeline.BLANK);
+      }
       this.listOfGuesses = this.listOfGuesses.removeLastColor(currentNumberOfGuesses);
+      this.recordBoard();
+    }
+    // when z or y is pressed while practicing, undo or redo the last edit
+    else if (key.equals("z") && this.timeline != null) {
+      this.undoEdit();
+    }
+    else if (key.equals("y") && this.timeline != null) {
+      return this.redoEdit();
+    }
+    // otherwise on a vector board, go back or forward through the boards of the current row
+    else if (key.equals("z") && this.history != null) {
+      this.listOfGuesses = this.history.undo();
+    }
+    else if (key.equals("y") && this.history != null) {
+      this.listOfGuesses = this.history.redo();
+    }
+    // when h is pressed, fill the current row with the suggested guess
+    else if (key.equals("h")) {
+      this.placeSuggestion();
+    }
+    // when a is pressed, play the suggested guess
+    else if (key.equals("a")) {
+      this.placeSuggestion();
+      return this.applyKey("enter");
     }
 
     return this;  
   }
 
+  // ends the game as won or lost, counting it and the rows it took in the metrics
+  public World endGame(int status) {
+    GameMetrics.METRICS.gameEnded(status == GameState.WON, this.currentNumberOfGuesses);
+    return this.endOfWorld(GameState.endMessage(status));
+  }
+
+  // scores the given row against the correct sequence by the rules of the game
+  public Matches scoreRow(ILoColor guess) {
+    GameMetrics.METRICS.scoringCalls.increment();
+    if (this.engine == null) {
+      return new Matches(guess.exactMatches(this.correctSequence), guess.inexactMatches(this.correctSequence));
+    }
+    if (this.config == null) {
+      return this.engine.score(guess.toIndices(this.possibleColors),
+          this.correctSequence.toIndices(this.possibleColors));
+    }
+    return this.config.score(this.engine, this.config.codeOf(guess), this.config.codeOf(this.correctSequence));
+  }
+
+  // fills the current row with the suggested guess if nothing has been placed in it yet
+  public void placeSuggestion() {
+    if (!this.listOfGuesses.getRowAtIndex(this.currentNumberOfGuesses).whiteRow()) {
+      return;
+    }
+    // the colors go through the number keys so the rule on duplicates still applies, without counting
+    // as keys the player pressed
+    for (int peg : this.suggestGuess()) {
+      this.applyKey(Integer.toString(peg + 1));
+    }
+  }
+
+  // returns the guess suggested for the current row, as indices into the possible colors, timing how
+  // long it took to choose for the flight recorder
+  public int[] suggestGuess() {
+    GuessSelectedEvent event = new GuessSelectedEvent();
+    event.begin();
+    int[] guess = this.selectGuess(event);
+    event.report(this.currentNumberOfGuesses);
+    return guess;
+  }
+
+  // chooses the guess for the current row, noting in the given event where it came from and how many
+  // codes were still possible. The first guess comes from the table of openings, boards small enough
+  // to list every code are solved exactly, long codes that still pack into a long are evolved, and
+  // the rest are solved on a sample of the consistent codes. Codes are checked against the Matches
+  // by the rules of the game, and only the usual rules are evolved
+  public int[] selectGuess(GuessSelectedEvent event) {
+    int colors = this.possibleColors.length();
+    int rows = this.currentNumberOfGuesses - 1;
+    int[] opening = rows == 0
+        ? OpeningTable.shared().best(this.lengthOfSequence, colors, this.duplicatesAllowed, new MinimaxStrategy())
+        : null;
+    if (opening != null) {
+      event.source = "opening";
+      event.candidates = this.engine.size();
+      return opening;
+    }
+    if (CodeSpace.fits(this.lengthOfSequence, colors) && this.engine.size() <= Solver.MAX_GUESS_SET * 16) {
+      if (this.candidates == null) {
+        // without duplicates only the arrangements of distinct colors are listed, and lying rules keep
+        // the codes that need no more lies than they tell
+        this.candidates = new CandidateFilter(this.engine, new CodeSpace(this.lengthOfSequence, colors),
+            this.engine.lies());
+      }
+      // only the rows submitted since the last hint are checked, against the codes still possible
+      for (int row = this.candidates.feedback + 1; row <= rows; row += 1) {
+        Matches result = this.listOfMatches.getMatchAtIndex(rows - row);
+        this.candidates.addFeedback(this.listOfGuesses.getRowAtIndex(row).toIndices(this.possibleColors),
+            result.exact, result.inexact);
+      }
+      Solver solver = new Solver(this.candidates.space, new MinimaxStrategy());
+      long[] candidates = this.candidates.remaining();
+      int count = candidates.length;
+      event.source = "exact";
+      event.candidates = count;
+      if (this.duplicatesAllowed || count <= 1) {
+        return solver.nextGuess(candidates, count);
+      }
+      // guesses with duplicates cannot be placed, so only the consistent codes are tried
+      int[][] guesses = new int[count][];
+      for (int i = 0; i < count; i += 1) {
+        guesses[i] = solver.space.unpack(candidates[i], new int[this.lengthOfSequence]);
+      }
+      return solver.nextGuess(candidates, count, guesses);
+    }
+    if (this.lengthOfSequence >= GeneticSolver.MIN_LENGTH && CodeSpace.fits(this.lengthOfSequence, colors)
+        && (this.config == null || this.engine.getClass() == this.config.engine.getClass())) {
+      if (this.evolver == null) {
+        this.evolver = new GeneticSolver(new CodeSpace(this.lengthOfSequence, colors), this.duplicatesAllowed,
+            400, 300, this.rand);
+      }
+      for (int row = this.evolver.guesses.size() + 1; row <= rows; row += 1) {
+        Matches result = this.listOfMatches.getMatchAtIndex(rows - row);
+        this.evolver.addFeedback(this.listOfGuesses.getRowAtIndex(row).toIndices(this.possibleColors),
+            result.exact, result.inexact);
+      }
+      int[] guess = this.evolver.nextGuess();
+      event.source = "genetic";
+      event.candidates = this.evolver.consistentFound;
+      return guess;
+    }
+    if (this.sampler == null) {
+      this.sampler = new SampledSolver(this.lengthOfSequence, colors, this.duplicatesAllowed, 500, 100, 300, this.rand,
+          this.engine);
+    }
+    for (int row = this.sampler.guesses.size() + 1; row <= rows; row += 1) {
+      Matches result = this.listOfMatches.getMatchAtIndex(rows - row);
+      this.sampler.addFeedback(this.listOfGuesses.getRowAtIndex(row).toIndices(this.possibleColors),
+          result.exact, result.inexact);
+    }
+    int[] guess = this.sampler.nextGuess();
+    event.source = "sampled";
+    event.candidates = this.sampler.estimatedCandidates();
+    return guess;
+  }
+
 
-  // creates the world scene
+  // creates the world scene, which is only drawn again after a tick applied queued key events when
+  // input is queued
   public WorldScene makeScene() {
+    SceneRenderedEvent event = new SceneRenderedEvent();
+    event.begin();
+    long start = System.nanoTime();
+    boolean cached = this.pendingKeys != null && this.cachedScene != null;
+    WorldScene scene;
+    if (this.pendingKeys == null) {
+      scene = this.drawScene();
+    }
+    else {
+      if (this.cachedScene == null) {
+        this.cachedScene = this.drawScene();
+      }
+      scene = this.cachedScene;
+    }
+    event.report(cached, this.currentNumberOfGuesses);
+    GameMetrics.METRICS.renderSeconds.record((System.nanoTime() - start) / 1e9);
+    return scene;
+  }
+
+  // draws the world scene
+  public WorldScene drawScene() {
     int XPosition = ((500 - (20 * this.possibleColors.length())) / 2);
     int YPosition = (500 - (currentNumberOfGuesses * 20));
     WorldImage matches = new TextImage("exact    " + "inexact", 20, Color.BLACK);
@@ -209,7 +544,43 @@ class Mastermind extends World {
         .placeImageXY(this.possibleColors.drawCircles(), XPosition, 650)
 
         // Display the end message
-        .placeImageXY(new TextImage(msg, 40, Color.BLACK), XPosition, 150);
+        .placeImageXY(new TextImage(msg, 40, Color.BLACK), XPosition, 150)
+
+        // Display how each row went
+        .placeImageXY(this.drawAnalysis(), 250, 230);
+  }
+
+  // returns the report of every submitted row, analyzing the game the first time, or no reports if
+  // the game is too large to analyze
+  public RowReport[] analyze() {
+    if (this.analysis == null) {
+      GameAnalyzer analyzer = GameAnalyzer.forGame(this.lengthOfSequence, this.possibleColors.length(),
+          this.duplicatesAllowed, this.engine);
+      int rows = this.listOfMatches.length();
+      if (analyzer == null) {
+        this.analysis = new RowReport[0];
+        return this.analysis;
+      }
+      int[][] guesses = new int[rows][];
+      Matches[] results = new Matches[rows];
+      for (int row = 1; row <= rows; row += 1) {
+        guesses[row - 1] = this.listOfGuesses.getRowAtIndex(row).toIndices(this.possibleColors);
+        results[row - 1] = this.listOfMatches.getMatchAtIndex(rows - row);
+      }
+      this.analysis = analyzer.analyze(guesses, results);
+    }
+    return this.analysis;
+  }
+
+  // draws the report of every submitted row, one line each
+  public WorldImage drawAnalysis() {
+    WorldImage lines = new EmptyImage();
+    RowReport[] reports = this.analyze();
+    for (int row = reports.length - 1; row >= 0; row -= 1) {
+      Color color = reports[row].wasted ? Color.RED : Color.BLACK;
+      lines = new AboveImage(new TextImage(reports[row].describe(), 12, color), lines);
+    }
+    return lines;
   }
 
   /* TEMPLATE:
@@ -225,13 +596,48 @@ class Mastermind extends World {
    *  this.exactMatchesCount... int
    *  this.inexactMatchesCount... int
    *  this.listOfMatches... ILoMatches
+   *  this.sampler... SampledSolver
+   *  this.evolver... GeneticSolver
+   *  this.candidates... CandidateFilter
+   *  this.engine... IVariantEngine
+   *  this.analysis... RowReport[]
+   *  this.pendingKeys... ArrayDeque<String>
+   *  this.maxEventsPerTick... int
+   *  this.applyingKeys... boolean
+   *  this.cachedScene... WorldScene
+   *  this.timeline... EditTimeline
+   *  this.history... BoardHistory
+   *  this.replaying... boolean
+   *  this.config... GameConfig
    * METHODS:
    *  this.rowsOfGuesses(int, int)... ILoLoColor
    *  this.createBlankGuesses(int)... ILoColor
+   *  this.useVectorBoard()... Mastermind
+   *  this.practice(int)... Mastermind
+   *  this.pegsPlaced(int)... int
+   *  this.recordEdit(int, int, int, int)... void
+   *  this.recordBoard()... void
+   *  this.startRowHistory()... void
+   *  this.undoEdit()... void
+   *  this.undoSubmission(int, int)... void
+   *  this.redoSubmission(int, int)... World
+   *  this.forgetFeedback()... void
+   *  this.redoEdit()... World
    *  this.countNumberOfGuesses()... int
+   *  this.queueInput(int)... Mastermind
+   *  this.onTick()... World
    *  this.onKeyEvent(String)... World
+   *  this.applyKey(String)... World
+   *  this.endGame(int)... World
+   *  this.scoreRow(ILoColor)... Matches
+   *  this.placeSuggestion()... void
+   *  this.suggestGuess()... int[]
+   *  this.selectGuess(GuessSelectedEvent)... int[]
    *  this.makeScene()... WorldScene
+   *  this.drawScene()... WorldScene
    *  this.lastScene(String)... WorldScene 
+   *  this.analyze()... RowReport[]
+   *  this.drawAnalysis()... WorldImage
    * METHODS OF FIELDS:
    */
 }
@@ -256,6 +662,9 @@ interface ILoColor {
   // helper method for inexact matches
   int inexactHelper(ILoColor sequence);
 
+  // helper method for exact matches, comparing the palette index of each peg
+  int matchesIndexHelper(int correct, ILoColor rest);
+
   // counts the length of this list of colors
   int length();
 
@@ -268,6 +677,18 @@ interface ILoColor {
   // removes the first instance of a color from this list of colors if found in the list
   ILoColor removeColor(Color color);
 
+  // checks if a peg with the given palette index is in this list of colors
+  boolean inListIndex(int index);
+
+  // removes the first peg with the given palette index from this list of colors if found
+  ILoColor removeIndex(int index);
+
+  // returns the palette index of the peg at the given position, or Palette.EMPTY past the end
+  int indexAt(int position);
+
+  // returns how many pegs are placed before the first blank one
+  int placedCount();
+
   // draws out the list of Colors
   WorldImage drawCircles();
 
@@ -288,6 +709,19 @@ interface ILoColor {
 
   // Generates a random sequence of colors based on the specified parameters
   ILoColor generateRandomSequence(Random rand, boolean duplicatesAllowed, int length);
+
+  // returns the index of the given color in this list, or -1 if it is not in the list
+  int indexOfColor(Color color);
+
+  // returns this list as an array of indices into the given palette of colors
+  int[] toIndices(ILoColor palette);
+
+  // helper for toIndices, writes the palette index of each color starting at the given position
+  int[] fillIndices(ILoColor palette, int[] indices, int position);
+
+  // writes the position in a game's palette of each peg starting at the given position, looking each
+  // peg's palette index up in the given palette
+  int[] fillCode(Palette palette, int[] code, int position);
 }
 
 
@@ -315,6 +749,11 @@ class MtLoColor implements ILoColor {
 
   }
 
+  // helper for exact matches by palette index, returns 0 for an empty list
+  public int matchesIndexHelper(int correct, ILoColor rest) {
+    return 0;
+  }
+
   // returns the inexact matches 
   public int inexactMatches(ILoColor sequence) {
     return 0;
@@ -335,6 +774,26 @@ class MtLoColor implements ILoColor {
     return this;
   }
 
+  // no peg is in an empty list
+  public boolean inListIndex(int index) {
+    return false;
+  }
+
+  // nothing to remove from an empty list
+  public ILoColor removeIndex(int index) {
+    return this;
+  }
+
+  // there is no peg past the end of the list
+  public int indexAt(int position) {
+    return Palette.EMPTY;
+  }
+
+  // no pegs are placed in an empty list
+  public int placedCount() {
+    return 0;
+  }
+
   // helper for inexact matches
   public int inexactHelper(ILoColor sequence) {
     return 0;
@@ -375,6 +834,26 @@ class MtLoColor implements ILoColor {
     return this;
   }
 
+  // returns -1 since no color is in an empty list
+  public int indexOfColor(Color color) {
+    return -1;
+  }
+
+  // returns an empty array of indices
+  public int[] toIndices(ILoColor palette) {
+    return new int[0];
+  }
+
+  // nothing left to write, returns the given indices
+  public int[] fillIndices(ILoColor palette, int[] indices, int position) {
+    return indices;
+  }
+
+  // nothing left to write, returns the given code
+  public int[] fillCode(Palette palette, int[] code, int position) {
+    return code;
+  }
+
   /* TEMPLATE:
    * FIELDS:
    * METHODS:
@@ -383,10 +862,15 @@ class MtLoColor implements ILoColor {
    *  this.inexactMatches(ILoColor)... int
    *  this.matchesHelper(Color, ILoColor)... int
    *  this.inexactHelper(ILoColor)... int
+   *  this.matchesIndexHelper(int, ILoColor)... int
    *  this.length()... int
    *  this.inequalLengths(ILoColor)... boolean
    *  this.inList(color)... boolean
    *  this.removeColor(Color)... ILoColor
+   *  this.inListIndex(int)... boolean
+   *  this.removeIndex(int)... ILoColor
+   *  this.indexAt(int)... int
+   *  this.placedCount()... int
    *  this.drawCircles()... WorldImage
    *  this.getColorAtIndex(int)... Color
    *  this.createBlankGuesses(int)... ILoColor
@@ -394,6 +878,10 @@ class MtLoColor implements ILoColor {
    *  this.removeLastColor()... ILoColor
    *  this.whiteRow()... boolean
    *  this.generateRandomSequence(Random, boolean, int)... ILoColor
+   *  this.indexOfColor(Color)... int
+   *  this.toIndices(ILoColor)... int[]
+   *  this.fillIndices(ILoColor, int[], int)... int[]
+   *  this.fillCode(Palette, int[], int)... int[]
    * METHODS OF FIELDS:
    */
 }
@@ -402,14 +890,27 @@ class MtLoColor implements ILoColor {
 // represents a non empty list of colors
 class ConsLoColor implements ILoColor {
   Color first;
+  // the palette index of first, or Palette.EMPTY for a blank peg
+  int index;
   ILoColor rest;
 
 
   ConsLoColor(Color first, ILoColor rest) {
+    this(first, Palette.indexOf(first), rest);
+  }
+
+  // the constructor for a peg whose palette index is already known
+  ConsLoColor(Color first, int index, ILoColor rest) {
     this.first = first;
+    this.index = index;
     this.rest = rest;
   }
 
+  // returns a blank peg, drawn white, in front of the given list
+  static ConsLoColor blank(ILoColor rest) {
+    return new ConsLoColor(Color.WHITE, Palette.EMPTY, rest);
+  }
+
   // returns the length of the list
   public int length() {
     return 1 + this.rest.length();
@@ -424,7 +925,12 @@ class ConsLoColor implements ILoColor {
 
   //helper for exactMatches, adds 1 if two colors are an exact matches, else adds 0 
   public int matchesHelper(Color correct, ILoColor rest) {
-    if (this.first.equals(correct)) {
+    return this.matchesIndexHelper(Palette.indexOf(correct), rest);
+  }
+
+  // helper for exactMatches, adds 1 if the peg has the given palette index, else adds 0
+  public int matchesIndexHelper(int correct, ILoColor rest) {
+    if (this.index == correct) {
       return 1 + this.rest.exactMatches(rest);
     }
     else {
@@ -434,7 +940,7 @@ class ConsLoColor implements ILoColor {
 
   // returns the amount of exact matches in the list of colors
   public int exactMatches(ILoColor sequence) {
-    return (sequence.matchesHelper(this.first, this.rest));
+    return (sequence.matchesIndexHelper(this.index, this.rest));
 
   }
 
@@ -451,25 +957,51 @@ class ConsLoColor implements ILoColor {
 
   // checks if the given color is in the list of colors
   public boolean inList(Color color) {
-    return (this.first.equals(color)) || this.rest.inList(color);
+    return this.inListIndex(Palette.indexOf(color));
 
   }
 
 
   // removes the first instance of a color in a list of colors if found
   public ILoColor removeColor(Color color) {
-    if (this.first.equals(color)) {
-      return this.rest; 
+    return this.removeIndex(Palette.indexOf(color));
+  }
+
+  // checks if a peg with the given palette index is in the list of colors
+  public boolean inListIndex(int index) {
+    return this.index == index || this.rest.inListIndex(index);
+  }
+
+  // removes the first peg with the given palette index if found
+  public ILoColor removeIndex(int index) {
+    if (this.index == index) {
+      return this.rest;
+    }
+    return new ConsLoColor(this.first, this.index, this.rest.removeIndex(index));
+  }
+
+  // returns the palette index of the peg at the given position
+  public int indexAt(int position) {
+    if (position == 0) {
+      return this.index;
+    }
+    return this.rest.indexAt(position - 1);
+  }
+
+  // returns how many pegs are placed before the first blank one
+  public int placedCount() {
+    if (this.index == Palette.EMPTY) {
+      return 0;
     }
-    return new ConsLoColor(this.first, this.rest.removeColor(color));
+    return 1 + this.rest.placedCount();
   }
 
 
 
   // helper for inexactMatches method
   public int inexactHelper(ILoColor sequence) {
-    if (sequence.inList(this.first)) {
-      return 1 + this.rest.inexactHelper(sequence.removeColor(this.first));
+    if (sequence.inListIndex(this.index)) {
+      return 1 + this.rest.inexactHelper(sequence.removeIndex(this.index));
     }
     return this.rest.inexactHelper(sequence);
   }
@@ -497,32 +1029,32 @@ class ConsLoColor implements ILoColor {
 
   // adds the given color to the list of colors
   public ILoColor placeColorInRow(Color color) {
-    if (this.first.equals(Color.WHITE)) {
+    if (this.index == Palette.EMPTY) {
       return new ConsLoColor(color, this.rest);
     }
-    else return new ConsLoColor(this.first, this.rest.placeColorInRow(color));
+    else return new ConsLoColor(this.first, this.index, this.rest.placeColorInRow(color));
   }
 
 
   // removes the last color guessed 
   public ILoColor removeLastColor() {
     // checks if the first color is blank and if it is, recurses on the rest
-    if (this.first.equals(Color.WHITE)) {
-      return new ConsLoColor(this.first, this.rest.removeLastColor());
+    if (this.index == Palette.EMPTY) {
+      return new ConsLoColor(this.first, this.index, this.rest.removeLastColor());
     } 
     // if the rest of the row is white, replace the current color with white
     else if (this.rest.whiteRow()) {
-      return new ConsLoColor(Color.WHITE, this.rest);
+      return ConsLoColor.blank(this.rest);
     } 
     else {
-      return new ConsLoColor(this.first, this.rest.removeLastColor());
+      return new ConsLoColor(this.first, this.index, this.rest.removeLastColor());
     }
   }
 
 
-  // checks if the whole list is white 
+  // checks if the whole list is blank
   public boolean whiteRow() {
-    return this.first.equals(Color.WHITE) && this.rest.whiteRow();
+    return this.index == Palette.EMPTY && this.rest.whiteRow();
   }
 
   //Generates a random sequence of colors
@@ -535,21 +1067,54 @@ class ConsLoColor implements ILoColor {
     // Generate a random index for selecting a color
     int randomIndex = rand.nextInt(this.length());
 
-    // Get the random color from the list
+    // Get the random color from the list, along with the palette index it already carries
     Color randomColor = this.getColorAtIndex(randomIndex);
+    int paletteIndex = this.indexAt(randomIndex);
 
     // If duplicates are allowed, keep adding the random color
     if (duplicatesAllowed && length <= 0) {
-      return new ConsLoColor(randomColor, this.generateRandomSequence(rand, duplicatesAllowed, length - 1));
+      return new ConsLoColor(randomColor, paletteIndex,
+          this.generateRandomSequence(rand, duplicatesAllowed, length - 1));
     } 
     // If duplicates are not allowed, remove the color from the list and continue
     else {
-      return new ConsLoColor(randomColor, this.removeColor(randomColor).generateRandomSequence(rand, false, length - 1));
+      return new ConsLoColor(randomColor, paletteIndex,
+          this.removeIndex(paletteIndex).generateRandomSequence(rand, false, length - 1));
     }
   }
+
+  // returns the index of the given color in this list, or -1 if it is not in the list
+  public int indexOfColor(Color color) {
+    if (this.first.equals(color)) {
+      return 0;
+    }
+    int restIndex = this.rest.indexOfColor(color);
+    if (restIndex < 0) {
+      return -1;
+    }
+    return 1 + restIndex;
+  }
+
+  // returns this list as an array of indices into the given palette of colors
+  public int[] toIndices(ILoColor palette) {
+    return this.fillIndices(palette, new int[this.length()], 0);
+  }
+
+  // writes the palette index of the first color at the given position, then the rest after it
+  public int[] fillIndices(ILoColor palette, int[] indices, int position) {
+    indices[position] = palette.indexOfColor(this.first);
+    return this.rest.fillIndices(palette, indices, position + 1);
+  }
+
+  // writes the palette position of the first peg, or -1 if it is blank or not in the palette, then the rest
+  public int[] fillCode(Palette palette, int[] code, int position) {
+    code[position] = palette.positionOf(this.index);
+    return this.rest.fillCode(palette, code, position + 1);
+  }
   /* TEMPLATE:
    * FIELDS:
    *  this.first... Color
+   *  this.index... int
    *  this.rest... ILoColor
    * METHODS:
    *  this.duplicates()... boolean
@@ -557,10 +1122,15 @@ class ConsLoColor implements ILoColor {
    *  this.inexactMatches(ILoColor)... int
    *  this.matchesHelper(Color, ILoColor)... int
    *  this.inexactHelper(ILoColor)... int
+   *  this.matchesIndexHelper(int, ILoColor)... int
    *  this.length()... int
    *  this.inequalLengths(ILoColor)... boolean
    *  this.inList(color)... boolean
    *  this.removeColor(Color)... ILoColor
+   *  this.inListIndex(int)... boolean
+   *  this.removeIndex(int)... ILoColor
+   *  this.indexAt(int)... int
+   *  this.placedCount()... int
    *  this.drawCircles()... WorldImage
    *  this.getColorAtIndex(int)... Color
    *  this.createBlankGuesses(int)... ILoColor
@@ -568,6 +1138,10 @@ class ConsLoColor implements ILoColor {
    *  this.removeLastColor()... ILoColor
    *  this.whiteRow()... boolean
    *  this.generateRandomSequence(Random, boolean, int)... ILoColor
+   *  this.indexOfColor(Color)... int
+   *  this.toIndices(ILoColor)... int[]
+   *  this.fillIndices(ILoColor, int[], int)... int[]
+   *  this.fillCode(Palette, int[], int)... int[]
    * METHODS OF FIELDS:
    *  this.first.duplicates()... boolean
    *  this.first.exactMatches(ILoColor)... int
@@ -594,6 +1168,10 @@ class ConsLoColor implements ILoColor {
    *  this.rest.inequalLengths(ILoColor)... boolean
    *  this.rest.inList(color)... boolean
    *  this.rest.removeColor(Color)... ILoColor
+   *  this.rest.inListIndex(int)... boolean
+   *  this.rest.removeIndex(int)... ILoColor
+   *  this.rest.indexAt(int)... int
+   *  this.rest.placedCount()... int
    *  this.rest.drawCircles()... WorldImage
    *  this.rest.getColorAtIndex(int)... Color
    *  this.rest.createBlankGuesses(int)... ILoColor
@@ -601,6 +1179,9 @@ class ConsLoColor implements ILoColor {
    *  this.rest.removeLastColor()... ILoColor
    *  this.rest.whiteRow()... boolean
    *  this.rest.generateRandomSequence(Random, boolean, int)... ILoColor
+   *  this.rest.indexOfColor(Color)... int
+   *  this.rest.fillIndices(ILoColor, int[], int)... int[]
+   *  this.rest.fillCode(Palette, int[], int)... int[]
    */
 }
 
@@ -625,6 +1206,9 @@ interface ILoLoColor {
 
   // returns if there is the given color in the given row 
   boolean inListAtRow(int rowIndex, Color color);
+
+  // returns how many pegs have been placed in the given row
+  int pegsPlaced(int rowIndex);
 }
 
 // represents an empty LoLoColor
@@ -659,6 +1243,11 @@ class MtLoLoColor implements ILoLoColor {
   public boolean inListAtRow(int rowIndex, Color color) {
     return false;
   }
+
+  // there are no pegs in a row that is not there
+  public int pegsPlaced(int rowIndex) {
+    return 0;
+  }
   /* TEMPLATE:
    * FIELDS:
    * METHODS:
@@ -668,6 +1257,7 @@ class MtLoLoColor implements ILoLoColor {
    *  this.removeLastColor(int)... ILoLoColor
    *  this.getRowAtIndex(int)... ILoColor
    *  this.inListAtRow(int, Color)... boolean
+   *  this.pegsPlaced(int)... int
    * METHODS OF FIELDS:
    */
 }
@@ -693,7 +1283,7 @@ class ConsLoLoColor implements ILoLoColor {
   //Checks if the specified row is full by checking for white colors
   public boolean isRowFull(int rowIndex) {
     if (rowIndex == 1) {
-      return !this.first.inList(Color.WHITE);
+      return !this.first.inListIndex(Palette.EMPTY);
     }
     else  {
       return this.rest.isRowFull(rowIndex - 1);
@@ -741,6 +1331,16 @@ class ConsLoLoColor implements ILoLoColor {
     }
   }
 
+  // returns how many pegs have been placed in the specified row
+  public int pegsPlaced(int rowIndex) {
+    if (rowIndex == 1) {
+      return this.first.placedCount();
+    }
+    else {
+      return this.rest.pegsPlaced(rowIndex - 1);
+    }
+  }
+
   /* TEMPLATE:
    * FIELDS:
    *  this.first... ILoColor
@@ -752,7 +1352,9 @@ class ConsLoLoColor implements ILoLoColor {
    *  this.removeLastColor(int)... ILoLoColor
    *  this.getRowAtIndex(int)... ILoColor
    *  this.inListAtRow(int, Color)... boolean
+   *  this.pegsPlaced(int)... int
    * METHODS OF FIELDS:
+   *  this.first.placedCount()... int
    *  this.first.drawLoLoColor(int, int)... WorldImage
    *  this.first.isRowFull(int)... boolean
    *  this.first.placeGuess(int, Color)... ILoLoColor
@@ -765,6 +1367,7 @@ class ConsLoLoColor implements ILoLoColor {
    *  this.rest.removeLastColor(int)... ILoLoColor
    *  this.rest.getRowAtIndex(int)... ILoColor
    *  this.rest.inListAtRow(int, Color)... boolean
+   *  this.rest.pegsPlaced(int)... int
    */
 }
 
@@ -797,6 +1400,12 @@ interface ILoMatches {
 
   // creates a WorldImage that represents the exact and inexact matches
   WorldImage drawLoMatches();
+
+  // counts the matches in this list
+  int length();
+
+  // returns the matches at the given index, the most recent matches being at index 0
+  Matches getMatchAtIndex(int index);
 }
 
 //represents an empty list of matches
@@ -806,10 +1415,22 @@ class MtLoMatches implements ILoMatches {
   public WorldImage drawLoMatches() {
     return new EmptyImage();
   }
+
+  // returns 0 for an empty list
+  public int length() {
+    return 0;
+  }
+
+  // returns no matches for an empty list
+  public Matches getMatchAtIndex(int index) {
+    return new Matches(0, 0);
+  }
   /* TEMPLATE:
    * FIELDS:
    * METHODS:
    *  this.drawLoMatches()... WorldImage
+   *  this.length()... int
+   *  this.getMatchAtIndex(int)... Matches
    * METHODS OF FIELDS:
    */
 }
@@ -829,50 +1450,6664 @@ class ConsLoMatches implements ILoMatches {
   public WorldImage drawLoMatches() {
     return new AboveImage(this.first.drawMatch(), this.rest.drawLoMatches());
   }
+
+  // counts the matches in this list
+  public int length() {
+    return 1 + this.rest.length();
+  }
+
+  // returns the matches at the given index
+  public Matches getMatchAtIndex(int index) {
+    if (index == 0) {
+      return this.first;
+    }
+    else {
+      return this.rest.getMatchAtIndex(index - 1);
+    }
+  }
   /* TEMPLATE:
    * FIELDS:
    *  this.first... Matches
    *  this.rest... ILoMatches
    * METHODS:
    *  this.drawLoMatches()... WorldImage
+   *  this.length()... int
+   *  this.getMatchAtIndex(int)... Matches
    * METHODS OF FIELDS:
+   *  this.first.drawMatch()... WorldImage
+   *  this.rest.drawLoMatches()... WorldImage
+   *  this.rest.length()... int
+   *  this.rest.getMatchAtIndex(int)... Matches
    */
 }
 
 
+// represents every possible code of a given length over a given number of colors,
+// numbered by rank so that a code can be rebuilt from its rank and packed into a long
+class CodeSpace {
+  int length;
+  int colors;
+  long size;
+  long pegMask;
 
-//examples and tests
-class ExamplesMastermind{
-  Color blue = new Color(112, 207, 245);
-  Color red = new Color(255, 103, 85);
-  Color purple = new Color(170, 112, 245);
-  Color orange = new Color(255, 156, 18);
-  Color yellow = new Color(255, 244, 38);
-  Color green = new Color(84, 237, 50);
-
+  // the constructor
+  CodeSpace(int length, int colors) {
+    // a packed code keeps 4 bits per peg, so only 16 pegs and 16 colors fit in a long
+    if (length <= 0 || length > 16) {
+      throw new IllegalArgumentException("length of a packed code must be between 1 and 16!");
+    }
+    if (colors <= 0 || colors > 16) {
+      throw new IllegalArgumentException("colors of a packed code must be between 1 and 16!");
+    }
+    this.length = length;
+    this.colors = colors;
+    long count = 1;
+    for (int position = 0; position < length; position += 1) {
+      count = Math.multiplyExact(count, (long) colors);
+    }
+    this.size = count;
+    this.pegMask = length == 16 ? -1L : (1L << (4 * length)) - 1;
+  }
 
-  ILoColor mt = new MtLoColor();
-  ILoColor blueRed = new ConsLoColor(blue,
-      new ConsLoColor(red,
+  // returns whether codes of the given length and colors pack into a long and can all be counted
+  static boolean fits(int length, int colors) {
+    if (length <= 0 || length > 16 || colors <= 0 || colors > 16) {
+      return false;
+    }
+    long count = 1;
+    for (int position = 0; position < length; position += 1) {
+      if (count > Long.MAX_VALUE / colors) {
+        return false;
+      }
+      count *= colors;
+    }
+    return true;
+  }
 
-          new MtLoColor()));
+  // writes the code with the given rank into the given array, the first peg being the most significant digit
+  public int[] codeAtRank(long rank, int[] code) {
+    for (int position = this.length - 1; position >= 0; position -= 1) {
+      code[position] = (int) (rank % this.colors);
+      rank = rank / this.colors;
+    }
+    return code;
+  }
 
-  ILoColor redBlue = new ConsLoColor(red,
-      new ConsLoColor(blue,
+  // returns the rank of the given code
+  public long rankOf(int[] code) {
+    long rank = 0;
+    for (int position = 0; position < this.length; position += 1) {
+      rank = rank * this.colors + code[position];
+    }
+    return rank;
+  }
 
-          new MtLoColor()));
+  // packs the given code into a long, 4 bits per peg with the first peg in the lowest bits
+  public long pack(int[] code) {
+    long packed = 0;
+    for (int position = 0; position < this.length; position += 1) {
+      packed |= ((long) code[position]) << (4 * position);
+    }
+    return packed;
+  }
 
-  ILoColor blueRedPurple = new ConsLoColor(blue,
-      new ConsLoColor(red,
-          new ConsLoColor(purple,
-              new MtLoColor())));
+  // returns the color of the peg at the given position of a packed code
+  public int pegAt(long packed, int position) {
+    return (int) ((packed >>> (4 * position)) & 0xF);
+  }
 
-  ILoColor purpleRedBlue = new ConsLoColor(purple,
-      new ConsLoColor(red,
-          new ConsLoColor(blue,
-              new MtLoColor())));
+  // unpacks the given packed code into the given array
+  public int[] unpack(long packed, int[] code) {
+    for (int position = 0; position < this.length; position += 1) {
+      code[position] = this.pegAt(packed, position);
+    }
+    return code;
+  }
 
-  ILoColor greenYellowOrangeBlue =  new ConsLoColor(green,
+  // returns whether the given packed code has some color more than once
+  public boolean hasDuplicates(long packed) {
+    int colorsSeen = 0;
+    for (int position = 0; position < this.length; position += 1) {
+      int bit = 1 << this.pegAt(packed, position);
+      if ((colorsSeen & bit) != 0) {
+        return true;
+      }
+      colorsSeen |= bit;
+    }
+    return false;
+  }
+
+  // returns the packed code with the given rank
+  public long packedAtRank(long rank) {
+    return this.pack(this.codeAtRank(rank, new int[this.length]));
+  }
+
+  // returns the number of pegs the two packed codes share in the same position
+  public int exactMatches(long a, long b) {
+    long differ = a ^ b;
+    // every nibble is folded into its lowest bit, which is set if the pegs differ
+    differ = (differ | (differ >>> 1) | (differ >>> 2) | (differ >>> 3)) & 0x1111111111111111L & this.pegMask;
+    return this.length - Long.bitCount(differ);
+  }
+
+  // returns the number of pegs the two packed codes share in any position
+  public int totalMatches(long a, long b) {
+    int[] counts = new int[this.colors];
+    for (int position = 0; position < this.length; position += 1) {
+      counts[this.pegAt(a, position)] += 1;
+    }
+    int total = 0;
+    for (int position = 0; position < this.length; position += 1) {
+      int peg = this.pegAt(b, position);
+      if (counts[peg] > 0) {
+        counts[peg] -= 1;
+        total += 1;
+      }
+    }
+    return total;
+  }
+
+  // returns the first guesses worth evaluating: before any feedback, renaming colors or reordering
+  // positions cannot change a guess's partition, so only one guess per way of splitting the pegs
+  // into groups of the same color is needed, e.g. 0000, 0001, 0011, 0012 and 0123 for 4 pegs
+  public int[][] openingCandidates() {
+    java.util.List<int[]> openings = new java.util.ArrayList<int[]>();
+    this.addOpenings(new int[this.length], 0, 0, this.length, openings);
+    return openings.toArray(new int[openings.size()][]);
+  }
+
+  // helper for openingCandidates, fills the pegs from the given position with groups of new colors
+  // no larger than the group before them
+  void addOpenings(int[] code, int position, int color, int largest, java.util.List<int[]> openings) {
+    if (position == this.length) {
+      openings.add(code.clone());
+      return;
+    }
+    if (color == this.colors) {
+      return;
+    }
+    for (int group = Math.min(largest, this.length - position); group >= 1; group -= 1) {
+      for (int i = 0; i < group; i += 1) {
+        code[position + i] = color;
+      }
+      this.addOpenings(code, position + group, color + 1, group, openings);
+    }
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.length... int
+   *  this.colors... int
+   *  this.size... long
+   *  this.pegMask... long
+   * METHODS:
+   *  this.codeAtRank(long, int[])... int[]
+   *  this.rankOf(int[])... long
+   *  this.pack(int[])... long
+   *  this.pegAt(long, int)... int
+   *  this.hasDuplicates(long)... boolean
+   *  this.unpack(long, int[])... int[]
+   *  this.packedAtRank(long)... long
+   *  this.exactMatches(long, long)... int
+   *  this.totalMatches(long, long)... int
+   *  this.openingCandidates()... int[][]
+   *  this.addOpenings(int[], int, int, int, List<int[]>)... void
+   *  CodeSpace.fits(int, int)... boolean
+   * METHODS OF FIELDS:
+   */
+}
+
+// scores one guess against a whole block of packed codes at once. The block is kept
+// column by column (one array per peg position) so every inner loop is a flat compare-and-add
+// over ints that the JIT can turn into SIMD instructions; small blocks use the scalar path
+class BatchScorer {
+  CodeSpace space;
+  int blockSize;
+  int[][] columns;
+  int[] colorCounts;
+  int[] guessCounts;
+  int[] guessPegs;
+  int[] blockExact;
+  int[] blockInexact;
+  StandardEngine engine;
+
+  // blocks smaller than this are scored one code at a time
+  static final int MIN_BLOCK = 16;
+
+  // the constructor
+  BatchScorer(CodeSpace space, int blockSize) {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("block size must be greater than 0!");
+    }
+    this.space = space;
+    this.blockSize = blockSize;
+    this.columns = new int[space.length][blockSize];
+    this.colorCounts = new int[blockSize];
+    this.guessCounts = new int[space.colors];
+    this.guessPegs = new int[space.length];
+    // the results of one block, kept so scoring many codes allocates nothing
+    this.blockExact = new int[blockSize];
+    this.blockInexact = new int[blockSize];
+    this.engine = new StandardEngine(space.length, space.colors);
+  }
+
+  // loads up to blockSize packed codes starting at the given index into the columns,
+  // returns how many codes were loaded
+  public int loadPacked(long[] codes, int from, int count) {
+    int loaded = Math.min(count, this.blockSize);
+    for (int position = 0; position < this.space.length; position += 1) {
+      int[] column = this.columns[position];
+      int shift = 4 * position;
+      for (int i = 0; i < loaded; i += 1) {
+        column[i] = (int) (codes[from + i] >>> shift) & 0xF;
+      }
+    }
+    return loaded;
+  }
+
+  // loads up to blockSize codes with consecutive ranks starting at the given rank,
+  // returns how many codes were loaded
+  public int loadRanks(long fromRank, long count) {
+    int loaded = (int) Math.min(Math.min(count, this.blockSize), this.space.size - fromRank);
+    int[] code = this.space.codeAtRank(fromRank, new int[this.space.length]);
+    for (int i = 0; i < loaded; i += 1) {
+      for (int position = 0; position < this.space.length; position += 1) {
+        this.columns[position][i] = code[position];
+      }
+      // steps to the next rank like an odometer, the last peg turning fastest
+      for (int position = this.space.length - 1; position >= 0; position -= 1) {
+        code[position] += 1;
+        if (code[position] < this.space.colors) {
+          break;
+        }
+        code[position] = 0;
+      }
+    }
+    return loaded;
+  }
+
+  // scores the given guess against the first count codes of the loaded block, writing the
+  // exact and inexact matches of the i-th code to exact[i] and inexact[i]
+  public void scoreBlock(int[] guess, int count, int[] exact, int[] inexact) {
+    for (int i = 0; i < count; i += 1) {
+      exact[i] = 0;
+      inexact[i] = 0;
+    }
+    java.util.Arrays.fill(this.guessCounts, 0);
+    for (int position = 0; position < this.space.length; position += 1) {
+      int peg = guess[position];
+      int[] column = this.columns[position];
+      this.guessCounts[peg] += 1;
+      // (x ^ y) - 1 is negative only when x == y, so its sign bit is the match without a branch
+      for (int i = 0; i < count; i += 1) {
+        exact[i] += ((column[i] ^ peg) - 1) >>> 31;
+      }
+    }
+    // colors missing from the guess can never match, so only the guess's colors are counted
+    for (int color = 0; color < this.space.colors; color += 1) {
+      int inGuess = this.guessCounts[color];
+      if (inGuess == 0) {
+        continue;
+      }
+      int[] counts = this.colorCounts;
+      for (int i = 0; i < count; i += 1) {
+        counts[i] = 0;
+      }
+      for (int position = 0; position < this.space.length; position += 1) {
+        int[] column = this.columns[position];
+        for (int i = 0; i < count; i += 1) {
+          counts[i] += ((column[i] ^ color) - 1) >>> 31;
+        }
+      }
+      for (int i = 0; i < count; i += 1) {
+        inexact[i] += Math.min(counts[i], inGuess);
+      }
+    }
+    for (int i = 0; i < count; i += 1) {
+      inexact[i] -= exact[i];
+    }
+  }
+
+  // scalar fallback: scores the given guess against count packed codes one at a time
+  public void scoreScalar(int[] guess, long[] codes, int from, int count, int[] exact, int[] inexact) {
+    for (int i = 0; i < count; i += 1) {
+      long packed = codes[from + i];
+      for (int position = 0; position < this.space.length; position += 1) {
+        this.guessPegs[position] = (int) ((packed >>> (4 * position)) & 0xF);
+      }
+      exact[i] = this.engine.exactMatches(guess, this.guessPegs);
+      inexact[i] = this.engine.totalMatches(guess, this.guessPegs) - exact[i];
+    }
+  }
+
+  // scores the given guess against count packed codes, in blocks when there are enough codes
+  public void score(int[] guess, long[] codes, int from, int count, int[] exact, int[] inexact) {
+    if (count < MIN_BLOCK) {
+      this.scoreScalar(guess, codes, from, count, exact, inexact);
+      return;
+    }
+    for (int done = 0; done < count;) {
+      int loaded = this.loadPacked(codes, from + done, count - done);
+      this.scoreBlock(guess, loaded, this.blockExact, this.blockInexact);
+      System.arraycopy(this.blockExact, 0, exact, done, loaded);
+      System.arraycopy(this.blockInexact, 0, inexact, done, loaded);
+      done += loaded;
+    }
+  }
+
+  // scores a single guess against a single secret
+  public Matches score(int[] guess, int[] secret) {
+    return this.engine.score(guess, secret);
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.blockSize... int
+   *  this.columns... int[][]
+   *  this.colorCounts... int[]
+   *  this.guessCounts... int[]
+   *  this.guessPegs... int[]
+   *  this.blockExact... int[]
+   *  this.blockInexact... int[]
+   *  this.engine... StandardEngine
+   * METHODS:
+   *  this.loadPacked(long[], int, int)... int
+   *  this.loadRanks(long, long)... int
+   *  this.scoreBlock(int[], int, int[], int[])... void
+   *  this.scoreScalar(int[], long[], int, int, int[], int[])... void
+   *  this.score(int[], long[], int, int, int[], int[])... void
+   *  this.score(int[], int[])... Matches
+   * METHODS OF FIELDS:
+   *  this.space.codeAtRank(long, int[])... int[]
+   *  this.space.pegAt(long, int)... int
+   *  this.engine.exactMatches(int[], int[])... int
+   *  this.engine.totalMatches(int[], int[])... int
+   *  this.engine.score(int[], int[])... Matches
+   */
+}
+
+// compares the list based scoring in ConsLoColor with the scalar and block scoring of BatchScorer,
+// run with: java ScoringBenchmark <length> <colors>
+class ScoringBenchmark {
+
+  // times each way of scoring one guess against every code of the code space
+  public static void main(String[] args) {
+    int length = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    int colors = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    CodeSpace space = new CodeSpace(length, colors);
+    BatchScorer scorer = new BatchScorer(space, 1024);
+    int count = (int) Math.min(space.size, 1 << 20);
+
+    ILoColor palette = new MtLoColor();
+    for (int color = colors - 1; color >= 0; color -= 1) {
+      // one hue per color, so any number of colors up to 16 are all different and valid
+      palette = new ConsLoColor(Color.getHSBColor(color / (float) colors, 0.8f, 0.9f), palette);
+    }
+    long[] codes = new long[count];
+    ILoColor[] lists = new ILoColor[count];
+    for (int i = 0; i < count; i += 1) {
+      int[] code = space.codeAtRank(i, new int[length]);
+      codes[i] = space.pack(code);
+      ILoColor list = new MtLoColor();
+      for (int position = length - 1; position >= 0; position -= 1) {
+        list = new ConsLoColor(palette.getColorAtIndex(code[position]), list);
+      }
+      lists[i] = list;
+    }
+    int[] guess = space.codeAtRank(space.size / 3, new int[length]);
+    ILoColor guessList = lists[(int) Math.min(space.size / 3, count - 1)];
+    int[] exact = new int[count];
+    int[] inexact = new int[count];
+
+    // every pass is repeated so the per code figures are not dominated by timer resolution
+    int repeats = 10;
+    for (int round = 0; round < 10; round += 1) {
+      long start = System.nanoTime();
+      long checksum = 0;
+      for (int repeat = 0; repeat < repeats; repeat += 1) {
+        for (int i = 0; i < count; i += 1) {
+          checksum += guessList.exactMatches(lists[i]) * 16 + guessList.inexactMatches(lists[i]);
+        }
+      }
+      double listNanos = (System.nanoTime() - start) / (double) (repeats * count);
+
+      start = System.nanoTime();
+      for (int repeat = 0; repeat < repeats; repeat += 1) {
+        scorer.scoreScalar(guess, codes, 0, count, exact, inexact);
+      }
+      double scalarNanos = (System.nanoTime() - start) / (double) (repeats * count);
+
+      start = System.nanoTime();
+      for (int repeat = 0; repeat < repeats; repeat += 1) {
+        scorer.score(guess, codes, 0, count, exact, inexact);
+      }
+      double blockNanos = (System.nanoTime() - start) / (double) (repeats * count);
+
+      System.out.printf("round %d (%d codes, checksum %d): ConsLoColor %.2f ns/code, "
+          + "scalar %.2f ns/code, block %.2f ns/code%n",
+          round, count, checksum, listNanos, scalarNanos, blockNanos);
+    }
+  }
+}
+
+// computes partition histograms: for a guess and a set of possible secrets, how many of the secrets
+// would give each possible Matches result, the result (exact, inexact) being counted at index
+// exact * (length + 1) + inexact. Every solver strategy ranks guesses from these histograms alone,
+// so one scoring pass over the secrets serves all of them
+class PartitionEngine {
+  CodeSpace space;
+  BatchScorer scorer;
+  int[] exact;
+  int[] inexact;
+
+  // the constructor
+  PartitionEngine(CodeSpace space) {
+    this.space = space;
+    this.scorer = new BatchScorer(space, 4096);
+    this.exact = new int[4096];
+    this.inexact = new int[4096];
+  }
+
+  // returns the number of different Matches results for codes of the given length
+  static int resultCount(int length) {
+    return (length + 1) * (length + 1);
+  }
+
+  // returns the index of the given result in a histogram for codes of the given length
+  static int resultIndex(int length, int exact, int inexact) {
+    return exact * (length + 1) + inexact;
+  }
+
+  // returns the histogram of each of the given guesses over the secrets with ranks in [fromRank, toRank)
+  public long[][] histograms(int[][] guesses, long fromRank, long toRank) {
+    long[][] histograms = new long[guesses.length][resultCount(this.space.length)];
+    for (long rank = fromRank; rank < toRank;) {
+      int loaded = this.scorer.loadRanks(rank, toRank - rank);
+      this.countBlock(guesses, loaded, histograms);
+      rank += loaded;
+    }
+    return histograms;
+  }
+
+  // returns the histogram of each of the given guesses over the first count of the given packed secrets
+  public long[][] histograms(int[][] guesses, long[] secrets, int count) {
+    long[][] histograms = new long[guesses.length][resultCount(this.space.length)];
+    for (int done = 0; done < count;) {
+      int loaded = this.scorer.loadPacked(secrets, done, count - done);
+      this.countBlock(guesses, loaded, histograms);
+      done += loaded;
+    }
+    return histograms;
+  }
+
+  // scores every guess against the loaded block of secrets, which is loaded once for all of them,
+  // and adds the results to the histograms
+  void countBlock(int[][] guesses, int loaded, long[][] histograms) {
+    int width = this.space.length + 1;
+    for (int g = 0; g < guesses.length; g += 1) {
+      this.scorer.scoreBlock(guesses[g], loaded, this.exact, this.inexact);
+      long[] histogram = histograms[g];
+      for (int i = 0; i < loaded; i += 1) {
+        histogram[this.exact[i] * width + this.inexact[i]] += 1;
+      }
+    }
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.scorer... BatchScorer
+   *  this.exact... int[]
+   *  this.inexact... int[]
+   * METHODS:
+   *  this.histograms(int[][], long, long)... long[][]
+   *  this.histograms(int[][], long[], int)... long[][]
+   *  this.countBlock(int[][], int, long[][])... void
+   * METHODS OF FIELDS:
+   *  this.scorer.loadRanks(long, long)... int
+   *  this.scorer.loadPacked(long[], int, int)... int
+   *  this.scorer.scoreBlock(int[], int, int[], int[])... void
+   */
+}
+
+// computes the partition histograms of some guesses over a range of secret ranks for a ShardCoordinator
+class ShardWorker {
+  CodeSpace space;
+  PartitionEngine engine;
+
+  // the constructor
+  ShardWorker(CodeSpace space) {
+    this.space = space;
+    this.engine = new PartitionEngine(space);
+  }
+
+  // returns the number of different Matches results for codes of the given length
+  static int resultCount(int length) {
+    return PartitionEngine.resultCount(length);
+  }
+
+  // returns the histogram of each of the given guesses over the secrets with ranks in [fromRank, toRank)
+  public long[][] histograms(int[][] guesses, long fromRank, long toRank) {
+    return this.engine.histograms(guesses, fromRank, toRank);
+  }
+
+  // answers shard requests read from stdin until it is closed or told to quit. A request is the line
+  // "SHARD <id> <length> <colors> <fromRank> <toRank> <guessRank>,<guessRank>,..." and its answer the
+  // line "RESULT <id> <count>,<count>,...;<count>,..." with one histogram per guess
+  public static void main(String[] args) throws java.io.IOException {
+    java.io.BufferedReader in = new java.io.BufferedReader(new java.io.InputStreamReader(System.in));
+    java.io.PrintStream out = new java.io.PrintStream(
+        new java.io.BufferedOutputStream(new java.io.FileOutputStream(java.io.FileDescriptor.out)), false);
+    ShardWorker worker = null;
+    for (String line = in.readLine(); line != null && !line.equals("QUIT"); line = in.readLine()) {
+      String[] parts = line.split(" ");
+      int length = Integer.parseInt(parts[2]);
+      int colors = Integer.parseInt(parts[3]);
+      if (worker == null || worker.space.length != length || worker.space.colors != colors) {
+        worker = new ShardWorker(new CodeSpace(length, colors));
+      }
+      String[] ranks = parts[6].split(",");
+      int[][] guesses = new int[ranks.length][];
+      for (int g = 0; g < ranks.length; g += 1) {
+        guesses[g] = worker.space.codeAtRank(Long.parseLong(ranks[g]), new int[length]);
+      }
+      long[][] histograms = worker.histograms(guesses, Long.parseLong(parts[4]), Long.parseLong(parts[5]));
+      StringBuilder answer = new StringBuilder("RESULT ").append(parts[1]).append(' ');
+      for (int g = 0; g < histograms.length; g += 1) {
+        if (g > 0) {
+          answer.append(';');
+        }
+        for (int r = 0; r < histograms[g].length; r += 1) {
+          if (r > 0) {
+            answer.append(',');
+          }
+          answer.append(histograms[g][r]);
+        }
+      }
+      out.println(answer);
+      out.flush();
+    }
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.engine... PartitionEngine
+   * METHODS:
+   *  this.histograms(int[][], long, long)... long[][]
+   * METHODS OF FIELDS:
+   *  this.engine.histograms(int[][], long, long)... long[][]
+   */
+}
+
+// splits the code space into shards of secret ranks and has a pool of ShardWorker processes on this
+// machine compute the partition histograms of the candidate first guesses, talking to each worker over
+// its stdin/stdout pipes. A worker that dies, answers garbage or takes too long is killed and replaced,
+// and its shard is handed out again, so only completed shards are ever merged
+class ShardCoordinator {
+  CodeSpace space;
+  int workers;
+  int shards;
+  long timeoutMillis;
+  int maxAttempts;
+  java.util.List<String> workerCommand;
+
+  // the constructor, running ShardWorker with the same java and class path as this process
+  ShardCoordinator(CodeSpace space, int workers) {
+    this(space, workers, 4 * Math.max(1, workers), 600000, 3, java.util.Arrays.asList(
+        System.getProperty("java.home") + java.io.File.separator + "bin" + java.io.File.separator + "java",
+        "-cp", System.getProperty("java.class.path"), "ShardWorker"));
+  }
+
+  // the constructor
+  ShardCoordinator(CodeSpace space, int workers, int shards, long timeoutMillis, int maxAttempts,
+      java.util.List<String> workerCommand) {
+    if (shards <= 0) {
+      throw new IllegalArgumentException("number of shards must be greater than 0!");
+    }
+    if (maxAttempts <= 0) {
+      throw new IllegalArgumentException("number of attempts must be greater than 0!");
+    }
+    this.space = space;
+    this.workers = workers;
+    this.shards = shards;
+    this.timeoutMillis = timeoutMillis;
+    this.maxAttempts = maxAttempts;
+    this.workerCommand = workerCommand;
+  }
+
+  // returns the first guesses worth evaluating, see CodeSpace.openingCandidates
+  public int[][] openingCandidates() {
+    return this.space.openingCandidates();
+  }
+
+  // returns the histogram of each of the given guesses over the whole code space
+  public long[][] histograms(int[][] guesses) {
+    long[] bounds = new long[this.shards + 1];
+    for (int shard = 0; shard <= this.shards; shard += 1) {
+      bounds[shard] = this.space.size / this.shards * shard
+          + Math.min(shard, this.space.size % this.shards);
+    }
+    long[][] merged = new long[guesses.length][ShardWorker.resultCount(this.space.length)];
+    if (this.workers <= 0) {
+      ShardWorker local = new ShardWorker(this.space);
+      for (int shard = 0; shard < this.shards; shard += 1) {
+        this.merge(merged, local.histograms(guesses, bounds[shard], bounds[shard + 1]));
+      }
+      return merged;
+    }
+
+    StringBuilder ranks = new StringBuilder();
+    for (int g = 0; g < guesses.length; g += 1) {
+      ranks.append(g == 0 ? "" : ",").append(this.space.rankOf(guesses[g]));
+    }
+    java.util.concurrent.LinkedBlockingQueue<Integer> pending = new java.util.concurrent.LinkedBlockingQueue<Integer>();
+    for (int shard = 0; shard < this.shards; shard += 1) {
+      pending.add(shard);
+    }
+    int[] attempts = new int[this.shards];
+    java.util.concurrent.CountDownLatch done = new java.util.concurrent.CountDownLatch(this.shards);
+    java.util.concurrent.atomic.AtomicReference<RuntimeException> failure =
+        new java.util.concurrent.atomic.AtomicReference<RuntimeException>();
+    java.util.List<Thread> threads = new java.util.ArrayList<Thread>();
+    for (int w = 0; w < this.workers; w += 1) {
+      Thread thread = new Thread(() -> this.drive(pending, bounds, ranks.toString(), guesses.length,
+          attempts, merged, done, failure), "shard-driver-" + w);
+      thread.setDaemon(true);
+      threads.add(thread);
+      thread.start();
+    }
+    try {
+      while (!done.await(100, java.util.concurrent.TimeUnit.MILLISECONDS)) {
+        if (failure.get() != null) {
+          break;
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, new IllegalStateException("interrupted while waiting for shards!"));
+    }
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return merged;
+  }
+
+  // runs one worker process, feeding it shards until there are none left, restarting it when it fails
+  void drive(java.util.concurrent.BlockingQueue<Integer> pending, long[] bounds, String ranks, int guessCount,
+      int[] attempts, long[][] merged, java.util.concurrent.CountDownLatch done,
+      java.util.concurrent.atomic.AtomicReference<RuntimeException> failure) {
+    WorkerProcess worker = null;
+    try {
+      while (done.getCount() > 0 && failure.get() == null) {
+        Integer shard = pending.poll(100, java.util.concurrent.TimeUnit.MILLISECONDS);
+        if (shard == null) {
+          continue;
+        }
+        try {
+          if (worker == null) {
+            worker = new WorkerProcess(this.workerCommand);
+          }
+          long[][] partial = worker.request("SHARD " + shard + " " + this.space.length + " " + this.space.colors
+              + " " + bounds[shard] + " " + bounds[shard + 1] + " " + ranks, shard, guessCount,
+              ShardWorker.resultCount(this.space.length), this.timeoutMillis);
+          synchronized (merged) {
+            this.merge(merged, partial);
+          }
+          done.countDown();
+        }
+        catch (java.io.IOException | RuntimeException | java.util.concurrent.TimeoutException e) {
+          if (worker != null) {
+            worker.kill();
+            worker = null;
+          }
+          boolean retry;
+          synchronized (attempts) {
+            attempts[shard] += 1;
+            retry = attempts[shard] < this.maxAttempts;
+          }
+          if (retry) {
+            pending.add(shard);
+          }
+          else {
+            failure.compareAndSet(null, new IllegalStateException(
+                "shard " + shard + " failed " + this.maxAttempts + " times: " + e.getMessage()));
+          }
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    finally {
+      if (worker != null) {
+        worker.close();
+      }
+    }
+  }
+
+  // adds the partial histograms into the merged ones
+  void merge(long[][] merged, long[][] partial) {
+    for (int g = 0; g < merged.length; g += 1) {
+      for (int r = 0; r < merged[g].length; r += 1) {
+        merged[g][r] += partial[g][r];
+      }
+    }
+  }
+
+  // returns the opening whose largest partition is the smallest
+  public int[] bestOpening() {
+    return this.bestOpening(new MinimaxStrategy());
+  }
+
+  // returns the opening the given strategy likes best
+  public int[] bestOpening(IStrategy strategy) {
+    int[][] openings = this.openingCandidates();
+    long[][] histograms = this.histograms(openings);
+    int best = 0;
+    for (int g = 1; g < openings.length; g += 1) {
+      if (strategy.cost(histograms[g], this.space.size) < strategy.cost(histograms[best], this.space.size)) {
+        best = g;
+      }
+    }
+    return openings[best];
+  }
+
+  // returns the size of the largest partition of the given histogram
+  static long largest(long[] histogram) {
+    long largest = 0;
+    for (long count : histogram) {
+      largest = Math.max(largest, count);
+    }
+    return largest;
+  }
+
+  // evaluates every opening of a board with a pool of worker processes,
+  // run with: java ShardCoordinator <length> <colors> <workers>
+  public static void main(String[] args) {
+    CodeSpace space = new CodeSpace(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+    ShardCoordinator coordinator = new ShardCoordinator(space, Integer.parseInt(args[2]));
+    int[][] openings = coordinator.openingCandidates();
+    long start = System.nanoTime();
+    long[][] histograms = coordinator.histograms(openings);
+    for (int g = 0; g < openings.length; g += 1) {
+      System.out.println(java.util.Arrays.toString(openings[g]) + " largest partition "
+          + ShardCoordinator.largest(histograms[g]));
+    }
+    System.out.println(space.size + " secrets x " + openings.length + " openings in "
+        + (System.nanoTime() - start) / 1000000 + " ms");
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.workers... int
+   *  this.shards... int
+   *  this.timeoutMillis... long
+   *  this.maxAttempts... int
+   *  this.workerCommand... List<String>
+   * METHODS:
+   *  this.openingCandidates()... int[][]
+   *  this.histograms(int[][])... long[][]
+   *  this.drive(BlockingQueue<Integer>, long[], String, int, int[], long[][], CountDownLatch,
+   *             AtomicReference<RuntimeException>)... void
+   *  this.merge(long[][], long[][])... void
+   *  this.bestOpening()... int[]
+   *  this.bestOpening(IStrategy)... int[]
+   * METHODS OF FIELDS:
+   *  this.space.rankOf(int[])... long
+   */
+}
+
+// a running ShardWorker process and the pipes to talk to it
+class WorkerProcess {
+  Process process;
+  java.io.BufferedWriter in;
+  java.io.BufferedReader out;
+  java.util.concurrent.ExecutorService reader;
+
+  // the constructor, starts the process
+  WorkerProcess(java.util.List<String> command) throws java.io.IOException {
+    this.process = new ProcessBuilder(command)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+    this.in = new java.io.BufferedWriter(new java.io.OutputStreamWriter(this.process.getOutputStream()));
+    this.out = new java.io.BufferedReader(new java.io.InputStreamReader(this.process.getInputStream()));
+    this.reader = java.util.concurrent.Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "shard-reader");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // sends the given request and parses the histograms of the answer, failing if the answer does not
+  // come back in time or is not the answer for the given shard
+  public long[][] request(String request, int shard, int guessCount, int resultCount, long timeoutMillis)
+      throws java.io.IOException, java.util.concurrent.TimeoutException, InterruptedException {
+    this.in.write(request);
+    this.in.newLine();
+    this.in.flush();
+    String answer;
+    try {
+      answer = this.reader.submit(() -> this.out.readLine())
+          .get(timeoutMillis, java.util.concurrent.TimeUnit.MILLISECONDS);
+    }
+    catch (java.util.concurrent.ExecutionException e) {
+      throw new java.io.IOException("worker could not be read", e.getCause());
+    }
+    if (answer == null) {
+      throw new java.io.IOException("worker exited");
+    }
+    String prefix = "RESULT " + shard + " ";
+    if (!answer.startsWith(prefix)) {
+      throw new java.io.IOException("unexpected answer from worker: " + answer);
+    }
+    String[] histograms = answer.substring(prefix.length()).split(";");
+    if (histograms.length != guessCount) {
+      throw new java.io.IOException("worker answered " + histograms.length + " histograms instead of " + guessCount);
+    }
+    long[][] parsed = new long[guessCount][resultCount];
+    for (int g = 0; g < guessCount; g += 1) {
+      String[] counts = histograms[g].split(",");
+      if (counts.length != resultCount) {
+        throw new java.io.IOException("worker answered a histogram of the wrong size");
+      }
+      for (int r = 0; r < resultCount; r += 1) {
+        parsed[g][r] = Long.parseLong(counts[r]);
+      }
+    }
+    return parsed;
+  }
+
+  // asks the process to quit
+  public void close() {
+    try {
+      this.in.write("QUIT");
+      this.in.newLine();
+      this.in.close();
+    }
+    catch (java.io.IOException e) {
+      this.process.destroyForcibly();
+    }
+    this.reader.shutdownNow();
+  }
+
+  // kills the process
+  public void kill() {
+    this.process.destroyForcibly();
+    this.reader.shutdownNow();
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.process... Process
+   *  this.in... BufferedWriter
+   *  this.out... BufferedReader
+   *  this.reader... ExecutorService
+   * METHODS:
+   *  this.request(String, int, int, int, long)... long[][]
+   *  this.close()... void
+   *  this.kill()... void
+   * METHODS OF FIELDS:
+   */
+}
+
+// represents a way of choosing guesses from the partition histograms they give,
+// a guess with a lower cost being a better guess
+interface IStrategy {
+
+  // returns the name of this strategy
+  String name();
+
+  // returns the cost of a guess with the given histogram over the given number of possible secrets
+  double cost(long[] histogram, long candidates);
+}
+
+// chooses the guess whose largest partition is the smallest (Knuth's minimax)
+class MinimaxStrategy implements IStrategy {
+
+  // returns the name of this strategy
+  public String name() {
+    return "minimax";
+  }
+
+  // returns the size of the largest partition
+  public double cost(long[] histogram, long candidates) {
+    return ShardCoordinator.largest(histogram);
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   * METHODS:
+   *  this.name()... String
+   *  this.cost(long[], long)... double
+   * METHODS OF FIELDS:
+   */
+}
+
+// chooses the guess that leaves the fewest possible secrets on average
+class ExpectedSizeStrategy implements IStrategy {
+
+  // returns the name of this strategy
+  public String name() {
+    return "expected size";
+  }
+
+  // returns the expected size of the partition the secret falls in, a partition of n secrets
+  // being hit with probability n / candidates
+  public double cost(long[] histogram, long candidates) {
+    double sum = 0;
+    for (long count : histogram) {
+      sum += (double) count * count;
+    }
+    return sum / candidates;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   * METHODS:
+   *  this.name()... String
+   *  this.cost(long[], long)... double
+   * METHODS OF FIELDS:
+   */
+}
+
+// chooses the guess that splits the possible secrets into the most partitions (Kooi's most parts)
+class MostPartsStrategy implements IStrategy {
+
+  // returns the name of this strategy
+  public String name() {
+    return "most parts";
+  }
+
+  // returns minus the number of partitions that are not empty
+  public double cost(long[] histogram, long candidates) {
+    int parts = 0;
+    for (long count : histogram) {
+      if (count > 0) {
+        parts += 1;
+      }
+    }
+    return -parts;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   * METHODS:
+   *  this.name()... String
+   *  this.cost(long[], long)... double
+   * METHODS OF FIELDS:
+   */
+}
+
+// plays Mastermind by keeping every secret still consistent with the Matches so far and guessing
+// what its strategy likes best. Guesses are drawn from the whole code space on small boards and
+// from the consistent secrets on large ones, and ties go to a guess that could itself be the secret
+class Solver {
+  CodeSpace space;
+  PartitionEngine engine;
+  IStrategy strategy;
+  java.util.HashMap<String, int[]> decisions;
+
+  // boards with more codes than this only guess codes that are still consistent
+  static final long MAX_GUESS_SET = 1 << 14;
+  // how many guesses are scored against each loaded block of secrets
+  static final int GUESS_CHUNK = 256;
+
+  // the constructor
+  Solver(CodeSpace space, IStrategy strategy) {
+    this.space = space;
+    this.engine = new PartitionEngine(space);
+    this.strategy = strategy;
+    this.decisions = new java.util.HashMap<String, int[]>();
+  }
+
+  // returns every code of the code space, packed
+  public long[] allCodes() {
+    if (this.space.size > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("code space is too large to list!");
+    }
+    long[] codes = new long[(int) this.space.size];
+    int[] code = new int[this.space.length];
+    for (int rank = 0; rank < codes.length; rank += 1) {
+      codes[rank] = this.space.pack(this.space.codeAtRank(rank, code));
+    }
+    return codes;
+  }
+
+  // returns the best guess given the first count packed secrets that are still consistent
+  public int[] nextGuess(long[] candidates, int count) {
+    if (count <= 0) {
+      throw new IllegalArgumentException("no secret is consistent with the matches!");
+    }
+    if (count == 1) {
+      return this.space.unpack(candidates[0], new int[this.space.length]);
+    }
+    return this.nextGuess(candidates, count, this.guessesFor(candidates, count));
+  }
+
+  // returns the guesses worth trying given the first count packed secrets that are still consistent
+  int[][] guessesFor(long[] candidates, int count) {
+    int[][] guesses;
+    if (count == this.space.size) {
+      // nothing is known yet, so one opening per peg grouping is enough
+      guesses = this.space.openingCandidates();
+    }
+    else if (this.space.size <= MAX_GUESS_SET) {
+      guesses = new int[(int) this.space.size][];
+      for (int rank = 0; rank < guesses.length; rank += 1) {
+        guesses[rank] = this.space.codeAtRank(rank, new int[this.space.length]);
+      }
+    }
+    else {
+      guesses = new int[count][];
+      for (int i = 0; i < count; i += 1) {
+        guesses[i] = this.space.unpack(candidates[i], new int[this.space.length]);
+      }
+    }
+    return guesses;
+  }
+
+  // returns the best of the given guesses given the first count packed secrets that are still consistent
+  public int[] nextGuess(long[] candidates, int count, int[][] guesses) {
+    int solved = PartitionEngine.resultIndex(this.space.length, this.space.length, 0);
+    int[] best = null;
+    double bestCost = Double.POSITIVE_INFINITY;
+    boolean bestConsistent = false;
+    for (int from = 0; from < guesses.length; from += GUESS_CHUNK) {
+      int[][] chunk = java.util.Arrays.copyOfRange(guesses, from, Math.min(guesses.length, from + GUESS_CHUNK));
+      long[][] histograms = this.engine.histograms(chunk, candidates, count);
+      for (int g = 0; g < chunk.length; g += 1) {
+        double cost = this.strategy.cost(histograms[g], count);
+        boolean consistent = histograms[g][solved] > 0;
+        if (cost < bestCost || (cost == bestCost && consistent && !bestConsistent)) {
+          best = chunk[g];
+          bestCost = cost;
+          bestConsistent = consistent;
+        }
+      }
+    }
+    return best;
+  }
+
+  // keeps only the first count packed secrets that would give the given matches for the given guess,
+  // moving them to the front of the array, and returns how many are kept
+  public int filter(long[] candidates, int count, int[] guess, int exact, int inexact) {
+    BatchScorer scorer = this.engine.scorer;
+    int[] blockExact = this.engine.exact;
+    int[] blockInexact = this.engine.inexact;
+    int kept = 0;
+    for (int done = 0; done < count;) {
+      int loaded = scorer.loadPacked(candidates, done, count - done);
+      scorer.scoreBlock(guess, loaded, blockExact, blockInexact);
+      for (int i = 0; i < loaded; i += 1) {
+        if (blockExact[i] == exact && blockInexact[i] == inexact) {
+          candidates[kept] = candidates[done + i];
+          kept += 1;
+        }
+      }
+      done += loaded;
+    }
+    return kept;
+  }
+
+  // plays a game against the given secret and returns how many guesses it took, or -1 if it was
+  // not solved within the given number of guesses. Guesses are remembered by the history that led
+  // to them, so playing many games only ever computes each decision once
+  public int play(int[] secret, int maxGuesses) {
+    long[] candidates = this.allCodes();
+    int count = candidates.length;
+    StringBuilder history = new StringBuilder();
+    for (int guesses = 1; guesses <= maxGuesses; guesses += 1) {
+      String key = history.toString();
+      int[] guess = this.decisions.get(key);
+      if (guess == null) {
+        guess = this.nextGuess(candidates, count);
+        this.decisions.put(key, guess);
+      }
+      Matches result = this.engine.scorer.score(guess, secret);
+      if (result.exact == this.space.length) {
+        return guesses;
+      }
+      count = this.filter(candidates, count, guess, result.exact, result.inexact);
+      history.append(this.space.rankOf(guess)).append(':')
+          .append(result.exact).append(':').append(result.inexact).append(';');
+    }
+    return -1;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.engine... PartitionEngine
+   *  this.strategy... IStrategy
+   *  this.decisions... HashMap<String, int[]>
+   * METHODS:
+   *  this.allCodes()... long[]
+   *  this.nextGuess(long[], int)... int[]
+   *  this.guessesFor(long[], int)... int[][]
+   *  this.nextGuess(long[], int, int[][])... int[]
+   *  this.filter(long[], int, int[], int, int)... int
+   *  this.play(int[], int)... int
+   * METHODS OF FIELDS:
+   *  this.engine.histograms(int[][], long[], int)... long[][]
+   *  this.strategy.cost(long[], long)... double
+   */
+}
+
+// plays every secret of a board with each strategy and compares the average and worst number of
+// guesses and the CPU time they took, run with: java StrategyComparison <length> <colors>
+class StrategyComparison {
+
+  // prints one line per strategy
+  public static void main(String[] args) {
+    CodeSpace space = new CodeSpace(args.length > 0 ? Integer.parseInt(args[0]) : 4,
+        args.length > 1 ? Integer.parseInt(args[1]) : 6);
+    IStrategy[] strategies = {new MinimaxStrategy(), new ExpectedSizeStrategy(), new MostPartsStrategy()};
+    java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+    for (IStrategy strategy : strategies) {
+      Solver solver = new Solver(space, strategy);
+      long start = threads.getCurrentThreadCpuTime();
+      long total = 0;
+      int worst = 0;
+      int[] secret = new int[space.length];
+      for (long rank = 0; rank < space.size; rank += 1) {
+        int guesses = solver.play(space.codeAtRank(rank, secret), 100);
+        total += guesses;
+        worst = Math.max(worst, guesses);
+      }
+      long cpuMillis = (threads.getCurrentThreadCpuTime() - start) / 1000000;
+      System.out.printf("%-14s average %.4f  worst %d  cpu %d ms%n",
+          strategy.name(), (double) total / space.size, worst, cpuMillis);
+    }
+  }
+}
+
+// a node of a decision tree: the guess to make, and the node to go to for each Matches result
+class DecisionNode {
+  int[] guess;
+  DecisionNode[] children;
+
+  // the constructor
+  DecisionNode(int[] guess, int results) {
+    this.guess = guess;
+    this.children = new DecisionNode[results];
+  }
+
+  // returns the total number of guesses this tree needs to find every secret of the given code space,
+  // checked with the scoring of ILoColor over the given palette, or -1 if some secret is not found
+  public long verify(CodeSpace space, ILoColor palette) {
+    long total = 0;
+    int[] code = new int[space.length];
+    for (long rank = 0; rank < space.size; rank += 1) {
+      ILoColor secret = DecisionNode.toList(space.codeAtRank(rank, code), palette);
+      int guesses = this.guessesFor(secret, palette, space.length, 1);
+      if (guesses < 0) {
+        return -1;
+      }
+      total += guesses;
+    }
+    return total;
+  }
+
+  // returns the number of guesses this tree needs to find the given secret, counting this node as the
+  // given guess, or -1 if it is never found
+  int guessesFor(ILoColor secret, ILoColor palette, int length, int depth) {
+    ILoColor guess = DecisionNode.toList(this.guess, palette);
+    int exact = guess.exactMatches(secret);
+    if (exact == length) {
+      return depth;
+    }
+    DecisionNode next = this.children[PartitionEngine.resultIndex(length, exact, guess.inexactMatches(secret))];
+    if (next == null) {
+      return -1;
+    }
+    return next.guessesFor(secret, palette, length, depth + 1);
+  }
+
+  // returns the given code as a list of colors of the given palette
+  static ILoColor toList(int[] code, ILoColor palette) {
+    ILoColor list = new MtLoColor();
+    for (int position = code.length - 1; position >= 0; position -= 1) {
+      list = new ConsLoColor(palette.getColorAtIndex(code[position]), list);
+    }
+    return list;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.guess... int[]
+   *  this.children... DecisionNode[]
+   * METHODS:
+   *  this.verify(CodeSpace, ILoColor)... long
+   *  this.guessesFor(ILoColor, ILoColor, int, int)... int
+   * METHODS OF FIELDS:
+   */
+}
+
+// a set of secrets, by rank, used as a key. The ranks are always kept in increasing order since
+// filtering never reorders them
+class CandidateKey {
+  int[] secrets;
+  int hash;
+
+  // the constructor
+  CandidateKey(int[] secrets) {
+    this.secrets = secrets;
+    this.hash = java.util.Arrays.hashCode(secrets);
+  }
+
+  // two keys are equal when they hold the same secrets
+  public boolean equals(Object other) {
+    return other instanceof CandidateKey && java.util.Arrays.equals(this.secrets, ((CandidateKey) other).secrets);
+  }
+
+  // returns the hash of the secrets
+  public int hashCode() {
+    return this.hash;
+  }
+}
+
+// finds the strategy that minimizes the average number of guesses over every secret, not just a
+// heuristic one. The search is a branch-and-bound over guesses: a guess is only explored while a
+// lower bound on its cost beats the best strategy found so far, colors no guess has used yet are
+// interchangeable so only one guess per way of introducing them is tried, and the best cost of
+// every set of secrets is remembered. The openings are searched in parallel
+class OptimalSolver {
+  CodeSpace space;
+  int results;
+  int solved;
+  long branching;
+  long[] floors;
+  long[] packed;
+  byte[][] table;
+  java.util.concurrent.atomic.AtomicReferenceArray<int[]> canonicalGuesses;
+  java.util.concurrent.ConcurrentHashMap<CandidateKey, long[]> best;
+  java.util.concurrent.ConcurrentHashMap<CandidateKey, Long> bounds;
+  ThreadLocal<PartitionEngine> engines;
+
+  // boards with at most this many codes keep the result of every guess against every secret
+  static final long MAX_TABLE = 8192;
+  // sets with at least this many secrets have their parts solved in parallel
+  static final int PARALLEL_SPLIT = 128;
+
+  // the constructor
+  OptimalSolver(CodeSpace space) {
+    if (space.size > Solver.MAX_GUESS_SET * 4) {
+      throw new IllegalArgumentException("code space is too large to search exactly!");
+    }
+    this.space = space;
+    int size = (int) space.size;
+    this.results = PartitionEngine.resultCount(space.length);
+    this.solved = PartitionEngine.resultIndex(space.length, space.length, 0);
+    // every result with exact + inexact <= length except (length - 1, 1) can happen,
+    // and all but the solved one lead to another guess
+    this.branching = (space.length + 1) * (space.length + 2) / 2 - 2;
+    this.floors = new long[size + 1];
+    for (int count = 1; count <= size; count += 1) {
+      this.floors[count] = this.lowerBound(count);
+    }
+    this.packed = new long[size];
+    for (int rank = 0; rank < size; rank += 1) {
+      this.packed[rank] = space.packedAtRank(rank);
+    }
+    this.engines = ThreadLocal.withInitial(() -> new PartitionEngine(space));
+    if (space.size <= MAX_TABLE) {
+      this.table = new byte[size][size];
+      PartitionEngine engine = this.engines.get();
+      for (int guess = 0; guess < size; guess += 1) {
+        engine.scorer.score(space.codeAtRank(guess, new int[space.length]), this.packed, 0, size,
+            engine.exact, engine.inexact);
+        for (int secret = 0; secret < size; secret += 1) {
+          this.table[guess][secret] = (byte) PartitionEngine.resultIndex(space.length,
+              engine.exact[secret], engine.inexact[secret]);
+        }
+      }
+    }
+    this.canonicalGuesses =
+        new java.util.concurrent.atomic.AtomicReferenceArray<int[]>(1 << space.colors);
+    this.best = new java.util.concurrent.ConcurrentHashMap<CandidateKey, long[]>();
+    this.bounds = new java.util.concurrent.ConcurrentHashMap<CandidateKey, Long>();
+  }
+
+  // returns a lower bound on the total number of guesses to find each of count secrets: at most one
+  // secret is found by each guess, and each guess leads to at most branching further guesses
+  long lowerBound(long count) {
+    long total = 0;
+    long level = 1;
+    for (long depth = 1; count > 0; depth += 1) {
+      long found = Math.min(count, level);
+      total += found * depth;
+      count -= found;
+      level = level > Long.MAX_VALUE / this.branching ? Long.MAX_VALUE : level * this.branching;
+    }
+    return total;
+  }
+
+  // returns whether the given guess introduces the colors not in the given set of used colors
+  // in increasing order
+  boolean canonical(int[] guess, int used) {
+    int introduced = used;
+    for (int peg : guess) {
+      if ((introduced & (1 << peg)) == 0) {
+        // the lowest color not used or introduced yet
+        if (Integer.numberOfTrailingZeros(~introduced) != peg) {
+          return false;
+        }
+        introduced |= 1 << peg;
+      }
+    }
+    return true;
+  }
+
+  // returns the ranks of the guesses worth trying once the given set of colors has been used;
+  // parallel searches may build the same list twice, but only one is ever published
+  int[] guessesFor(int used) {
+    int[] guesses = this.canonicalGuesses.get(used);
+    if (guesses == null) {
+      int[] code = new int[this.space.length];
+      int[] kept = new int[(int) this.space.size];
+      int count = 0;
+      for (int rank = 0; rank < this.space.size; rank += 1) {
+        if (this.canonical(this.space.codeAtRank(rank, code), used)) {
+          kept[count] = rank;
+          count += 1;
+        }
+      }
+      guesses = java.util.Arrays.copyOf(kept, count);
+      if (!this.canonicalGuesses.compareAndSet(used, null, guesses)) {
+        guesses = this.canonicalGuesses.get(used);
+      }
+    }
+    return guesses;
+  }
+
+  // returns the histograms of the given guesses over the given secrets, one after the other
+  int[] histograms(int[] guesses, int[] secrets) {
+    int[] histograms = new int[guesses.length * this.results];
+    if (this.table != null) {
+      for (int g = 0; g < guesses.length; g += 1) {
+        byte[] row = this.table[guesses[g]];
+        int offset = g * this.results;
+        for (int secret : secrets) {
+          histograms[offset + row[secret]] += 1;
+        }
+      }
+      return histograms;
+    }
+    PartitionEngine engine = this.engines.get();
+    long[] secretCodes = new long[secrets.length];
+    for (int i = 0; i < secrets.length; i += 1) {
+      secretCodes[i] = this.packed[secrets[i]];
+    }
+    int[][] codes = new int[guesses.length][];
+    for (int g = 0; g < guesses.length; g += 1) {
+      codes[g] = this.space.codeAtRank(guesses[g], new int[this.space.length]);
+    }
+    long[][] counted = engine.histograms(codes, secretCodes, secrets.length);
+    for (int g = 0; g < guesses.length; g += 1) {
+      for (int r = 0; r < this.results; r += 1) {
+        histograms[g * this.results + r] = (int) counted[g][r];
+      }
+    }
+    return histograms;
+  }
+
+  // splits the given secrets by the result they give for the given guess, whose histogram starts
+  // at the given offset
+  int[][] partition(int guess, int[] secrets, int[] histograms, int offset) {
+    int[][] parts = new int[this.results][];
+    for (int r = 0; r < this.results; r += 1) {
+      parts[r] = new int[histograms[offset + r]];
+    }
+    int[] filled = new int[this.results];
+    if (this.table != null) {
+      byte[] row = this.table[guess];
+      for (int secret : secrets) {
+        int r = row[secret];
+        parts[r][filled[r]] = secret;
+        filled[r] += 1;
+      }
+      return parts;
+    }
+    BatchScorer scorer = this.engines.get().scorer;
+    int[] code = this.space.codeAtRank(guess, new int[this.space.length]);
+    int[] secretCode = new int[this.space.length];
+    for (int secret : secrets) {
+      Matches result = scorer.score(code, this.space.codeAtRank(secret, secretCode));
+      int r = PartitionEngine.resultIndex(this.space.length, result.exact, result.inexact);
+      parts[r][filled[r]] = secret;
+      filled[r] += 1;
+    }
+    return parts;
+  }
+
+  // returns the least total number of guesses needed to find each of the given secrets if it is below
+  // the given bound, and otherwise some lower bound that is at least the given bound
+  long solve(int[] secrets, int used, long bound) {
+    int count = secrets.length;
+    if (count <= 2) {
+      return 2L * count - 1;
+    }
+    long floor = this.floors[count];
+    if (floor >= bound) {
+      return floor;
+    }
+    CandidateKey key = new CandidateKey(secrets);
+    long[] known = this.best.get(key);
+    if (known != null) {
+      return known[0];
+    }
+    Long learned = this.bounds.get(key);
+    if (learned != null && learned >= bound) {
+      return learned;
+    }
+
+    // a secret that splits the others as well as the floor allows is the best guess there is,
+    // and checking the secrets first often spares scoring every guess
+    int[] own = this.histograms(secrets, secrets);
+    for (int g = 0; g < count; g += 1) {
+      long estimate = count;
+      for (int r = 0; r < this.results; r += 1) {
+        if (r != this.solved) {
+          estimate += this.floors[own[g * this.results + r]];
+        }
+      }
+      if (estimate == floor
+          && this.costOf(secrets[g], secrets, own, g * this.results, estimate, used, floor + 1) == floor) {
+        this.best.put(key, new long[] {floor, secrets[g]});
+        return floor;
+      }
+    }
+
+    int[] options = this.guessesFor(used);
+    int[] histograms = this.histograms(options, secrets);
+    // each guess worth trying is sorted by its estimate, kept in the high bits next to its index
+    long[] order = new long[options.length];
+    int tried = 0;
+    long smallest = Long.MAX_VALUE;
+    for (int g = 0; g < options.length; g += 1) {
+      long estimate = count;
+      int offset = g * this.results;
+      boolean splits = true;
+      for (int r = 0; r < this.results; r += 1) {
+        int part = histograms[offset + r];
+        if (r != this.solved) {
+          estimate += this.floors[part];
+          // a guess that keeps every secret together can never be part of the best strategy
+          splits = splits && part != count;
+        }
+      }
+      if (splits) {
+        smallest = Math.min(smallest, estimate);
+        // a guess estimated at the bound or more is never tried, so it is not worth sorting
+        if (estimate < bound) {
+          order[tried] = (estimate << 24) | g;
+          tried += 1;
+        }
+      }
+    }
+    // no guess can do better than its own estimate, so the smallest estimate bounds this whole set
+    floor = Math.max(floor, smallest);
+    if (floor >= bound) {
+      this.bounds.merge(key, floor, Math::max);
+      return floor;
+    }
+    java.util.Arrays.sort(order, 0, tried);
+
+    long bestCost = bound;
+    int bestGuess = -1;
+    for (int i = 0; i < tried; i += 1) {
+      long estimate = order[i] >>> 24;
+      int g = (int) (order[i] & 0xFFFFFF);
+      if (estimate >= bestCost) {
+        break;
+      }
+      long cost = this.costOf(options[g], secrets, histograms, g * this.results, estimate, used, bestCost);
+      if (cost < bestCost) {
+        bestCost = cost;
+        bestGuess = options[g];
+        if (bestCost == floor) {
+          break;
+        }
+      }
+    }
+    if (bestGuess < 0) {
+      this.bounds.merge(key, bound, Math::max);
+      return bound;
+    }
+    this.best.put(key, new long[] {bestCost, bestGuess});
+    return bestCost;
+  }
+
+  // returns the least total number of guesses when the given guess is made next, if it is below the
+  // given bound, and otherwise some lower bound that is at least the given bound
+  long costOf(int guess, int[] secrets, int[] histograms, int offset, long estimate, int used, long bound) {
+    int[][] parts = this.partition(guess, secrets, histograms, offset);
+    int nowUsed = used;
+    for (int peg : this.space.codeAtRank(guess, new int[this.space.length])) {
+      nowUsed |= 1 << peg;
+    }
+    // the largest parts are searched first, they are the likeliest to go over the bound
+    long[] order = new long[this.results];
+    for (int r = 0; r < this.results; r += 1) {
+      order[r] = ((long) (r == this.solved ? 0 : parts[r].length) << 8) | r;
+    }
+    java.util.Arrays.sort(order);
+    if (secrets.length >= PARALLEL_SPLIT) {
+      return this.parallelCostOf(parts, order, secrets.length, estimate, nowUsed, bound);
+    }
+    long cost = secrets.length;
+    long remaining = estimate - secrets.length;
+    for (int i = this.results - 1; i >= 0 && (order[i] >>> 8) > 0; i -= 1) {
+      int[] part = parts[(int) (order[i] & 0xFF)];
+      remaining -= this.floors[part.length];
+      long partBound = bound - cost - remaining;
+      long partCost = this.solve(part, nowUsed, partBound);
+      cost += partCost;
+      if (partCost >= partBound) {
+        return Math.max(bound, cost + remaining);
+      }
+    }
+    return cost;
+  }
+
+  // like costOf, but solves the parts in parallel, each part being bounded as if all the others
+  // took only their floor
+  long parallelCostOf(int[][] parts, long[] order, int count, long estimate, int used, long bound) {
+    long[] costs = new long[this.results];
+    java.util.Arrays.stream(order).parallel()
+        .filter(entry -> (entry >>> 8) > 0)
+        .forEach(entry -> {
+          int r = (int) (entry & 0xFF);
+          long partFloor = this.floors[parts[r].length];
+          costs[r] = this.solve(parts[r], used, bound - estimate + partFloor);
+        });
+    // a part over its bound pushes the sum to the bound or more, so the sum is exact or a lower bound
+    long cost = count;
+    for (long partCost : costs) {
+      cost += partCost;
+    }
+    return cost;
+  }
+
+  // returns the decision tree of the best strategy, searching each opening in parallel
+  public DecisionNode solveTree() {
+    int[] all = new int[(int) this.space.size];
+    for (int rank = 0; rank < all.length; rank += 1) {
+      all[rank] = rank;
+    }
+    int[][] openingCodes = this.space.openingCandidates();
+    int[] openings = new int[openingCodes.length];
+    for (int g = 0; g < openings.length; g += 1) {
+      openings[g] = (int) this.space.rankOf(openingCodes[g]);
+    }
+    int[] histograms = this.histograms(openings, all);
+    long[] estimates = new long[openings.length];
+    Integer[] order = new Integer[openings.length];
+    for (int g = 0; g < openings.length; g += 1) {
+      order[g] = g;
+      estimates[g] = all.length;
+      for (int r = 0; r < this.results; r += 1) {
+        if (r != this.solved) {
+          estimates[g] += this.floors[histograms[g * this.results + r]];
+        }
+      }
+    }
+    // the most promising openings go first so the bound they set prunes the others
+    java.util.Arrays.sort(order, (a, b) -> Long.compare(estimates[a], estimates[b]));
+    java.util.concurrent.atomic.AtomicLong bestCost = new java.util.concurrent.atomic.AtomicLong(Long.MAX_VALUE);
+    long[] costs = new long[openings.length];
+    boolean[] exact = new boolean[openings.length];
+    java.util.Arrays.stream(order).parallel().forEach(g -> {
+      long bound = bestCost.get();
+      costs[g] = this.costOf(openings[g], all, histograms, g * this.results, estimates[g], 0, bound);
+      exact[g] = costs[g] < bound;
+      bestCost.accumulateAndGet(costs[g], Math::min);
+    });
+    // only an opening searched with a bound above its cost has the best strategy of all its subsets known
+    int opening = -1;
+    for (int g = 0; g < openings.length; g += 1) {
+      if (exact[g] && (opening < 0 || costs[g] < costs[opening])) {
+        opening = g;
+      }
+    }
+    return this.buildNode(openings[opening], all);
+  }
+
+  // builds the decision tree of the best strategy for the given secrets
+  DecisionNode buildTree(int[] secrets) {
+    if (secrets.length <= 2) {
+      DecisionNode node = new DecisionNode(this.space.codeAtRank(secrets[0], new int[this.space.length]),
+          this.results);
+      if (secrets.length == 2) {
+        node.children[this.histogramIndex(secrets[0], secrets[1])] =
+            new DecisionNode(this.space.codeAtRank(secrets[1], new int[this.space.length]), this.results);
+      }
+      return node;
+    }
+    return this.buildNode((int) this.best.get(new CandidateKey(secrets))[1], secrets);
+  }
+
+  // builds the node that makes the given guess for the given secrets
+  DecisionNode buildNode(int guess, int[] secrets) {
+    DecisionNode node = new DecisionNode(this.space.codeAtRank(guess, new int[this.space.length]), this.results);
+    int[][] parts = this.partition(guess, secrets, this.histograms(new int[] {guess}, secrets), 0);
+    for (int r = 0; r < this.results; r += 1) {
+      if (r != this.solved && parts[r].length > 0) {
+        node.children[r] = this.buildTree(parts[r]);
+      }
+    }
+    return node;
+  }
+
+  // returns the histogram index of the result the given guess gives for the given secret
+  int histogramIndex(int guess, int secret) {
+    Matches result = this.engines.get().scorer.score(this.space.codeAtRank(guess, new int[this.space.length]),
+        this.space.codeAtRank(secret, new int[this.space.length]));
+    return PartitionEngine.resultIndex(this.space.length, result.exact, result.inexact);
+  }
+
+  // prints the total and average number of guesses of the best strategy and checks its decision tree,
+  // run with: java OptimalSolver <length> <colors>
+  public static void main(String[] args) {
+    CodeSpace space = new CodeSpace(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+    long start = System.nanoTime();
+    DecisionNode tree = new OptimalSolver(space).solveTree();
+    long millis = (System.nanoTime() - start) / 1000000;
+    ILoColor palette = new MtLoColor();
+    for (int color = space.colors - 1; color >= 0; color -= 1) {
+      palette = new ConsLoColor(new Color(color * 15, 255 - color * 15, 128), palette);
+    }
+    long total = tree.verify(space, palette);
+    System.out.println("opening " + java.util.Arrays.toString(tree.guess) + ", total " + total
+        + ", average " + (double) total / space.size + ", " + millis + " ms");
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.results... int
+   *  this.solved... int
+   *  this.branching... long
+   *  this.floors... long[]
+   *  this.packed... long[]
+   *  this.table... byte[][]
+   *  this.canonicalGuesses... AtomicReferenceArray<int[]>
+   *  this.best... ConcurrentHashMap<CandidateKey, long[]>
+   *  this.bounds... ConcurrentHashMap<CandidateKey, Long>
+   *  this.engines... ThreadLocal<PartitionEngine>
+   * METHODS:
+   *  this.lowerBound(long)... long
+   *  this.canonical(int[], int)... boolean
+   *  this.guessesFor(int)... int[]
+   *  this.histograms(int[], int[])... int[]
+   *  this.partition(int, int[], int[], int)... int[][]
+   *  this.solve(int[], int, long)... long
+   *  this.costOf(int, int[], int[], int, long, int, long)... long
+   *  this.parallelCostOf(int[][], long[], int, long, int, long)... long
+   *  this.solveTree()... DecisionNode
+   *  this.buildTree(int[])... DecisionNode
+   *  this.buildNode(int, int[])... DecisionNode
+   *  this.histogramIndex(int, int)... int
+   * METHODS OF FIELDS:
+   */
+}
+
+// finds a small set of guesses whose Matches, all given at once, tell every secret apart, for games
+// where every guess is submitted before any feedback comes back. Each guess's results are kept as
+// one bitset of secrets per result, so refining the classes of secrets that look alike is a few
+// bitset intersections, and the search is a local search run from several random starts in parallel
+class StaticSolver {
+  CodeSpace space;
+  int[] allowed;
+  int results;
+  int restarts;
+  int iterations;
+  java.util.concurrent.ConcurrentHashMap<Integer, java.util.BitSet[]> splits;
+  ThreadLocal<PartitionEngine> engines;
+
+  // the constructor
+  StaticSolver(CodeSpace space, int restarts, int iterations) {
+    this(space, true, restarts, iterations);
+  }
+
+  // the constructor, where without duplicates both the secrets and the guesses are only the codes
+  // of distinct colors
+  StaticSolver(CodeSpace space, boolean duplicatesAllowed, int restarts, int iterations) {
+    if (space.size > Solver.MAX_GUESS_SET) {
+      throw new IllegalArgumentException("code space is too large to search statically!");
+    }
+    this.space = space;
+    int[] kept = new int[(int) space.size];
+    int count = 0;
+    for (int rank = 0; rank < space.size; rank += 1) {
+      if (duplicatesAllowed || !space.hasDuplicates(space.packedAtRank(rank))) {
+        kept[count] = rank;
+        count += 1;
+      }
+    }
+    if (count == 0) {
+      throw new IllegalArgumentException("sequence of colors must not be greater than the amount of possible colors!");
+    }
+    this.allowed = java.util.Arrays.copyOf(kept, count);
+    this.results = PartitionEngine.resultCount(space.length);
+    this.restarts = restarts;
+    this.iterations = iterations;
+    this.splits = new java.util.concurrent.ConcurrentHashMap<Integer, java.util.BitSet[]>();
+    this.engines = ThreadLocal.withInitial(() -> new PartitionEngine(space));
+  }
+
+  // returns, for each result, the set of secrets giving that result for the guess with the given rank
+  java.util.BitSet[] splitOf(int guess) {
+    return this.splits.computeIfAbsent(guess, rank -> {
+      PartitionEngine engine = this.engines.get();
+      java.util.BitSet[] split = new java.util.BitSet[this.results];
+      for (int r = 0; r < this.results; r += 1) {
+        split[r] = new java.util.BitSet((int) this.space.size);
+      }
+      int[] code = this.space.codeAtRank(rank, new int[this.space.length]);
+      for (long from = 0; from < this.space.size;) {
+        int loaded = engine.scorer.loadRanks(from, this.space.size - from);
+        engine.scorer.scoreBlock(code, loaded, engine.exact, engine.inexact);
+        for (int i = 0; i < loaded; i += 1) {
+          split[PartitionEngine.resultIndex(this.space.length, engine.exact[i], engine.inexact[i])]
+              .set((int) from + i);
+        }
+        from += loaded;
+      }
+      return split;
+    });
+  }
+
+  // returns how many secrets share all their Matches for the given guesses with some other secret
+  public int unresolved(int[] guesses) {
+    java.util.List<java.util.BitSet> classes = new java.util.ArrayList<java.util.BitSet>();
+    java.util.BitSet all = new java.util.BitSet((int) this.space.size);
+    for (int rank : this.allowed) {
+      all.set(rank);
+    }
+    classes.add(all);
+    for (int guess : guesses) {
+      java.util.BitSet[] split = this.splitOf(guess);
+      java.util.List<java.util.BitSet> refined = new java.util.ArrayList<java.util.BitSet>();
+      for (java.util.BitSet secrets : classes) {
+        for (java.util.BitSet part : split) {
+          if (secrets.intersects(part)) {
+            java.util.BitSet both = (java.util.BitSet) secrets.clone();
+            both.and(part);
+            // a secret alone in its class is told apart already, so it is dropped
+            if (both.cardinality() > 1) {
+              refined.add(both);
+            }
+          }
+        }
+      }
+      classes = refined;
+    }
+    int unresolved = 0;
+    for (java.util.BitSet secrets : classes) {
+      unresolved += secrets.cardinality();
+    }
+    return unresolved;
+  }
+
+  // returns the fewest guesses that could tell every secret apart: each guess has at most
+  // (length + 1) * (length + 2) / 2 - 1 possible results
+  public int fewestGuesses() {
+    int possible = (this.space.length + 1) * (this.space.length + 2) / 2 - 1;
+    int guesses = 0;
+    for (double told = 1; told < this.allowed.length; told *= possible) {
+      guesses += 1;
+    }
+    return guesses;
+  }
+
+  // looks for the given number of guesses telling every secret apart by changing one guess at a time
+  // and keeping the change when it leaves no more secrets unresolved, returns null if none is found
+  int[] search(int count, long seed) {
+    Random rand = new Random(seed);
+    int[] guesses = new int[count];
+    for (int i = 0; i < count; i += 1) {
+      guesses[i] = this.allowed[rand.nextInt(this.allowed.length)];
+    }
+    int current = this.unresolved(guesses);
+    for (int step = 0; step < this.iterations && current > 0; step += 1) {
+      int slot = rand.nextInt(count);
+      int old = guesses[slot];
+      guesses[slot] = this.allowed[rand.nextInt(this.allowed.length)];
+      int changed = this.unresolved(guesses);
+      if (changed <= current) {
+        current = changed;
+      }
+      else {
+        guesses[slot] = old;
+      }
+    }
+    return current == 0 ? guesses : null;
+  }
+
+  // returns the smallest set of guesses found that tells every secret apart, trying more guesses
+  // until the parallel searches find one
+  public int[][] solve(long seed) {
+    for (int count = this.fewestGuesses(); count <= this.allowed.length; count += 1) {
+      int size = count;
+      int[] found = java.util.stream.LongStream.range(0, this.restarts).parallel()
+          .mapToObj(restart -> this.search(size, seed * 31 + size * 1009 + restart))
+          .filter(guesses -> guesses != null)
+          .findFirst().orElse(null);
+      if (found != null) {
+        int[][] codes = new int[count][];
+        for (int i = 0; i < count; i += 1) {
+          codes[i] = this.space.codeAtRank(found[i], new int[this.space.length]);
+        }
+        return codes;
+      }
+    }
+    throw new IllegalStateException("no set of guesses tells every secret apart!");
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.allowed... int[]
+   *  this.results... int
+   *  this.restarts... int
+   *  this.iterations... int
+   *  this.splits... ConcurrentHashMap<Integer, BitSet[]>
+   *  this.engines... ThreadLocal<PartitionEngine>
+   * METHODS:
+   *  this.splitOf(int)... BitSet[]
+   *  this.unresolved(int[])... int
+   *  this.fewestGuesses()... int
+   *  this.search(int, long)... int[]
+   *  this.solve(long)... int[][]
+   * METHODS OF FIELDS:
+   */
+}
+
+// represents a game of static Mastermind: rows are locked in with enter without any feedback, and
+// only once the last row is locked in (or "s" is pressed) are all of them scored at once. If that
+// does not find the secret, the rows left are played like a normal game. Pressing "h" fills the
+// current row with a guess from a set that tells every secret apart
+class StaticMastermind extends Mastermind {
+  boolean submitted;
+  int[][] plannedGuesses;
+
+  // the kinds of submission kept in the timeline of a practice game, as the new color of the delta:
+  // a row locked in without feedback, and every row up to one scored at once
+  static final int LOCKED = 0;
+  static final int SCORED_ALL = 1;
+
+  // the planned guesses of each kind of board, which do not depend on the secret
+  static final java.util.concurrent.ConcurrentHashMap<String, int[][]> PLANS =
+      new java.util.concurrent.ConcurrentHashMap<String, int[][]>();
+
+  // the constructor
+  StaticMastermind(boolean duplicatesAllowed, int lengthOfSequence, int numberOfGuesses, ILoColor possibleColors,
+      Random random) {
+    super(duplicatesAllowed, lengthOfSequence, numberOfGuesses, possibleColors, random);
+    this.submitted = false;
+    this.plannedGuesses = StaticMastermind.plan(duplicatesAllowed, lengthOfSequence, possibleColors.length());
+  }
+
+  // returns the guesses telling every secret of the given kind of board apart, or null when its code
+  // space is too large to search
+  static int[][] plan(boolean duplicatesAllowed, int length, int colors) {
+    if (Math.pow(colors, length) > Solver.MAX_GUESS_SET) {
+      return null;
+    }
+    CodeSpace space = new CodeSpace(length, colors);
+    return PLANS.computeIfAbsent(duplicatesAllowed + " " + length + " " + colors,
+        key -> new StaticSolver(space, duplicatesAllowed, 8, 2000).solve(length));
+  }
+
+  // applies the given key to the game, only the locking in and scoring of rows differ from Mastermind
+  public World applyKey(String key) {
+    if (this.submitted) {
+      return super.applyKey(key);
+    }
+    if (key.equals("enter") && this.listOfGuesses.isRowFull(this.currentNumberOfGuesses)) {
+      if (this.currentNumberOfGuesses == this.numberOfGuesses) {
+        return this.submitAll(this.currentNumberOfGuesses);
+      }
+      this.recordEdit(this.currentNumberOfGuesses, EditTimeline.SUBMIT, EditTimeline.BLANK, LOCKED);
+      this.currentNumberOfGuesses += 1;
+      this.startRowHistory();
+      return this;
+    }
+    if (key.equals("s")) {
+      if (this.listOfGuesses.isRowFull(this.currentNumberOfGuesses)) {
+        return this.submitAll(this.currentNumberOfGuesses);
+      }
+      if (this.currentNumberOfGuesses > 1 && this.listOfGuesses.getRowAtIndex(this.currentNumberOfGuesses).whiteRow()) {
+        this.currentNumberOfGuesses -= 1;
+        return this.submitAll(this.currentNumberOfGuesses);
+      }
+      return this;
+    }
+    if (key.equals("h")) {
+      return this.placeHint();
+    }
+    return super.applyKey(key);
+  }
+
+  // scores rows 1 through the given row at once
+  World submitAll(int lastRow) {
+    this.submitted = true;
+    this.recordEdit(lastRow, EditTimeline.SUBMIT, EditTimeline.BLANK, SCORED_ALL);
+    boolean won = false;
+    for (int row = 1; row <= lastRow; row += 1) {
+      Matches result = this.scoreRow(this.listOfGuesses.getRowAtIndex(row));
+      this.exactMatchesCount = result.exact;
+      this.inexactMatchesCount = result.inexact;
+      this.listOfMatches = new ConsLoMatches(new Matches(this.exactMatchesCount, this.inexactMatchesCount),
+          this.listOfMatches);
+      GameMetrics.METRICS.submissions.increment();
+      won = won || this.exactMatchesCount == this.lengthOfSequence;
+    }
+    if (won) {
+      return this.endGame(GameState.WON);
+    }
+    if (lastRow == this.numberOfGuesses) {
+      return this.endGame(GameState.LOST);
+    }
+    this.currentNumberOfGuesses = lastRow + 1;
+    this.startRowHistory();
+    return this;
+  }
+
+  // takes back the locking in of the given row, or the scoring of every row up to it, which leaves
+  // the rows locked in but not scored
+  void undoSubmission(int row, int kind) {
+    if (kind == LOCKED) {
+      this.currentNumberOfGuesses = row;
+    }
+    else if (kind == SCORED_ALL) {
+      for (int scored = 1; scored <= row; scored += 1) {
+        this.listOfMatches = ((ConsLoMatches) this.listOfMatches).rest;
+      }
+      this.submitted = false;
+      this.currentNumberOfGuesses = row;
+      this.exactMatchesCount = 0;
+      this.inexactMatchesCount = 0;
+    }
+    else {
+      super.undoSubmission(row, kind);
+    }
+  }
+
+  // scores every row up to the given one again if that is how it was submitted, and otherwise
+  // submits it as enter would
+  World redoSubmission(int row, int kind) {
+    if (kind == SCORED_ALL) {
+      return this.submitAll(row);
+    }
+    return super.redoSubmission(row, kind);
+  }
+
+  // fills the current row with the planned guess for it
+  World placeHint() {
+    if (this.plannedGuesses == null
+        || this.currentNumberOfGuesses > this.plannedGuesses.length
+        || !this.listOfGuesses.getRowAtIndex(this.currentNumberOfGuesses).whiteRow()) {
+      return this;
+    }
+    // the pegs go through the number keys so the rule on duplicates still applies
+    for (int peg : this.plannedGuesses[this.currentNumberOfGuesses - 1]) {
+      super.applyKey(Integer.toString(peg + 1));
+    }
+    return this;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.submitted... boolean
+   *  this.plannedGuesses... int[][]
+   *  (and the fields of Mastermind)
+   * METHODS:
+   *  this.applyKey(String)... World
+   *  this.submitAll(int)... World
+   *  this.plan(boolean, int, int)... int[][]
+   *  this.undoSubmission(int, int)... void
+   *  this.redoSubmission(int, int)... World
+   *  this.placeHint()... World
+   *  (and the methods of Mastermind)
+   * METHODS OF FIELDS:
+   *  this.listOfGuesses.isRowFull(int)... boolean
+   *  this.listOfGuesses.getRowAtIndex(int)... ILoColor
+   *  this.listOfGuesses.placeGuess(int, Color)... ILoLoColor
+   */
+}
+
+// suggests guesses for boards whose code space is too large to list, by keeping a bounded reservoir
+// of codes consistent with the Matches so far and ranking guesses on that sample. Consistent codes
+// are found by repairing a random code one peg at a time toward fewer broken constraints, and the
+// reservoir is kept across moves, only dropping the codes a new Matches rules out
+class SampledSolver implements IFeedback {
+  int length;
+  int colors;
+  boolean duplicatesAllowed;
+  int capacity;
+  int guessesToTry;
+  long budgetNanos;
+  Random rand;
+  IStrategy strategy;
+  java.util.ArrayList<int[]> guesses;
+  java.util.ArrayList<Matches> results;
+  java.util.ArrayList<int[]> reservoir;
+  java.util.HashSet<String> seen;
+  long found;
+  long refound;
+  IVariantEngine rules;
+  ConstraintGenerator generator;
+
+  // how many peg changes a random code gets to become consistent before starting over
+  static final int REPAIR_STEPS = 200;
+  // how many different codes are remembered as seen for each slot of the reservoir
+  static final int SEEN_PER_SLOT = 8;
+  // how many nodes the backtracking search visits for a code once the repairs have failed
+  static final long GENERATOR_NODES = 20000;
+
+  // the constructor, for the usual rules
+  SampledSolver(int length, int colors, boolean duplicatesAllowed, int capacity, int guessesToTry,
+      long budgetMillis, Random rand) {
+    this(length, colors, duplicatesAllowed, capacity, guessesToTry, budgetMillis, rand,
+        new StandardEngine(length, colors));
+  }
+
+  // the constructor, checking codes against the Matches by the given rules. A copy of lying rules
+  // tells the truth, so codes are sampled as if every Matches was true
+  SampledSolver(int length, int colors, boolean duplicatesAllowed, int capacity, int guessesToTry,
+      long budgetMillis, Random rand, IVariantEngine rules) {
+    if (capacity <= 0 || guessesToTry <= 0) {
+      throw new IllegalArgumentException("sample sizes must be greater than 0!");
+    }
+    if (!duplicatesAllowed && colors < length) {
+      throw new IllegalArgumentException("sequence of colors must not be greater than the amount of possible colors!");
+    }
+    this.length = length;
+    this.colors = colors;
+    this.duplicatesAllowed = duplicatesAllowed;
+    this.capacity = capacity;
+    this.guessesToTry = guessesToTry;
+    this.budgetNanos = budgetMillis * 1000000;
+    this.rand = rand;
+    this.strategy = new ExpectedSizeStrategy();
+    this.guesses = new java.util.ArrayList<int[]>();
+    this.results = new java.util.ArrayList<Matches>();
+    this.reservoir = new java.util.ArrayList<int[]>();
+    this.seen = new java.util.HashSet<String>();
+    this.rules = rules.copy();
+  }
+
+  // scores the given guess against the given secret by the rules of the game
+  public Matches score(int[] guess, int[] secret) {
+    return this.rules.score(guess, secret);
+  }
+
+  // returns how far the given code is from agreeing with every Matches so far
+  public int brokenConstraints(int[] code) {
+    int broken = 0;
+    for (int i = 0; i < this.guesses.size(); i += 1) {
+      Matches result = this.score(this.guesses.get(i), code);
+      broken += Math.abs(result.exact - this.results.get(i).exact)
+          + Math.abs(result.inexact - this.results.get(i).inexact);
+    }
+    return broken;
+  }
+
+  // remembers the Matches of a guess and drops the sampled codes it rules out
+  public void addFeedback(int[] guess, int exact, int inexact) {
+    this.guesses.add(guess.clone());
+    this.results.add(new Matches(exact, inexact));
+    java.util.ArrayList<int[]> kept = new java.util.ArrayList<int[]>();
+    this.seen.clear();
+    for (int[] code : this.reservoir) {
+      Matches result = this.score(guess, code);
+      if (result.exact == exact && result.inexact == inexact) {
+        kept.add(code);
+        this.seen.add(java.util.Arrays.toString(code));
+      }
+    }
+    this.reservoir = kept;
+    this.generator = null;
+    this.found = 0;
+    this.refound = 0;
+  }
+
+  // returns a random code allowed by the rule on duplicates
+  int[] randomCode() {
+    int[] code = new int[this.length];
+    if (this.duplicatesAllowed) {
+      for (int position = 0; position < this.length; position += 1) {
+        code[position] = this.rand.nextInt(this.colors);
+      }
+      return code;
+    }
+    int[] shuffled = new int[this.colors];
+    for (int color = 0; color < this.colors; color += 1) {
+      int other = this.rand.nextInt(color + 1);
+      shuffled[color] = shuffled[other];
+      shuffled[other] = color;
+    }
+    System.arraycopy(shuffled, 0, code, 0, this.length);
+    return code;
+  }
+
+  // returns a code consistent with every Matches so far, or null if neither the repairs nor the
+  // backtracking search found one
+  public int[] sample() {
+    int[] code = this.randomCode();
+    int broken = this.brokenConstraints(code);
+    for (int step = 0; step < REPAIR_STEPS && broken > 0; step += 1) {
+      int position = this.rand.nextInt(this.length);
+      int original = code[position];
+      int bestColor = original;
+      int bestBroken = broken;
+      int ties = 0;
+      for (int color = 0; color < this.colors; color += 1) {
+        if (color == original || (!this.duplicatesAllowed && this.contains(code, color))) {
+          continue;
+        }
+        code[position] = color;
+        int changed = this.brokenConstraints(code);
+        // equally good colors are picked at random so the repair does not get stuck going back and forth
+        if (changed < bestBroken || (changed == bestBroken && this.rand.nextInt(ties + 2) == 0)) {
+          ties = changed < bestBroken ? 0 : ties + 1;
+          bestColor = color;
+          bestBroken = changed;
+        }
+      }
+      code[position] = bestColor;
+      broken = bestBroken;
+    }
+    // the backtracking search only knows the usual rules
+    if (broken == 0 || this.colors > ConstraintGenerator.MAX_COLORS
+        || !(this.rules instanceof StandardEngine || this.rules instanceof NoDuplicatesEngine)) {
+      return broken == 0 ? code : null;
+    }
+    // the repairs mostly find codes when many are consistent, and the search when few are
+    return this.constraintGenerator().generate(this.rand, GENERATOR_NODES);
+  }
+
+  // returns the backtracking search for the Matches so far, building it after new feedback
+  ConstraintGenerator constraintGenerator() {
+    if (this.generator == null) {
+      this.generator = new ConstraintGenerator(this.length, this.colors, this.duplicatesAllowed,
+          this.guesses.toArray(new int[0][]), this.results.toArray(new Matches[0]));
+    }
+    return this.generator;
+  }
+
+  // returns whether the given color is in the given code
+  boolean contains(int[] code, int color) {
+    for (int peg : code) {
+      if (peg == color) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // samples consistent codes into the reservoir until it is full or the time budget runs out,
+  // counting how many of the codes found were already in it
+  public void refill() {
+    long deadline = System.nanoTime() + this.budgetNanos;
+    // the codes remembered as seen are bounded too, so memory stays bounded however fast sampling is
+    while (System.nanoTime() < deadline && this.seen.size() < SEEN_PER_SLOT * this.capacity) {
+      int[] code = this.sample();
+      if (code == null && this.generator != null && this.generator.impossible) {
+        return;
+      }
+      if (code == null) {
+        continue;
+      }
+      this.found += 1;
+      if (!this.seen.add(java.util.Arrays.toString(code))) {
+        this.refound += 1;
+        if (this.reservoir.size() >= this.capacity || this.coverage() > 0.99) {
+          return;
+        }
+      }
+      else if (this.reservoir.size() < this.capacity) {
+        this.reservoir.add(code);
+      }
+      else {
+        // once full, a new code replaces a random one so the reservoir stays a uniform sample
+        int slot = this.rand.nextInt((int) Math.min(Integer.MAX_VALUE, this.found));
+        if (slot < this.capacity) {
+          this.reservoir.set(slot, code);
+        }
+      }
+    }
+  }
+
+  // returns the estimated share of all consistent codes the sampling has already seen, the share of
+  // sampled codes that were found before
+  public double coverage() {
+    if (this.found == 0) {
+      return 0;
+    }
+    return (double) this.refound / this.found;
+  }
+
+  // returns the estimated number of codes still consistent with every Matches so far, the codes seen
+  // over the share of them found again, or only the codes seen if none was found twice
+  public long estimatedCandidates() {
+    if (this.refound == 0) {
+      return this.seen.size();
+    }
+    return Math.max(this.seen.size(), Math.round(this.seen.size() / this.coverage()));
+  }
+
+  // returns the guess that the strategy likes best on the sample, or a random code if nothing
+  // consistent was found in time
+  public int[] nextGuess() {
+    this.refill();
+    if (this.reservoir.isEmpty()) {
+      return this.randomCode();
+    }
+    int width = this.length + 1;
+    int solved = PartitionEngine.resultIndex(this.length, this.length, 0);
+    int tried = Math.min(this.guessesToTry, this.reservoir.size());
+    int[] best = null;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (int g = 0; g < tried; g += 1) {
+      int[] guess = this.reservoir.get(g);
+      long[] histogram = new long[PartitionEngine.resultCount(this.length)];
+      for (int[] secret : this.reservoir) {
+        Matches result = this.score(guess, secret);
+        histogram[result.exact * width + result.inexact] += 1;
+      }
+      double cost = this.strategy.cost(histogram, this.reservoir.size());
+      if (cost < bestCost || (cost == bestCost && histogram[solved] > 0)) {
+        best = guess;
+        bestCost = cost;
+      }
+    }
+    return best.clone();
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.length... int
+   *  this.colors... int
+   *  this.duplicatesAllowed... boolean
+   *  this.capacity... int
+   *  this.guessesToTry... int
+   *  this.budgetNanos... long
+   *  this.rand... Random
+   *  this.strategy... IStrategy
+   *  this.guesses... ArrayList<int[]>
+   *  this.results... ArrayList<Matches>
+   *  this.reservoir... ArrayList<int[]>
+   *  this.seen... HashSet<String>
+   *  this.found... long
+   *  this.refound... long
+   *  this.rules... IVariantEngine
+   *  this.generator... ConstraintGenerator
+   * METHODS:
+   *  this.score(int[], int[])... Matches
+   *  this.brokenConstraints(int[])... int
+   *  this.addFeedback(int[], int, int)... void
+   *  this.randomCode()... int[]
+   *  this.sample()... int[]
+   *  this.constraintGenerator()... ConstraintGenerator
+   *  this.contains(int[], int)... boolean
+   *  this.refill()... void
+   *  this.coverage()... double
+   *  this.estimatedCandidates()... long
+   *  this.nextGuess()... int[]
+   * METHODS OF FIELDS:
+   *  this.strategy.cost(long[], long)... double
+   *  this.generator.generate(Random, long)... int[]
+   */
+}
+
+// generates codes consistent with a history of guesses and their Matches by backtracking over the
+// pegs. Each Matches narrows the colors a position can hold (no exact matches means no peg of that
+// guess is in its own position, no matches at all means none of its colors is used) and bounds how
+// many times a color can be used, and while pegs are placed each Matches keeps running counts of the
+// exact and total matches so far, cutting a branch as soon as one of them can no longer be met
+class ConstraintGenerator {
+  int length;
+  int colors;
+  boolean duplicatesAllowed;
+  int[][] guesses;
+  int[] exact;
+  int[] total;
+  int[][] guessCounts;
+  int[] domains;
+  int[] maxCounts;
+  int[] order;
+  boolean impossible;
+  long nodes;
+
+  // the most colors a domain bitmask holds
+  static final int MAX_COLORS = 31;
+
+  // the constructor, deriving the domains and bounds from the given guesses and their Matches
+  ConstraintGenerator(int length, int colors, boolean duplicatesAllowed, int[][] guesses, Matches[] results) {
+    if (colors > MAX_COLORS) {
+      throw new IllegalArgumentException("colors of a constraint generator must be at most 31!");
+    }
+    this.length = length;
+    this.colors = colors;
+    this.duplicatesAllowed = duplicatesAllowed;
+    this.guesses = guesses;
+    this.exact = new int[guesses.length];
+    this.total = new int[guesses.length];
+    this.guessCounts = new int[guesses.length][colors];
+    this.domains = new int[length];
+    this.maxCounts = new int[colors];
+    java.util.Arrays.fill(this.domains, (1 << colors) - 1);
+    java.util.Arrays.fill(this.maxCounts, duplicatesAllowed ? length : 1);
+    for (int k = 0; k < guesses.length; k += 1) {
+      this.exact[k] = results[k].exact;
+      this.total[k] = results[k].exact + results[k].inexact;
+      for (int peg : guesses[k]) {
+        this.guessCounts[k][peg] += 1;
+      }
+      for (int position = 0; position < length; position += 1) {
+        int peg = guesses[k][position];
+        if (this.exact[k] == 0) {
+          this.domains[position] &= ~(1 << peg);
+        }
+        if (this.exact[k] == length) {
+          this.domains[position] &= 1 << peg;
+        }
+      }
+      for (int color = 0; color < colors; color += 1) {
+        // a color used more often in the guess than the total matches can be in the secret at most
+        // that many times, otherwise it alone would match more
+        if (this.guessCounts[k][color] > this.total[k]) {
+          this.maxCounts[color] = Math.min(this.maxCounts[color], this.total[k]);
+        }
+      }
+    }
+    for (int color = 0; color < colors; color += 1) {
+      if (this.maxCounts[color] == 0) {
+        for (int position = 0; position < length; position += 1) {
+          this.domains[position] &= ~(1 << color);
+        }
+      }
+    }
+    // the positions with the fewest colors left are filled first
+    Integer[] byDomain = new Integer[length];
+    for (int position = 0; position < length; position += 1) {
+      byDomain[position] = position;
+      this.impossible = this.impossible || this.domains[position] == 0;
+    }
+    java.util.Arrays.sort(byDomain, (a, b) ->
+        Integer.compare(Integer.bitCount(this.domains[a]), Integer.bitCount(this.domains[b])));
+    this.order = new int[length];
+    for (int i = 0; i < length; i += 1) {
+      this.order[i] = byDomain[i];
+    }
+  }
+
+  // returns a consistent code, trying colors in a random order, or null if there is none or the
+  // search visits more than the given number of nodes. this.impossible tells the two apart
+  public int[] generate(Random rand, long maxNodes) {
+    if (this.impossible) {
+      return null;
+    }
+    int[] code = new int[this.length];
+    int[] secretCounts = new int[this.colors];
+    int[] exactSoFar = new int[this.guesses.length];
+    int[] totalSoFar = new int[this.guesses.length];
+    int[] exactLeft = new int[this.guesses.length];
+    for (int k = 0; k < this.guesses.length; k += 1) {
+      for (int position = 0; position < this.length; position += 1) {
+        if ((this.domains[position] & (1 << this.guesses[k][position])) != 0) {
+          exactLeft[k] += 1;
+        }
+      }
+    }
+    this.nodes = 0;
+    int[] shuffled = new int[this.colors];
+    for (int color = 0; color < this.colors; color += 1) {
+      shuffled[color] = color;
+    }
+    boolean complete = this.place(0, code, secretCounts, exactSoFar, totalSoFar, exactLeft, shuffled, rand, maxNodes);
+    if (!complete && this.nodes <= maxNodes) {
+      this.impossible = true;
+    }
+    return complete ? code : null;
+  }
+
+  // places a color at the i-th position to fill and recurs on the next, undoing every count it
+  // changed when the branch fails
+  boolean place(int i, int[] code, int[] secretCounts, int[] exactSoFar, int[] totalSoFar, int[] exactLeft,
+      int[] shuffled, Random rand, long maxNodes) {
+    if (i == this.length) {
+      return true;
+    }
+    this.nodes += 1;
+    if (this.nodes > maxNodes) {
+      return false;
+    }
+    int position = this.order[i];
+    int left = this.length - i - 1;
+    int[] colorOrder = shuffled.clone();
+    for (int c = colorOrder.length - 1; c > 0; c -= 1) {
+      int other = rand.nextInt(c + 1);
+      int swap = colorOrder[c];
+      colorOrder[c] = colorOrder[other];
+      colorOrder[other] = swap;
+    }
+    for (int color : colorOrder) {
+      if ((this.domains[position] & (1 << color)) == 0 || secretCounts[color] >= this.maxCounts[color]) {
+        continue;
+      }
+      boolean possible = true;
+      for (int k = 0; k < this.guesses.length; k += 1) {
+        int peg = this.guesses[k][position];
+        exactSoFar[k] += peg == color ? 1 : 0;
+        totalSoFar[k] += secretCounts[color] < this.guessCounts[k][color] ? 1 : 0;
+        exactLeft[k] -= (this.domains[position] & (1 << peg)) != 0 ? 1 : 0;
+        // each peg still to place adds at most one match, exact or total
+        possible = possible
+            && exactSoFar[k] <= this.exact[k] && exactSoFar[k] + exactLeft[k] >= this.exact[k]
+            && totalSoFar[k] <= this.total[k] && totalSoFar[k] + left >= this.total[k];
+      }
+      secretCounts[color] += 1;
+      code[position] = color;
+      if (possible
+          && this.place(i + 1, code, secretCounts, exactSoFar, totalSoFar, exactLeft, shuffled, rand, maxNodes)) {
+        return true;
+      }
+      secretCounts[color] -= 1;
+      for (int k = 0; k < this.guesses.length; k += 1) {
+        int peg = this.guesses[k][position];
+        exactSoFar[k] -= peg == color ? 1 : 0;
+        totalSoFar[k] -= secretCounts[color] < this.guessCounts[k][color] ? 1 : 0;
+        exactLeft[k] += (this.domains[position] & (1 << peg)) != 0 ? 1 : 0;
+      }
+      if (this.nodes > maxNodes) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.length... int
+   *  this.colors... int
+   *  this.duplicatesAllowed... boolean
+   *  this.guesses... int[][]
+   *  this.exact... int[]
+   *  this.total... int[]
+   *  this.guessCounts... int[][]
+   *  this.domains... int[]
+   *  this.maxCounts... int[]
+   *  this.order... int[]
+   *  this.impossible... boolean
+   *  this.nodes... long
+   * METHODS:
+   *  this.generate(Random, long)... int[]
+   *  this.place(int, int[], int[], int[], int[], int[], int[], Random, long)... boolean
+   * METHODS OF FIELDS:
+   */
+}
+
+// a solver for long codes that evolves a population of packed codes towards agreeing with every
+// Matches so far. A code's fitness is how far its Matches against the earlier guesses are from the
+// real ones, computed for the whole population in parallel; children come from crossing two codes
+// nibble by nibble and mutating single pegs, and the best codes of a generation are always kept.
+// Each move evolves for a fixed time and guesses the consistent code that best splits the others found
+class GeneticSolver implements IFeedback {
+  CodeSpace space;
+  boolean duplicatesAllowed;
+  int populationSize;
+  long budgetNanos;
+  Random rand;
+  IStrategy strategy;
+  java.util.ArrayList<Long> guesses;
+  java.util.ArrayList<Matches> results;
+  long[] population;
+  int[] fitness;
+  int consistentFound;
+
+  // the share of the population kept unchanged into the next generation
+  static final double ELITE_SHARE = 0.1;
+  // how many codes are drawn to pick each parent
+  static final int TOURNAMENT = 3;
+  // the most consistent codes a move compares as its guess
+  static final int ELIGIBLE = 60;
+  // how many generations without a fitter code before the population starts over
+  static final int STALE_GENERATIONS = 30;
+  // the shortest codes whose hints are evolved rather than sampled
+  static final int MIN_LENGTH = 10;
+
+  // the constructor
+  GeneticSolver(CodeSpace space, boolean duplicatesAllowed, int populationSize, long budgetMillis, Random rand) {
+    if (populationSize <= 1) {
+      throw new IllegalArgumentException("population size must be greater than 1!");
+    }
+    if (!duplicatesAllowed && space.colors < space.length) {
+      throw new IllegalArgumentException("sequence of colors must not be greater than the amount of possible colors!");
+    }
+    this.space = space;
+    this.duplicatesAllowed = duplicatesAllowed;
+    this.populationSize = populationSize;
+    this.budgetNanos = budgetMillis * 1000000;
+    this.rand = rand;
+    this.strategy = new ExpectedSizeStrategy();
+    this.guesses = new java.util.ArrayList<Long>();
+    this.results = new java.util.ArrayList<Matches>();
+    this.population = new long[populationSize];
+    for (int i = 0; i < populationSize; i += 1) {
+      this.population[i] = this.randomCode();
+    }
+    this.fitness = new int[populationSize];
+  }
+
+  // returns how far the Matches of the packed code against the earlier guesses are from the real
+  // ones, 0 if it could still be the secret
+  public int fitnessOf(long code) {
+    int distance = 0;
+    for (int i = 0; i < this.guesses.size(); i += 1) {
+      long guess = this.guesses.get(i);
+      Matches result = this.results.get(i);
+      int exact = this.space.exactMatches(guess, code);
+      int total = this.space.totalMatches(guess, code);
+      distance += Math.abs(exact - result.exact) + Math.abs(total - result.exact - result.inexact);
+    }
+    return distance;
+  }
+
+  // remembers the Matches of a guess
+  public void addFeedback(int[] guess, int exact, int inexact) {
+    this.guesses.add(this.space.pack(guess));
+    this.results.add(new Matches(exact, inexact));
+  }
+
+  // returns a random packed code allowed by the rule on duplicates
+  long randomCode() {
+    long code = 0;
+    for (int position = 0; position < this.space.length; position += 1) {
+      code |= ((long) this.rand.nextInt(this.space.colors)) << (4 * position);
+    }
+    return this.withoutDuplicates(code);
+  }
+
+  // returns the packed code with every repeated peg replaced by a random unused color when
+  // duplicates are not allowed, or the code itself when they are
+  long withoutDuplicates(long code) {
+    if (this.duplicatesAllowed) {
+      return code;
+    }
+    int used = 0;
+    int repeated = 0;
+    for (int position = 0; position < this.space.length; position += 1) {
+      int bit = 1 << this.space.pegAt(code, position);
+      repeated |= (used & bit) != 0 ? 1 << position : 0;
+      used |= bit;
+    }
+    for (int position = 0; position < this.space.length; position += 1) {
+      if ((repeated & (1 << position)) != 0) {
+        int color = this.rand.nextInt(this.space.colors);
+        while ((used & (1 << color)) != 0) {
+          color = (color + 1) % this.space.colors;
+        }
+        used |= 1 << color;
+        code = (code & ~(0xFL << (4 * position))) | (((long) color) << (4 * position));
+      }
+    }
+    return code;
+  }
+
+  // returns a child taking each peg from one of the two packed parents at random
+  long crossover(long a, long b) {
+    long fromA = this.rand.nextLong();
+    fromA = (fromA & 0x1111111111111111L) * 0xF;
+    return this.withoutDuplicates((a & fromA) | (b & ~fromA));
+  }
+
+  // returns the packed code with a random peg changed to a random color, or two pegs swapped
+  long mutate(long code) {
+    int position = this.rand.nextInt(this.space.length);
+    if (this.rand.nextBoolean()) {
+      int other = this.rand.nextInt(this.space.length);
+      long first = (code >>> (4 * position)) & 0xF;
+      long second = (code >>> (4 * other)) & 0xF;
+      code &= ~((0xFL << (4 * position)) | (0xFL << (4 * other)));
+      return code | (second << (4 * position)) | (first << (4 * other));
+    }
+    code &= ~(0xFL << (4 * position));
+    return this.withoutDuplicates(code | (((long) this.rand.nextInt(this.space.colors)) << (4 * position)));
+  }
+
+  // returns the packed code with a random peg recolored to the color that makes it fittest, which
+  // lets the elite climb the last few steps towards consistent codes that crossing rarely finds
+  long improve(long code, int fitness) {
+    if (fitness == 0) {
+      return code;
+    }
+    int position = this.rand.nextInt(this.space.length);
+    long best = code;
+    long cleared = code & ~(0xFL << (4 * position));
+    for (int color = 0; color < this.space.colors; color += 1) {
+      long changed = cleared | (((long) color) << (4 * position));
+      if (this.duplicatesAllowed || !this.space.hasDuplicates(changed)) {
+        int changedFitness = this.fitnessOf(changed);
+        if (changedFitness < fitness) {
+          best = changed;
+          fitness = changedFitness;
+        }
+      }
+    }
+    return best;
+  }
+
+  // returns the code of the fittest of a few codes drawn at random
+  long tournament() {
+    int best = this.rand.nextInt(this.populationSize);
+    for (int draw = 1; draw < TOURNAMENT; draw += 1) {
+      int other = this.rand.nextInt(this.populationSize);
+      if (this.fitness[other] < this.fitness[best]) {
+        best = other;
+      }
+    }
+    return this.population[best];
+  }
+
+  // replaces every code but the fittest tenth of the population with random ones
+  void restart() {
+    Integer[] byFitness = new Integer[this.populationSize];
+    for (int i = 0; i < this.populationSize; i += 1) {
+      byFitness[i] = i;
+    }
+    java.util.Arrays.sort(byFitness, (a, b) -> Integer.compare(this.fitness[a], this.fitness[b]));
+    int elite = Math.max(1, (int) (this.populationSize * ELITE_SHARE));
+    for (int i = elite; i < this.populationSize; i += 1) {
+      this.population[byFitness[i]] = this.randomCode();
+    }
+  }
+
+  // computes the fitness of every code in the population, in parallel
+  void evaluate() {
+    java.util.stream.IntStream.range(0, this.populationSize).parallel()
+        .forEach(i -> this.fitness[i] = this.fitnessOf(this.population[i]));
+  }
+
+  // replaces the population with the next generation, keeping the fittest codes and breeding the
+  // rest, and adds the consistent codes of the old one to the given set
+  void generation(java.util.Set<Long> consistent) {
+    Integer[] byFitness = new Integer[this.populationSize];
+    for (int i = 0; i < this.populationSize; i += 1) {
+      byFitness[i] = i;
+      if (this.fitness[i] == 0 && consistent.size() < ELIGIBLE) {
+        consistent.add(this.population[i]);
+      }
+    }
+    java.util.Arrays.sort(byFitness, (a, b) -> Integer.compare(this.fitness[a], this.fitness[b]));
+    int elite = Math.max(1, (int) (this.populationSize * ELITE_SHARE));
+    long[] next = new long[this.populationSize];
+    for (int i = 0; i < elite; i += 1) {
+      next[i] = this.improve(this.population[byFitness[i]], this.fitness[byFitness[i]]);
+    }
+    java.util.Set<Long> bred = new java.util.HashSet<Long>();
+    for (int i = elite; i < this.populationSize; i += 1) {
+      long child = this.mutate(this.crossover(this.tournament(), this.tournament()));
+      // a consistent code bred again is replaced by a fresh one, so the population keeps searching
+      if (consistent.contains(child) || !bred.add(child)) {
+        child = this.randomCode();
+      }
+      next[i] = child;
+    }
+    this.population = next;
+  }
+
+  // returns the guess for the next move: the consistent code found in the time budget that the
+  // strategy likes best against the others found, or the fittest code if none is consistent
+  public int[] nextGuess() {
+    long deadline = System.nanoTime() + this.budgetNanos;
+    java.util.Set<Long> consistent = new java.util.LinkedHashSet<Long>();
+    this.evaluate();
+    int bestFitness = Integer.MAX_VALUE;
+    int stale = 0;
+    while (System.nanoTime() < deadline && consistent.size() < ELIGIBLE) {
+      this.generation(consistent);
+      this.evaluate();
+      int fittest = java.util.Arrays.stream(this.fitness).min().getAsInt();
+      stale = fittest < bestFitness ? 0 : stale + 1;
+      bestFitness = Math.min(bestFitness, fittest);
+      // a population stuck short of consistent codes starts over, keeping only its elite
+      if (stale > STALE_GENERATIONS && fittest > 0) {
+        this.restart();
+        this.evaluate();
+        stale = 0;
+      }
+    }
+    this.consistentFound = consistent.size();
+    if (consistent.isEmpty()) {
+      int best = 0;
+      for (int i = 1; i < this.populationSize; i += 1) {
+        best = this.fitness[i] < this.fitness[best] ? i : best;
+      }
+      return this.space.unpack(this.population[best], new int[this.space.length]);
+    }
+    int width = this.space.length + 1;
+    long best = 0;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (long guess : consistent) {
+      long[] histogram = new long[PartitionEngine.resultCount(this.space.length)];
+      for (long secret : consistent) {
+        int exact = this.space.exactMatches(guess, secret);
+        histogram[exact * width + this.space.totalMatches(guess, secret) - exact] += 1;
+      }
+      double cost = this.strategy.cost(histogram, consistent.size());
+      if (cost < bestCost) {
+        best = guess;
+        bestCost = cost;
+      }
+    }
+    return this.space.unpack(best, new int[this.space.length]);
+  }
+
+  // plays random games of the given size against the genetic and the sampled solvers and prints
+  // the average number of guesses each took
+  public static void main(String[] args) {
+    int length = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+    int colors = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+    int games = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    long budget = args.length > 3 ? Long.parseLong(args[3]) : 200;
+    CodeSpace space = new CodeSpace(length, colors);
+    Random rand = new Random(1);
+    long geneticGuesses = 0;
+    long sampledGuesses = 0;
+    for (int game = 0; game < games; game += 1) {
+      int[] secret = space.codeAtRank((long) (rand.nextDouble() * space.size), new int[length]);
+      GeneticSolver genetic = new GeneticSolver(space, true, 400, budget, new Random(game));
+      SampledSolver sampled = new SampledSolver(length, colors, true, 500, 100, budget, new Random(game));
+      geneticGuesses += GeneticSolver.play(secret, genetic::nextGuess, genetic::addFeedback, sampled);
+      sampledGuesses += GeneticSolver.play(secret, sampled::nextGuess, sampled::addFeedback, sampled);
+    }
+    System.out.println(length + "x" + colors + " genetic: " + (double) geneticGuesses / games
+        + " guesses, sampled: " + (double) sampledGuesses / games + " guesses");
+  }
+
+  // plays one game against the given secret with the given moves, scoring with the sampled solver,
+  // and returns the number of guesses it took
+  static int play(int[] secret, java.util.function.Supplier<int[]> next,
+      IFeedback feedback, SampledSolver scorer) {
+    for (int guesses = 1;; guesses += 1) {
+      int[] guess = next.get();
+      Matches result = scorer.score(guess, secret);
+      if (result.exact == secret.length) {
+        return guesses;
+      }
+      feedback.addFeedback(guess, result.exact, result.inexact);
+    }
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.duplicatesAllowed... boolean
+   *  this.populationSize... int
+   *  this.budgetNanos... long
+   *  this.rand... Random
+   *  this.strategy... IStrategy
+   *  this.guesses... ArrayList<Long>
+   *  this.results... ArrayList<Matches>
+   *  this.population... long[]
+   *  this.fitness... int[]
+   *  this.consistentFound... int
+   * METHODS:
+   *  this.fitnessOf(long)... int
+   *  this.addFeedback(int[], int, int)... void
+   *  this.randomCode()... long
+   *  this.withoutDuplicates(long)... long
+   *  this.crossover(long, long)... long
+   *  this.mutate(long)... long
+   *  this.improve(long, int)... long
+   *  this.tournament()... long
+   *  this.restart()... void
+   *  this.evaluate()... void
+   *  this.generation(Set<Long>)... void
+   *  this.nextGuess()... int[]
+   * METHODS OF FIELDS:
+   *  this.space.pack(int[])... long
+   *  this.space.unpack(long, int[])... int[]
+   *  this.space.pegAt(long, int)... int
+   *  this.space.hasDuplicates(long)... boolean
+   *  this.space.exactMatches(long, long)... int
+   *  this.space.totalMatches(long, long)... int
+   *  this.strategy.cost(long[], long)... double
+   */
+}
+
+// something that takes the Matches of a guess
+interface IFeedback {
+  // remembers the Matches of a guess
+  void addFeedback(int[] guess, int exact, int inexact);
+}
+
+// a variant of the rules, scoring guesses given as indices into the possible colors and listing
+// the codes the secret can be
+interface IVariantEngine {
+  // scores the given guess against the given secret
+  Matches score(int[] guess, int[] secret);
+
+  // returns the number of codes the secret can be
+  long size();
+
+  // returns every code the secret can be, packed into the given space
+  long[] allCodes(CodeSpace space);
+
+  // returns the same rules with scratch space of their own, for scoring on another thread
+  IVariantEngine copy();
+
+  // returns the number of pegs in a code
+  int length();
+
+  // returns whether some guess and secret get the given Matches under these rules
+  boolean canScore(int exact, int inexact);
+
+  // returns the most Matches of a game these rules may get wrong
+  int lies();
+}
+
+// the usual rules, where a color can be used any number of times
+class StandardEngine implements IVariantEngine {
+  int length;
+  int colors;
+  int[] guessCounts;
+  int[] secretCounts;
+
+  // the constructor
+  StandardEngine(int length, int colors) {
+    this.length = length;
+    this.colors = colors;
+    this.guessCounts = new int[colors];
+    this.secretCounts = new int[colors];
+  }
+
+  // scores the given guess against the given secret, counting the pegs of each color
+  public Matches score(int[] guess, int[] secret) {
+    int exact = this.exactMatches(guess, secret);
+    return new Matches(exact, this.totalMatches(guess, secret) - exact);
+  }
+
+  // returns the number of pegs with the same color in the same position
+  public int exactMatches(int[] guess, int[] secret) {
+    int exact = 0;
+    for (int position = 0; position < this.length; position += 1) {
+      exact += guess[position] == secret[position] ? 1 : 0;
+    }
+    return exact;
+  }
+
+  // returns the number of pegs with the same color in any position
+  public int totalMatches(int[] guess, int[] secret) {
+    this.countColors(guess, this.guessCounts);
+    this.countColors(secret, this.secretCounts);
+    return this.sharedColors(this.guessCounts, this.secretCounts);
+  }
+
+  // fills the given array with the number of pegs of each color in the given code
+  public void countColors(int[] code, int[] counts) {
+    java.util.Arrays.fill(counts, 0);
+    for (int position = 0; position < this.length; position += 1) {
+      counts[code[position]] += 1;
+    }
+  }
+
+  // returns the number of pegs two codes with the given color counts share in any position
+  public int sharedColors(int[] guessCounts, int[] secretCounts) {
+    int total = 0;
+    for (int color = 0; color < this.colors; color += 1) {
+      total += Math.min(guessCounts[color], secretCounts[color]);
+    }
+    return total;
+  }
+
+  // returns the number of codes, or Long.MAX_VALUE if there are more than a long can count
+  public long size() {
+    long count = 1;
+    for (int position = 0; position < this.length; position += 1) {
+      if (count > Long.MAX_VALUE / this.colors) {
+        return Long.MAX_VALUE;
+      }
+      count *= this.colors;
+    }
+    return count;
+  }
+
+  // returns every code in rank order
+  public long[] allCodes(CodeSpace space) {
+    long[] codes = new long[Math.toIntExact(space.size)];
+    for (int rank = 0; rank < codes.length; rank += 1) {
+      codes[rank] = space.packedAtRank(rank);
+    }
+    return codes;
+  }
+
+  // returns the same rules with scratch space of their own
+  public IVariantEngine copy() {
+    return new StandardEngine(this.length, this.colors);
+  }
+
+  // returns the number of pegs in a code
+  public int length() {
+    return this.length;
+  }
+
+  // returns whether some guess and secret get the given Matches: all pegs but one in place with the
+  // last one elsewhere cannot happen, and with one color every peg is in place
+  public boolean canScore(int exact, int inexact) {
+    return exact >= 0 && inexact >= 0 && exact + inexact <= this.length
+        && !(exact == this.length - 1 && inexact == 1)
+        && (this.colors > 1 || exact == this.length);
+  }
+
+  // returns 0, since the usual rules never lie
+  public int lies() {
+    return 0;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.length... int
+   *  this.colors... int
+   *  this.guessCounts... int[]
+   *  this.secretCounts... int[]
+   * METHODS:
+   *  this.score(int[], int[])... Matches
+   *  this.exactMatches(int[], int[])... int
+   *  this.totalMatches(int[], int[])... int
+   *  this.countColors(int[], int[])... void
+   *  this.sharedColors(int[], int[])... int
+   *  this.size()... long
+   *  this.allCodes(CodeSpace)... long[]
+   *  this.copy()... IVariantEngine
+   *  this.length()... int
+   *  this.canScore(int, int)... boolean
+   *  this.lies()... int
+   * METHODS OF FIELDS:
+   *  space.packedAtRank(long)... long
+   */
+}
+
+// the rules without duplicates, as in Bulls and Cows, where every code is an arrangement of distinct
+// colors. Since no color repeats, the total matches are the colors both codes use, the bits set in
+// both of their color masks, so scoring needs no counting. Codes are ranked as arrangements, the
+// i-th peg being the i-th digit among the colors not used before it, so only the codes without
+// duplicates are ever listed
+class NoDuplicatesEngine implements IVariantEngine {
+  int length;
+  int colors;
+  long[] places;
+
+  // the most colors a color mask holds
+  static final int MAX_COLORS = 63;
+
+  // the constructor
+  NoDuplicatesEngine(int length, int colors) {
+    if (colors < length) {
+      throw new IllegalArgumentException("sequence of colors must not be greater than the amount of possible colors!");
+    }
+    if (colors > MAX_COLORS) {
+      throw new IllegalArgumentException("colors without duplicates must be at most 63!");
+    }
+    this.length = length;
+    this.colors = colors;
+    // the i-th place is worth the arrangements of the pegs after it
+    this.places = new long[length];
+    long count = 1;
+    for (int position = length - 1; position >= 0; position -= 1) {
+      this.places[position] = count;
+      int choices = colors - position;
+      count = count > Long.MAX_VALUE / choices ? Long.MAX_VALUE : count * choices;
+    }
+  }
+
+  // returns the mask of the colors in the given code
+  public long colorMask(int[] code) {
+    long mask = 0;
+    for (int peg : code) {
+      mask |= 1L << peg;
+    }
+    return mask;
+  }
+
+  // scores the given guess against the given secret
+  public Matches score(int[] guess, int[] secret) {
+    int exact = 0;
+    for (int position = 0; position < this.length; position += 1) {
+      exact += guess[position] == secret[position] ? 1 : 0;
+    }
+    int total = Long.bitCount(this.colorMask(guess) & this.colorMask(secret));
+    return new Matches(exact, total - exact);
+  }
+
+  // returns the number of arrangements, or Long.MAX_VALUE if there are more than a long can count
+  public long size() {
+    return this.places[0] > Long.MAX_VALUE / this.colors ? Long.MAX_VALUE : this.places[0] * this.colors;
+  }
+
+  // returns the rank of the given code among the arrangements
+  public long rankOf(int[] code) {
+    long rank = 0;
+    long used = 0;
+    for (int position = 0; position < this.length; position += 1) {
+      int digit = code[position] - Long.bitCount(used & ((1L << code[position]) - 1));
+      rank += digit * this.places[position];
+      used |= 1L << code[position];
+    }
+    return rank;
+  }
+
+  // fills the given array with the code of the given rank and returns it
+  public int[] codeAtRank(long rank, int[] code) {
+    long used = 0;
+    for (int position = 0; position < this.length; position += 1) {
+      int digit = (int) (rank / this.places[position]);
+      rank %= this.places[position];
+      // the digit-th color not used yet
+      int color = 0;
+      while ((used & (1L << color)) != 0 || digit > 0) {
+        digit -= (used & (1L << color)) != 0 ? 0 : 1;
+        color += 1;
+      }
+      code[position] = color;
+      used |= 1L << color;
+    }
+    return code;
+  }
+
+  // returns every arrangement in rank order
+  public long[] allCodes(CodeSpace space) {
+    long[] codes = new long[Math.toIntExact(this.size())];
+    int[] code = new int[this.length];
+    for (int rank = 0; rank < codes.length; rank += 1) {
+      codes[rank] = space.pack(this.codeAtRank(rank, code));
+    }
+    return codes;
+  }
+
+  // returns the same rules, which keep no scratch space
+  public IVariantEngine copy() {
+    return this;
+  }
+
+  // returns the number of pegs in a code
+  public int length() {
+    return this.length;
+  }
+
+  // returns whether some guess and secret get the given Matches: two arrangements of distinct colors
+  // share at least the colors they cannot both leave out, so fewer than 2 * length - colors total
+  // matches cannot happen, and neither can all pegs but one in place with the last one elsewhere
+  public boolean canScore(int exact, int inexact) {
+    int total = exact + inexact;
+    return exact >= 0 && inexact >= 0 && total <= this.length && total >= 2 * this.length - this.colors
+        && !(exact == this.length - 1 && inexact == 1);
+  }
+
+  // returns 0, since these rules never lie
+  public int lies() {
+    return 0;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.length... int
+   *  this.colors... int
+   *  this.places... long[]
+   * METHODS:
+   *  this.colorMask(int[])... long
+   *  this.score(int[], int[])... Matches
+   *  this.size()... long
+   *  this.rankOf(int[])... long
+   *  this.codeAtRank(long, int[])... int[]
+   *  this.allCodes(CodeSpace)... long[]
+   *  this.copy()... IVariantEngine
+   *  this.length()... int
+   *  this.canScore(int, int)... boolean
+   *  this.lies()... int
+   * METHODS OF FIELDS:
+   *  space.pack(int[])... long
+   */
+}
+
+// scores one guess against several secrets at once. The secrets are turned into color indices and
+// color counts once, so a submission only counts the pegs of its guess once and then compares it
+// with every board in the same pass
+class MultiBoardScorer {
+  int length;
+  int colors;
+  int[][] secrets;
+  int[][] secretCounts;
+  int[] guessCounts;
+  StandardEngine engine;
+
+  // the constructor
+  MultiBoardScorer(int[][] secrets, int colors) {
+    this.length = secrets[0].length;
+    this.colors = colors;
+    this.secrets = secrets;
+    this.engine = new StandardEngine(this.length, colors);
+    this.secretCounts = new int[secrets.length][colors];
+    for (int board = 0; board < secrets.length; board += 1) {
+      this.engine.countColors(secrets[board], this.secretCounts[board]);
+    }
+    this.guessCounts = new int[colors];
+  }
+
+  // returns the Matches of the given guess against every secret, in board order
+  public Matches[] scoreAll(int[] guess) {
+    // the guess is counted once for every board, as the secrets were in the constructor
+    this.engine.countColors(guess, this.guessCounts);
+    Matches[] results = new Matches[this.secrets.length];
+    for (int board = 0; board < this.secrets.length; board += 1) {
+      int exact = this.engine.exactMatches(guess, this.secrets[board]);
+      int total = this.engine.sharedColors(this.guessCounts, this.secretCounts[board]);
+      results[board] = new Matches(exact, total - exact);
+    }
+    return results;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.length... int
+   *  this.colors... int
+   *  this.secrets... int[][]
+   *  this.secretCounts... int[][]
+   *  this.guessCounts... int[]
+   *  this.engine... StandardEngine
+   * METHODS:
+   *  this.scoreAll(int[])... Matches[]
+   * METHODS OF FIELDS:
+   *  this.engine.countColors(int[], int[])... void
+   *  this.engine.exactMatches(int[], int[])... int
+   *  this.engine.sharedColors(int[], int[])... int
+   */
+}
+
+// represents a game of Mastermind played on several boards at once: every row is a guess at all of
+// the secrets, and each board keeps its own column of Matches. The game is won once every secret
+// has been guessed exactly. The image of a board's column is kept between frames and only drawn
+// again when a row adds to it
+class MultiMastermind extends Mastermind {
+  int boards;
+  ILoColor[] secrets;
+  ILoMatches[] boardMatches;
+  boolean[] solved;
+  MultiBoardScorer scorer;
+  WorldImage[] columns;
+
+  // the constructor, the first secret being the correct sequence of the game
+  MultiMastermind(boolean duplicatesAllowed, int lengthOfSequence, int numberOfGuesses, ILoColor possibleColors,
+      Random random, int boards) {
+    super(duplicatesAllowed, lengthOfSequence, numberOfGuesses, possibleColors, random);
+    if (boards <= 0) {
+      throw new IllegalArgumentException("number of boards must be greater than 0!");
+    }
+    this.boards = boards;
+    this.secrets = new ILoColor[boards];
+    this.boardMatches = new ILoMatches[boards];
+    this.solved = new boolean[boards];
+    this.columns = new WorldImage[boards];
+    int[][] secretPegs = new int[boards][];
+    for (int board = 0; board < boards; board += 1) {
+      this.secrets[board] = board == 0 ? this.correctSequence
+          : possibleColors.generateRandomSequence(this.rand, duplicatesAllowed, lengthOfSequence);
+      this.boardMatches[board] = new MtLoMatches();
+      secretPegs[board] = this.secrets[board].toIndices(possibleColors);
+    }
+    this.scorer = new MultiBoardScorer(secretPegs, possibleColors.length());
+  }
+
+  // applies the given key to the game, only the scoring of a submitted row differs from Mastermind
+  public World applyKey(String key) {
+    if (!(key.equals("enter") && this.listOfGuesses.isRowFull(this.currentNumberOfGuesses))) {
+      return super.applyKey(key);
+    }
+    Matches[] results = this.scorer.scoreAll(
+        this.listOfGuesses.getRowAtIndex(this.currentNumberOfGuesses).toIndices(this.possibleColors));
+    boolean won = true;
+    for (int board = 0; board < this.boards; board += 1) {
+      this.boardMatches[board] = new ConsLoMatches(results[board], this.boardMatches[board]);
+      this.columns[board] = null;
+      this.solved[board] = this.solved[board] || results[board].exact == this.lengthOfSequence;
+      won = won && this.solved[board];
+    }
+    // the first board stands in for the single board of Mastermind
+    this.listOfMatches = this.boardMatches[0];
+    this.exactMatchesCount = results[0].exact;
+    this.inexactMatchesCount = results[0].inexact;
+    GameMetrics.METRICS.submissions.increment();
+    GameMetrics.METRICS.scoringCalls.add(this.boards);
+    this.recordEdit(this.currentNumberOfGuesses, EditTimeline.SUBMIT, EditTimeline.BLANK, EditTimeline.BLANK);
+    this.startRowHistory();
+    if (won) {
+      return this.endGame(GameState.WON);
+    }
+    if (this.numberOfGuesses == this.currentNumberOfGuesses) {
+      return this.endGame(GameState.LOST);
+    }
+    this.currentNumberOfGuesses += 1;
+    return this;
+  }
+
+  // takes back the submission of the given row on every board: each loses its Matches for the row,
+  // and is only still solved if an earlier row guessed its secret
+  void undoSubmission(int row, int kind) {
+    for (int board = 0; board < this.boards; board += 1) {
+      this.boardMatches[board] = ((ConsLoMatches) this.boardMatches[board]).rest;
+      this.columns[board] = null;
+      this.solved[board] = false;
+      for (int index = 0; index < this.boardMatches[board].length(); index += 1) {
+        this.solved[board] = this.solved[board]
+            || this.boardMatches[board].getMatchAtIndex(index).exact == this.lengthOfSequence;
+      }
+    }
+    this.listOfMatches = this.boardMatches[0];
+    this.currentNumberOfGuesses = row;
+    this.exactMatchesCount = this.listOfMatches.getMatchAtIndex(0).exact;
+    this.inexactMatchesCount = this.listOfMatches.getMatchAtIndex(0).inexact;
+  }
+
+  // returns the image of the given board's column of Matches, drawing it only if a row was added
+  // since it was last drawn
+  public WorldImage drawColumn(int board) {
+    if (this.columns[board] == null) {
+      WorldImage column = new EmptyImage();
+      for (int index = this.boardMatches[board].length() - 1; index >= 0; index -= 1) {
+        Matches result = this.boardMatches[board].getMatchAtIndex(index);
+        Color color = this.solved[board] && index == 0 && result.exact == this.lengthOfSequence
+            ? Color.GREEN.darker() : Color.BLACK;
+        column = new AboveImage(new TextImage(result.exact + "/" + result.inexact, 16, color), column);
+      }
+      this.columns[board] = column;
+    }
+    return this.columns[board];
+  }
+
+  // places every board's column of Matches on the given scene, side by side
+  WorldScene placeColumns(WorldScene scene) {
+    int YPosition = (500 - (this.currentNumberOfGuesses * 20));
+    int width = 200 / this.boards;
+    for (int board = 0; board < this.boards; board += 1) {
+      scene = scene.placeImageXY(this.drawColumn(board), 300 + width / 2 + board * width, YPosition);
+    }
+    return scene;
+  }
+
+  // draws the world scene
+  public WorldScene drawScene() {
+    int XPosition = ((500 - (20 * this.possibleColors.length())) / 2);
+    WorldScene scene = new WorldScene(500, 700)
+        .placeImageXY(new RectangleImage(500, 700, OutlineMode.SOLID, Color.PINK), 250, 350)
+        .placeImageXY(new TextImage("exact/inexact", 20, Color.BLACK), 400, 500)
+        .placeImageXY(this.listOfGuesses.drawLoLoColor(), XPosition, 400)
+        .placeImageXY(this.possibleColors.drawCircles(), XPosition, 650);
+    return this.placeColumns(scene);
+  }
+
+  // creates the last scene of the game, showing every secret
+  public WorldScene lastScene(String msg) {
+    int XPosition = ((500 - (20 * this.possibleColors.length())) / 2);
+    WorldImage secretRows = new EmptyImage();
+    for (int board = this.boards - 1; board >= 0; board -= 1) {
+      secretRows = new AboveImage(this.secrets[board].drawCircles(), secretRows);
+    }
+    return this.drawScene()
+        .placeImageXY(secretRows, XPosition, 100)
+        .placeImageXY(new TextImage(msg, 40, Color.BLACK), XPosition, 150);
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.boards... int
+   *  this.secrets... ILoColor[]
+   *  this.boardMatches... ILoMatches[]
+   *  this.solved... boolean[]
+   *  this.scorer... MultiBoardScorer
+   *  this.columns... WorldImage[]
+   * METHODS:
+   *  this.applyKey(String)... World
+   *  this.undoSubmission(int, int)... void
+   *  this.drawColumn(int)... WorldImage
+   *  this.placeColumns(WorldScene)... WorldScene
+   *  this.drawScene()... WorldScene
+   *  this.lastScene(String)... WorldScene
+   * METHODS OF FIELDS:
+   *  this.scorer.scoreAll(int[])... Matches[]
+   *  this.boardMatches[board].getMatchAtIndex(int)... Matches
+   *  this.secrets[board].drawCircles()... WorldImage
+   */
+}
+
+// the rules where only exact matches are reported, every other color match counting as nothing
+class BlackPegEngine implements IVariantEngine {
+  IVariantEngine rules;
+
+  // the constructor, taking the rules the codes follow
+  BlackPegEngine(IVariantEngine rules) {
+    this.rules = rules;
+  }
+
+  // scores the given guess against the given secret, leaving out the inexact matches
+  public Matches score(int[] guess, int[] secret) {
+    return new Matches(this.rules.score(guess, secret).exact, 0);
+  }
+
+  // returns the number of codes the secret can be
+  public long size() {
+    return this.rules.size();
+  }
+
+  // returns every code the secret can be
+  public long[] allCodes(CodeSpace space) {
+    return this.rules.allCodes(space);
+  }
+
+  // returns the same rules with scratch space of their own
+  public IVariantEngine copy() {
+    return new BlackPegEngine(this.rules.copy());
+  }
+
+  // returns the number of pegs in a code
+  public int length() {
+    return this.rules.length();
+  }
+
+  // returns whether some guess and secret get the given Matches: there are never inexact matches, and
+  // the exact ones must go with some number of inexact ones under the rules the codes follow
+  public boolean canScore(int exact, int inexact) {
+    if (inexact != 0) {
+      return false;
+    }
+    for (int hidden = 0; exact + hidden <= this.rules.length(); hidden += 1) {
+      if (this.rules.canScore(exact, hidden)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // returns the lies of the rules the codes follow, since leaving out inexact matches is not a lie
+  public int lies() {
+    return this.rules.lies();
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.rules... IVariantEngine
+   * METHODS:
+   *  this.score(int[], int[])... Matches
+   *  this.size()... long
+   *  this.allCodes(CodeSpace)... long[]
+   *  this.copy()... IVariantEngine
+   *  this.length()... int
+   *  this.canScore(int, int)... boolean
+   *  this.lies()... int
+   * METHODS OF FIELDS:
+   *  this.rules.score(int[], int[])... Matches
+   *  this.rules.size()... long
+   *  this.rules.allCodes(CodeSpace)... long[]
+   *  this.rules.copy()... IVariantEngine
+   *  this.rules.length()... int
+   *  this.rules.lies()... int
+   *  this.rules.canScore(int, int)... boolean
+   */
+}
+
+// the rules where the feedback may be wrong: each scoring lies with the given chance until the
+// most lies a game allows have been told, a lie being any other feedback the wrapped rules could
+// give. A solved code is always told the truth, and no lie claims a code is solved
+class LyingEngine implements IVariantEngine {
+  IVariantEngine rules;
+  int length;
+  int maxLies;
+  double lieChance;
+  Random rand;
+  int liesTold;
+
+  // the constructor
+  LyingEngine(IVariantEngine rules, int length, int maxLies, double lieChance, Random rand) {
+    if (maxLies < 0) {
+      throw new IllegalArgumentException("number of lies must not be less than 0!");
+    }
+    this.rules = rules;
+    this.length = length;
+    this.maxLies = maxLies;
+    this.lieChance = lieChance;
+    this.rand = rand;
+    this.liesTold = 0;
+  }
+
+  // scores the given guess against the given secret, sometimes lying about it
+  public Matches score(int[] guess, int[] secret) {
+    Matches truth = this.rules.score(guess, secret);
+    if (truth.exact == this.length || this.liesTold >= this.maxLies
+        || this.rand.nextDouble() >= this.lieChance) {
+      return truth;
+    }
+    java.util.List<Matches> lies = new java.util.ArrayList<Matches>();
+    for (int exact = 0; exact < this.length; exact += 1) {
+      for (int inexact = 0; exact + inexact <= this.length; inexact += 1) {
+        if (this.rules.canScore(exact, inexact) && (exact != truth.exact || inexact != truth.inexact)) {
+          lies.add(new Matches(exact, inexact));
+        }
+      }
+    }
+    if (lies.isEmpty()) {
+      return truth;
+    }
+    this.liesTold += 1;
+    return lies.get(this.rand.nextInt(lies.size()));
+  }
+
+  // returns the number of codes the secret can be
+  public long size() {
+    return this.rules.size();
+  }
+
+  // returns every code the secret can be
+  public long[] allCodes(CodeSpace space) {
+    return this.rules.allCodes(space);
+  }
+
+  // returns the truthful rules with scratch space of their own, since a copy is only used to check
+  // codes against feedback already given
+  public IVariantEngine copy() {
+    return this.rules.copy();
+  }
+
+  // returns the number of pegs in a code
+  public int length() {
+    return this.length;
+  }
+
+  // returns whether some guess and secret get the given Matches, which a lie never goes beyond
+  public boolean canScore(int exact, int inexact) {
+    return this.rules.canScore(exact, inexact);
+  }
+
+  // returns the most lies a game is told
+  public int lies() {
+    return this.maxLies;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.rules... IVariantEngine
+   *  this.length... int
+   *  this.maxLies... int
+   *  this.lieChance... double
+   *  this.rand... Random
+   *  this.liesTold... int
+   * METHODS:
+   *  this.score(int[], int[])... Matches
+   *  this.size()... long
+   *  this.allCodes(CodeSpace)... long[]
+   *  this.copy()... IVariantEngine
+   *  this.length()... int
+   *  this.canScore(int, int)... boolean
+   *  this.lies()... int
+   * METHODS OF FIELDS:
+   *  this.rules.score(int[], int[])... Matches
+   *  this.rules.size()... long
+   *  this.rules.allCodes(CodeSpace)... long[]
+   *  this.rules.copy()... IVariantEngine
+   *  this.rules.canScore(int, int)... boolean
+   */
+}
+
+// keeps the codes that could still be the secret under some rules as feedback comes in. Each new
+// feedback is checked against the remaining codes only, in parallel chunks, each scoring with its
+// own copy of the rules. Since feedback may be a lie, every code counts the feedback it disagrees
+// with and is only dropped once that is more than the lies allowed, so the codes can be told apart
+// by how many lies they need
+class CandidateFilter {
+  IVariantEngine rules;
+  CodeSpace space;
+  int maxErrors;
+  long[] candidates;
+  int[] indices;
+  byte[] errors;
+  int count;
+  int feedback;
+
+  // how many codes each parallel chunk checks
+  static final int CHUNK = 4096;
+
+  // the constructor, starting from every code the rules allow
+  CandidateFilter(IVariantEngine rules, CodeSpace space, int maxErrors) {
+    this(rules, space, maxErrors, rules.allCodes(space));
+  }
+
+  // the constructor, starting from the given codes, which are copied since the filter drops codes in place
+  CandidateFilter(IVariantEngine rules, CodeSpace space, int maxErrors, long[] codes) {
+    if (maxErrors < 0 || maxErrors >= Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("number of errors must be between 0 and 126!");
+    }
+    this.rules = rules;
+    this.space = space;
+    this.maxErrors = maxErrors;
+    this.candidates = codes.clone();
+    this.indices = new int[codes.length];
+    for (int i = 0; i < codes.length; i += 1) {
+      this.indices[i] = i;
+    }
+    this.errors = new byte[this.candidates.length];
+    this.count = this.candidates.length;
+    this.feedback = 0;
+  }
+
+  // counts the given feedback against every remaining code that disagrees with it, and drops the
+  // codes that now disagree with more feedback than the lies allowed
+  public void addFeedback(int[] guess, int exact, int inexact) {
+    int chunks = (this.count + CHUNK - 1) / CHUNK;
+    java.util.stream.IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      IVariantEngine scorer = this.rules.copy();
+      int[] code = new int[this.space.length];
+      int end = Math.min(this.count, (chunk + 1) * CHUNK);
+      for (int i = chunk * CHUNK; i < end; i += 1) {
+        Matches result = scorer.score(guess, this.space.unpack(this.candidates[i], code));
+        if (result.exact != exact || result.inexact != inexact) {
+          this.errors[i] += 1;
+        }
+      }
+    });
+    int kept = 0;
+    for (int i = 0; i < this.count; i += 1) {
+      if (this.errors[i] <= this.maxErrors) {
+        this.candidates[kept] = this.candidates[i];
+        this.indices[kept] = this.indices[i];
+        this.errors[kept] = this.errors[i];
+        kept += 1;
+      }
+    }
+    this.count = kept;
+    this.feedback += 1;
+  }
+
+  // returns how many of the remaining codes disagree with exactly the given amount of feedback
+  public int countWithErrors(int errors) {
+    int found = 0;
+    for (int i = 0; i < this.count; i += 1) {
+      found += this.errors[i] == errors ? 1 : 0;
+    }
+    return found;
+  }
+
+  // returns the remaining codes, packed
+  public long[] remaining() {
+    return java.util.Arrays.copyOf(this.candidates, this.count);
+  }
+
+  // returns where each remaining code was among the codes the filter started from
+  public int[] remainingIndices() {
+    return java.util.Arrays.copyOf(this.indices, this.count);
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.rules... IVariantEngine
+   *  this.space... CodeSpace
+   *  this.maxErrors... int
+   *  this.candidates... long[]
+   *  this.indices... int[]
+   *  this.errors... byte[]
+   *  this.count... int
+   *  this.feedback... int
+   * METHODS:
+   *  this.addFeedback(int[], int, int)... void
+   *  this.countWithErrors(int)... int
+   *  this.remaining()... long[]
+   *  this.remainingIndices()... int[]
+   * METHODS OF FIELDS:
+   *  this.rules.copy()... IVariantEngine
+   *  this.rules.allCodes(CodeSpace)... long[]
+   *  this.space.unpack(long, int[])... int[]
+   */
+}
+
+// how one submitted row of a finished game went: the codes still possible before and after it, the
+// information it gave against the most the best guess was expected to give, and whether it was wasted
+class RowReport {
+  int row;
+  long candidatesBefore;
+  long candidatesAfter;
+  double bits;
+  double expectedBits;
+  double bestBits;
+  int[] bestGuess;
+  boolean consistent;
+  boolean wasted;
+
+  // the constructor
+  RowReport(int row, long candidatesBefore, long candidatesAfter, double bits, double expectedBits,
+      double bestBits, int[] bestGuess, boolean consistent, boolean wasted) {
+    this.row = row;
+    this.candidatesBefore = candidatesBefore;
+    this.candidatesAfter = candidatesAfter;
+    this.bits = bits;
+    this.expectedBits = expectedBits;
+    this.bestBits = bestBits;
+    this.bestGuess = bestGuess;
+    this.consistent = consistent;
+    this.wasted = wasted;
+  }
+
+  // describes the row in one line
+  public String describe() {
+    return String.format("row %d: %d -> %d left, %.1f bits (best %.1f)%s", this.row, this.candidatesBefore,
+        this.candidatesAfter, this.bits, this.bestBits, this.wasted ? " wasted" : "");
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.row... int
+   *  this.candidatesBefore... long
+   *  this.candidatesAfter... long
+   *  this.bits... double
+   *  this.expectedBits... double
+   *  this.bestBits... double
+   *  this.bestGuess... int[]
+   *  this.consistent... boolean
+   *  this.wasted... boolean
+   * METHODS:
+   *  this.describe()... String
+   * METHODS OF FIELDS:
+   */
+}
+
+// analyzes finished games: for each row, how many codes were still possible, how much the guess
+// told the player and how much the best guess would have. The codes still possible before each row
+// are found one row after another, which is cheap, and then the rows are analyzed in parallel. The
+// best guess for a set of codes is remembered, and there is one analyzer per kind of game and rules,
+// so every game of that kind shares the work on its first row. The codes are checked against the rows
+// by the truthful rules of the game, keeping those that need no more lies than the rules tell
+class GameAnalyzer {
+  CodeSpace space;
+  boolean duplicatesAllowed;
+  IVariantEngine rules;
+  int maxErrors;
+  boolean partitioned;
+  long[] codes;
+  java.util.concurrent.ConcurrentHashMap<CandidateKey, long[]> bestGuesses;
+  ThreadLocal<PartitionEngine> engines;
+
+  // the analyzer of each kind of game
+  static final java.util.concurrent.ConcurrentHashMap<String, GameAnalyzer> ANALYZERS =
+      new java.util.concurrent.ConcurrentHashMap<String, GameAnalyzer>();
+  // games with more codes than this are not analyzed
+  static final long MAX_CODES = 1 << 20;
+  // the most guesses compared to find the best guess for a row
+  static final int GUESS_POOL = 64;
+  // a guess expected to tell less than this share of what the best guess would is wasted
+  static final double WASTE_SHARE = 0.5;
+  // the most sets of codes whose best guess is remembered
+  static final int MAX_CACHED = 4096;
+
+  // the constructor, for the usual rules
+  GameAnalyzer(int length, int colors, boolean duplicatesAllowed) {
+    this(length, colors, duplicatesAllowed, GameAnalyzer.usualRules(length, colors, duplicatesAllowed));
+  }
+
+  // the constructor, for the given rules
+  GameAnalyzer(int length, int colors, boolean duplicatesAllowed, IVariantEngine rules) {
+    this.space = new CodeSpace(length, colors);
+    this.duplicatesAllowed = duplicatesAllowed;
+    // a copy of lying rules tells the truth, and the lies are allowed for instead
+    this.rules = rules.copy();
+    this.maxErrors = rules.lies();
+    // the partition engine scores by the usual rules, so other rules partition by scoring each code
+    this.partitioned = this.rules instanceof StandardEngine || this.rules instanceof NoDuplicatesEngine;
+    this.codes = this.rules.allCodes(this.space);
+    this.bestGuesses = new java.util.concurrent.ConcurrentHashMap<CandidateKey, long[]>();
+    this.engines = ThreadLocal.withInitial(() -> new PartitionEngine(this.space));
+  }
+
+  // returns the usual rules of the given kind of game
+  static IVariantEngine usualRules(int length, int colors, boolean duplicatesAllowed) {
+    if (duplicatesAllowed) {
+      return new StandardEngine(length, colors);
+    }
+    return new NoDuplicatesEngine(length, colors);
+  }
+
+  // returns the analyzer shared by the games of the given kind, or null if they are too large to analyze
+  static GameAnalyzer forGame(int length, int colors, boolean duplicatesAllowed) {
+    if (length > 16 || colors > 16 || Math.pow(colors, length) > MAX_CODES) {
+      return null;
+    }
+    return GameAnalyzer.forGame(length, colors, duplicatesAllowed,
+        GameAnalyzer.usualRules(length, colors, duplicatesAllowed));
+  }
+
+  // returns the analyzer shared by the games of the given kind played by the given rules, or null if
+  // they are too large to analyze
+  static GameAnalyzer forGame(int length, int colors, boolean duplicatesAllowed, IVariantEngine rules) {
+    if (length > 16 || colors > 16 || Math.pow(colors, length) > MAX_CODES) {
+      return null;
+    }
+    String key = length + "," + colors + "," + duplicatesAllowed + "," + rules.getClass().getSimpleName() + ","
+        + rules.copy().getClass().getSimpleName() + "," + rules.lies();
+    return ANALYZERS.computeIfAbsent(key, k -> new GameAnalyzer(length, colors, duplicatesAllowed, rules));
+  }
+
+  // returns the information in bits a guess is expected to give, the entropy of its partition
+  static double bits(long[] histogram, long count) {
+    double bits = 0;
+    for (long size : histogram) {
+      if (size > 0) {
+        bits += (double) size / count * (Math.log((double) count / size) / Math.log(2));
+      }
+    }
+    return bits;
+  }
+
+  // returns the indices of the given codes that would have given the guess the given result
+  int[] filter(int[] candidates, int[] guess, Matches result) {
+    IVariantEngine scorer = this.rules.copy();
+    int[] code = new int[this.space.length];
+    int[] kept = new int[candidates.length];
+    int count = 0;
+    for (int index : candidates) {
+      Matches scored = scorer.score(guess, this.space.unpack(this.codes[index], code));
+      if (scored.exact == result.exact && scored.inexact == result.inexact) {
+        kept[count] = index;
+        count += 1;
+      }
+    }
+    return java.util.Arrays.copyOf(kept, count);
+  }
+
+  // returns the partition histograms of the given guesses over the codes with the given indices
+  long[][] histograms(int[][] guesses, int[] candidates) {
+    long[] secrets = new long[candidates.length];
+    for (int i = 0; i < candidates.length; i += 1) {
+      secrets[i] = this.codes[candidates[i]];
+    }
+    if (this.partitioned) {
+      return this.engines.get().histograms(guesses, secrets, secrets.length);
+    }
+    IVariantEngine scorer = this.rules.copy();
+    int[] code = new int[this.space.length];
+    long[][] histograms = new long[guesses.length][PartitionEngine.resultCount(this.space.length)];
+    for (int g = 0; g < guesses.length; g += 1) {
+      for (long secret : secrets) {
+        Matches result = scorer.score(guesses[g], this.space.unpack(secret, code));
+        histograms[g][PartitionEngine.resultIndex(this.space.length, result.exact, result.inexact)] += 1;
+      }
+    }
+    return histograms;
+  }
+
+  // returns the best guess for the codes with the given indices, packed, and the bits it is expected
+  // to give, comparing the ways to open before any feedback and a spread of the codes after
+  long[] bestGuess(int[] candidates) {
+    CandidateKey key = new CandidateKey(candidates);
+    long[] remembered = this.bestGuesses.get(key);
+    if (remembered != null) {
+      return remembered;
+    }
+    int[][] pool;
+    if (candidates.length == this.codes.length) {
+      java.util.List<int[]> openings = new java.util.ArrayList<int[]>();
+      for (int[] opening : this.space.openingCandidates()) {
+        if (this.duplicatesAllowed || !this.space.hasDuplicates(this.space.pack(opening))) {
+          openings.add(opening);
+        }
+      }
+      pool = openings.toArray(new int[openings.size()][]);
+    }
+    else {
+      pool = new int[Math.min(GUESS_POOL, candidates.length)][];
+      for (int i = 0; i < pool.length; i += 1) {
+        long index = (long) i * candidates.length / pool.length;
+        pool[i] = this.space.unpack(this.codes[candidates[(int) index]], new int[this.space.length]);
+      }
+    }
+    long[][] histograms = this.histograms(pool, candidates);
+    int best = 0;
+    double bestBits = -1;
+    for (int g = 0; g < pool.length; g += 1) {
+      double bits = GameAnalyzer.bits(histograms[g], candidates.length);
+      if (bits > bestBits) {
+        best = g;
+        bestBits = bits;
+      }
+    }
+    long[] found = new long[] {this.space.pack(pool[best]), Double.doubleToLongBits(bestBits)};
+    if (this.bestGuesses.size() < MAX_CACHED) {
+      this.bestGuesses.put(key, found);
+    }
+    return found;
+  }
+
+  // returns the report of every row of a game with the given guesses, as indices into the possible
+  // colors, and the Matches they got. The codes still possible are narrowed one row after another
+  public RowReport[] analyze(int[][] guesses, Matches[] results) {
+    CandidateFilter filter = new CandidateFilter(this.rules, this.space, this.maxErrors, this.codes);
+    int[][] before = new int[guesses.length + 1][];
+    before[0] = filter.remainingIndices();
+    for (int row = 0; row < guesses.length; row += 1) {
+      filter.addFeedback(guesses[row], results[row].exact, results[row].inexact);
+      before[row + 1] = filter.remainingIndices();
+    }
+    return java.util.stream.IntStream.range(0, guesses.length).parallel()
+        .mapToObj(row -> this.analyzeRow(row, guesses[row], before[row], before[row + 1]))
+        .toArray(RowReport[]::new);
+  }
+
+  // returns the report of one row, given the codes possible before and after it
+  RowReport analyzeRow(int row, int[] guess, int[] before, int[] after) {
+    long[] best = this.bestGuess(before);
+    double bestBits = Double.longBitsToDouble(best[1]);
+    double expectedBits = GameAnalyzer.bits(this.histograms(new int[][] {guess}, before)[0], before.length);
+    double bits = after.length == 0 ? 0 : Math.log((double) before.length / after.length) / Math.log(2);
+    // only the guess itself would have got every peg exact
+    boolean consistent = this.filter(before, guess, new Matches(this.space.length, 0)).length > 0;
+    boolean won = after.length == 1 && this.codes[after[0]] == this.space.pack(guess);
+    boolean wasted = !won && (after.length == before.length || expectedBits < WASTE_SHARE * bestBits);
+    return new RowReport(row + 1, before.length, after.length, bits, expectedBits, bestBits,
+        this.space.unpack(best[0], new int[this.space.length]), consistent, wasted);
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.space... CodeSpace
+   *  this.duplicatesAllowed... boolean
+   *  this.rules... IVariantEngine
+   *  this.maxErrors... int
+   *  this.partitioned... boolean
+   *  this.codes... long[]
+   *  this.bestGuesses... ConcurrentHashMap<CandidateKey, long[]>
+   *  this.engines... ThreadLocal<PartitionEngine>
+   * METHODS:
+   *  GameAnalyzer.usualRules(int, int, boolean)... IVariantEngine
+   *  GameAnalyzer.forGame(int, int, boolean, IVariantEngine)... GameAnalyzer
+   *  this.filter(int[], int[], Matches)... int[]
+   *  this.histograms(int[][], int[])... long[][]
+   *  this.bestGuess(int[])... long[]
+   *  this.analyze(int[][], Matches[])... RowReport[]
+   *  this.analyzeRow(int, int[], int[], int[])... RowReport
+   * METHODS OF FIELDS:
+   *  this.rules.allCodes(CodeSpace)... long[]
+   *  this.rules.copy()... IVariantEngine
+   *  this.space.openingCandidates()... int[][]
+   *  this.space.unpack(long, int[])... int[]
+   *  this.engines.get().histograms(int[][], long[], int)... long[][]
+   */
+}
+
+// the partition histogram of every way to open, for every kind of game up to 8 pegs and 10 colors,
+// generated once into a file by main so no game computes its first guess. Guesses that only rename
+// colors split the codes the same way, so only one opening per way of grouping the pegs is listed,
+// and without duplicates the only way is all pegs different. A line of the file is
+// "<length> <colors> <duplicatesAllowed> <opening> <count>,<count>,..." with the opening as digits
+class OpeningTable {
+  java.util.HashMap<String, java.util.ArrayList<int[]>> openings;
+  java.util.HashMap<String, java.util.ArrayList<long[]>> histograms;
+
+  // the file the table is generated into and loaded from
+  static final String FILE = "openings.txt";
+  // the largest kind of game in the table
+  static final int MAX_LENGTH = 8;
+  static final int MAX_COLORS = 10;
+  // the table loaded from FILE, once it is first needed
+  static OpeningTable shared;
+
+  // the constructor
+  OpeningTable() {
+    this.openings = new java.util.HashMap<String, java.util.ArrayList<int[]>>();
+    this.histograms = new java.util.HashMap<String, java.util.ArrayList<long[]>>();
+  }
+
+  // returns the table in FILE, loading it the first time, or an empty table if there is no file
+  static synchronized OpeningTable shared() {
+    if (shared == null) {
+      shared = new OpeningTable();
+      java.io.File file = new java.io.File(FILE);
+      if (file.exists()) {
+        try (java.io.BufferedReader in = new java.io.BufferedReader(new java.io.FileReader(file))) {
+          shared.load(in);
+        }
+        catch (java.io.IOException e) {
+          shared = new OpeningTable();
+        }
+      }
+    }
+    return shared;
+  }
+
+  // returns the key of the given kind of game
+  static String key(int length, int colors, boolean duplicatesAllowed) {
+    return length + " " + colors + " " + duplicatesAllowed;
+  }
+
+  // adds the opening and its histogram to the table
+  public void add(int length, int colors, boolean duplicatesAllowed, int[] opening, long[] histogram) {
+    String key = OpeningTable.key(length, colors, duplicatesAllowed);
+    this.openings.computeIfAbsent(key, k -> new java.util.ArrayList<int[]>()).add(opening);
+    this.histograms.computeIfAbsent(key, k -> new java.util.ArrayList<long[]>()).add(histogram);
+  }
+
+  // adds every line read to the table, skipping comments
+  public void load(java.io.BufferedReader in) throws java.io.IOException {
+    for (String line = in.readLine(); line != null; line = in.readLine()) {
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] parts = line.split(" ");
+      int[] opening = new int[parts[3].length()];
+      for (int position = 0; position < opening.length; position += 1) {
+        opening[position] = parts[3].charAt(position) - '0';
+      }
+      String[] counts = parts[4].split(",");
+      long[] histogram = new long[counts.length];
+      for (int i = 0; i < counts.length; i += 1) {
+        histogram[i] = Long.parseLong(counts[i]);
+      }
+      this.add(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Boolean.parseBoolean(parts[2]),
+          opening, histogram);
+    }
+  }
+
+  // returns the opening the strategy likes best for the given kind of game, or null if it is not in
+  // the table
+  public int[] best(int length, int colors, boolean duplicatesAllowed, IStrategy strategy) {
+    String key = OpeningTable.key(length, colors, duplicatesAllowed);
+    java.util.ArrayList<int[]> candidates = this.openings.get(key);
+    if (candidates == null) {
+      return null;
+    }
+    java.util.ArrayList<long[]> partitions = this.histograms.get(key);
+    long codes = 0;
+    for (long count : partitions.get(0)) {
+      codes += count;
+    }
+    int best = 0;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < candidates.size(); i += 1) {
+      double cost = strategy.cost(partitions.get(i), codes);
+      if (cost < bestCost) {
+        best = i;
+        bestCost = cost;
+      }
+    }
+    return candidates.get(best).clone();
+  }
+
+  // returns the table of every kind of game up to the given size, computing the kinds in parallel
+  static OpeningTable generate(int maxLength, int maxColors) {
+    OpeningTable table = new OpeningTable();
+    java.util.List<int[]> kinds = new java.util.ArrayList<int[]>();
+    for (int length = 1; length <= maxLength; length += 1) {
+      for (int colors = 1; colors <= maxColors; colors += 1) {
+        kinds.add(new int[] {length, colors, 1});
+        if (colors >= length) {
+          kinds.add(new int[] {length, colors, 0});
+        }
+      }
+    }
+    java.util.List<long[][]> computed = kinds.parallelStream()
+        .map(kind -> OpeningTable.histograms(kind[0], kind[1], kind[2] == 1))
+        .collect(java.util.stream.Collectors.toList());
+    for (int k = 0; k < kinds.size(); k += 1) {
+      int[] kind = kinds.get(k);
+      int[][] openings = OpeningTable.openingsOf(kind[0], kind[1], kind[2] == 1);
+      for (int i = 0; i < openings.length; i += 1) {
+        table.add(kind[0], kind[1], kind[2] == 1, openings[i], computed.get(k)[i]);
+      }
+    }
+    return table;
+  }
+
+  // returns one opening per way of grouping the pegs allowed in the given kind of game
+  static int[][] openingsOf(int length, int colors, boolean duplicatesAllowed) {
+    CodeSpace space = new CodeSpace(length, colors);
+    int[][] openings = space.openingCandidates();
+    if (duplicatesAllowed) {
+      return openings;
+    }
+    // the groupings are listed from the fewest colors to the most, so the last has every peg different
+    return new int[][] {openings[openings.length - 1]};
+  }
+
+  // returns the histogram of every opening of the given kind of game over all of its codes
+  static long[][] histograms(int length, int colors, boolean duplicatesAllowed) {
+    CodeSpace space = new CodeSpace(length, colors);
+    PartitionEngine engine = new PartitionEngine(space);
+    int[][] openings = OpeningTable.openingsOf(length, colors, duplicatesAllowed);
+    if (duplicatesAllowed) {
+      return engine.histograms(openings, 0, space.size);
+    }
+    long[] codes = new NoDuplicatesEngine(length, colors).allCodes(space);
+    return engine.histograms(openings, codes, codes.length);
+  }
+
+  // writes the table to the given stream
+  public void write(java.io.PrintStream out) {
+    out.println("# length colors duplicatesAllowed opening histogram, generated by OpeningTable.main");
+    java.util.List<String> keys = new java.util.ArrayList<String>(this.openings.keySet());
+    keys.sort((a, b) -> {
+      String[] first = a.split(" ");
+      String[] second = b.split(" ");
+      for (int i = 0; i < 2; i += 1) {
+        int order = Integer.compare(Integer.parseInt(first[i]), Integer.parseInt(second[i]));
+        if (order != 0) {
+          return order;
+        }
+      }
+      return second[2].compareTo(first[2]);
+    });
+    for (String key : keys) {
+      for (int i = 0; i < this.openings.get(key).size(); i += 1) {
+        StringBuilder line = new StringBuilder(key).append(' ');
+        for (int peg : this.openings.get(key).get(i)) {
+          line.append(peg);
+        }
+        line.append(' ');
+        long[] histogram = this.histograms.get(key).get(i);
+        for (int r = 0; r < histogram.length; r += 1) {
+          line.append(r == 0 ? "" : ",").append(histogram[r]);
+        }
+        out.println(line);
+      }
+    }
+  }
+
+  // generates the table of every kind of game up to 8 pegs and 10 colors into FILE
+  public static void main(String[] args) throws java.io.IOException {
+    long start = System.nanoTime();
+    OpeningTable table = OpeningTable.generate(MAX_LENGTH, MAX_COLORS);
+    try (java.io.PrintStream out = new java.io.PrintStream(new java.io.FileOutputStream(FILE))) {
+      table.write(out);
+    }
+    System.out.println("wrote " + FILE + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.openings... HashMap<String, ArrayList<int[]>>
+   *  this.histograms... HashMap<String, ArrayList<long[]>>
+   * METHODS:
+   *  this.add(int, int, boolean, int[], long[])... void
+   *  this.load(BufferedReader)... void
+   *  this.best(int, int, boolean, IStrategy)... int[]
+   *  this.write(PrintStream)... void
+   * METHODS OF FIELDS:
+   *  strategy.cost(long[], long)... double
+   */
+}
+
+// the rules and state of a game of Mastermind without any drawing, so it can be played without
+// javalib: colors are indices into the possible colors, an empty peg is EMPTY, and each row is
+// filled from the left, scored once full and submitted, and the game ends when a row is guessed
+// exactly or the last row is scored, as in Mastermind.onKeyEvent
+class GameState {
+  boolean duplicatesAllowed;
+  int lengthOfSequence;
+  int numberOfGuesses;
+  int colors;
+  int[] correctSequence;
+  int[][] guesses;
+  int[] filled;
+  int[] exact;
+  int[] inexact;
+  int currentRow;
+  int status;
+  IVariantEngine rules;
+
+  // an empty peg
+  static final int EMPTY = -1;
+  // the states of a game
+  static final int PLAYING = 0;
+  static final int WON = 1;
+  static final int LOST = 2;
+
+  // the constructor, checking the settings like Mastermind does
+  GameState(boolean duplicatesAllowed, int lengthOfSequence, int numberOfGuesses, int colors, Random rand) {
+    if (lengthOfSequence <= 0) {
+      throw new IllegalArgumentException("length guesses must be greater than 0!");
+    }
+    if (numberOfGuesses <= 0) {
+      throw new IllegalArgumentException("number of guesses must be greater than 0!");
+    }
+    if (colors <= 0) {
+      throw new IllegalArgumentException("sequence of colors must be greater than 0!");
+    }
+    if (!duplicatesAllowed && colors < lengthOfSequence) {
+      throw new IllegalArgumentException("sequence of colors must not be greater than the amount of possible colors!");
+    }
+    this.duplicatesAllowed = duplicatesAllowed;
+    this.lengthOfSequence = lengthOfSequence;
+    this.numberOfGuesses = numberOfGuesses;
+    this.colors = colors;
+    this.guesses = new int[numberOfGuesses][lengthOfSequence];
+    for (int[] row : this.guesses) {
+      java.util.Arrays.fill(row, EMPTY);
+    }
+    this.filled = new int[numberOfGuesses];
+    this.exact = new int[numberOfGuesses];
+    this.inexact = new int[numberOfGuesses];
+    if (duplicatesAllowed) {
+      this.rules = new StandardEngine(lengthOfSequence, colors);
+    }
+    else {
+      this.rules = new NoDuplicatesEngine(lengthOfSequence, colors);
+    }
+    this.correctSequence = this.randomSequence(rand);
+  }
+
+  // returns a random sequence of colors, without repeats if duplicates are not allowed
+  int[] randomSequence(Random rand) {
+    int[] sequence = new int[this.lengthOfSequence];
+    int[] unused = new int[this.colors];
+    for (int color = 0; color < this.colors; color += 1) {
+      unused[color] = color;
+    }
+    for (int position = 0; position < this.lengthOfSequence; position += 1) {
+      if (this.duplicatesAllowed) {
+        sequence[position] = rand.nextInt(this.colors);
+      }
+      else {
+        int index = position + rand.nextInt(this.colors - position);
+        sequence[position] = unused[index];
+        unused[index] = unused[position];
+        unused[position] = sequence[position];
+      }
+    }
+    return sequence;
+  }
+
+  // places the given color in the next empty peg of the current row, returning whether it was placed.
+  // Nothing is placed once the game is over, in a full row, or if the color is already in the row
+  // when duplicates are not allowed
+  public boolean place(int color) {
+    if (this.status != PLAYING || color < 0 || color >= this.colors
+        || this.filled[this.currentRow] == this.lengthOfSequence) {
+      return false;
+    }
+    int[] row = this.guesses[this.currentRow];
+    if (!this.duplicatesAllowed) {
+      for (int position = 0; position < this.filled[this.currentRow]; position += 1) {
+        if (row[position] == color) {
+          return false;
+        }
+      }
+    }
+    row[this.filled[this.currentRow]] = color;
+    this.filled[this.currentRow] += 1;
+    return true;
+  }
+
+  // removes the most recently placed peg of the current row, returning whether there was one
+  public boolean undo() {
+    if (this.status != PLAYING || this.filled[this.currentRow] == 0) {
+      return false;
+    }
+    this.filled[this.currentRow] -= 1;
+    this.guesses[this.currentRow][this.filled[this.currentRow]] = EMPTY;
+    return true;
+  }
+
+  // scores the current row if it is full and moves on to the next one, returning whether it was scored.
+  // The submission and the end of the game are counted in the metrics, as Mastermind counts them
+  public boolean submit() {
+    if (this.status != PLAYING || this.filled[this.currentRow] < this.lengthOfSequence) {
+      return false;
+    }
+    int row = this.currentRow;
+    this.score(this.guesses[row], row);
+    GameMetrics.METRICS.submissions.increment();
+    this.status = GameState.outcome(this.exact[row], this.lengthOfSequence, row + 1, this.numberOfGuesses);
+    if (this.status == PLAYING) {
+      this.currentRow += 1;
+    }
+    else {
+      GameMetrics.METRICS.gameEnded(this.status == WON, row + 1);
+    }
+    return true;
+  }
+
+  // scores the given guess against the correct sequence into the given row of results
+  void score(int[] guess, int row) {
+    GameMetrics.METRICS.scoringCalls.increment();
+    Matches result = this.rules.score(guess, this.correctSequence);
+    this.exact[row] = result.exact;
+    this.inexact[row] = result.inexact;
+  }
+
+  // returns the state of a game after the given row, counted from 1, got the given exact matches
+  static int outcome(int exact, int lengthOfSequence, int row, int numberOfGuesses) {
+    if (exact == lengthOfSequence) {
+      return WON;
+    }
+    if (row == numberOfGuesses) {
+      return LOST;
+    }
+    return PLAYING;
+  }
+
+  // returns the message shown when a game ends in the given state
+  static String endMessage(int status) {
+    return status == WON ? "yay you won! :)" : "aw you lost! :(";
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.duplicatesAllowed... boolean
+   *  this.lengthOfSequence... int
+   *  this.numberOfGuesses... int
+   *  this.colors... int
+   *  this.correctSequence... int[]
+   *  this.guesses... int[][]
+   *  this.filled... int[]
+   *  this.exact... int[]
+   *  this.inexact... int[]
+   *  this.currentRow... int
+   *  this.status... int
+   *  this.rules... IVariantEngine
+   * METHODS:
+   *  this.randomSequence(Random)... int[]
+   *  this.place(int)... boolean
+   *  this.undo()... boolean
+   *  this.submit()... boolean
+   *  this.score(int[], int)... void
+   * METHODS OF FIELDS:
+   *  this.rules.score(int[], int[])... Matches
+   */
+}
+
+// plays games from scripts over stdin and stdout, one JSON object per line each way, without
+// loading javalib. The commands are
+//   {"cmd":"new","length":4,"colors":6,"guesses":10,"duplicates":true,"seed":7}
+//   {"cmd":"place","color":2}   colors are indices into the possible colors, from 0
+//   {"cmd":"undo"}  {"cmd":"submit"}  {"cmd":"state"}  {"cmd":"quit"}
+// and every answer has "ok", false with an "error" when the command did nothing. Lines are read
+// into one reused buffer and parsed in place, and answers are written digit by digit into a
+// buffered stream, so a command allocates almost nothing. Since the input is not trusted, lines and
+// the size of a new game are bounded
+class HeadlessGame {
+  GameState game;
+  byte[] line;
+  int lineLength;
+  boolean lineTooLong;
+  java.io.InputStream in;
+  java.io.OutputStream out;
+
+  // the longest line read, longer ones are answered with an error
+  static final int MAX_LINE = 1 << 16;
+  // the largest games that can be started
+  static final int MAX_LENGTH = 64;
+  static final int MAX_COLORS = NoDuplicatesEngine.MAX_COLORS;
+  static final int MAX_GUESSES = 1000;
+
+  // the constructor
+  HeadlessGame(java.io.InputStream in, java.io.OutputStream out) {
+    this.in = in;
+    this.out = out;
+    this.line = new byte[256];
+  }
+
+  // reads the next line into the buffer, returning false at the end of the input
+  boolean readLine() throws java.io.IOException {
+    this.lineLength = 0;
+    this.lineTooLong = false;
+    int next = this.in.read();
+    if (next < 0) {
+      return false;
+    }
+    while (next >= 0 && next != '\n') {
+      if (this.lineLength == MAX_LINE) {
+        // the rest of the line is skipped rather than kept
+        this.lineTooLong = true;
+      }
+      else if (this.lineLength == this.line.length) {
+        this.line = java.util.Arrays.copyOf(this.line, Math.min(this.line.length * 2, MAX_LINE));
+      }
+      if (next != '\r' && !this.lineTooLong) {
+        this.line[this.lineLength] = (byte) next;
+        this.lineLength += 1;
+      }
+      next = this.in.read();
+    }
+    return true;
+  }
+
+  // returns the index just after "<key>": in the line, or -1 if the key is not there
+  int find(String key) {
+    int keyLength = key.length();
+    for (int start = 0; start + keyLength + 3 <= this.lineLength; start += 1) {
+      if (this.line[start] != '"' || this.line[start + keyLength + 1] != '"') {
+        continue;
+      }
+      boolean same = true;
+      for (int i = 0; i < keyLength && same; i += 1) {
+        same = this.line[start + 1 + i] == key.charAt(i);
+      }
+      if (same) {
+        int index = start + keyLength + 2;
+        while (index < this.lineLength && (this.line[index] == ' ' || this.line[index] == ':')) {
+          index += 1;
+        }
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  // returns the whole number the given key has in the line, or the given default. Numbers too large
+  // for a long are Long.MAX_VALUE
+  long number(String key, long otherwise) {
+    int index = this.find(key);
+    if (index < 0) {
+      return otherwise;
+    }
+    boolean negative = index < this.lineLength && this.line[index] == '-';
+    index += negative ? 1 : 0;
+    long value = 0;
+    boolean digits = false;
+    while (index < this.lineLength && this.line[index] >= '0' && this.line[index] <= '9') {
+      int digit = this.line[index] - '0';
+      value = value > (Long.MAX_VALUE - digit) / 10 ? Long.MAX_VALUE : value * 10 + digit;
+      digits = true;
+      index += 1;
+    }
+    if (!digits) {
+      return otherwise;
+    }
+    return negative ? -value : value;
+  }
+
+  // returns the whole number the given key has in the line, or the given default, if it is between
+  // the given bounds, and -1 otherwise
+  int number(String key, int otherwise, int low, int high) {
+    long value = this.number(key, otherwise);
+    return value >= low && value <= high ? (int) value : -1;
+  }
+
+  // returns the boolean the given key has in the line, or the given default
+  boolean bool(String key, boolean otherwise) {
+    int index = this.find(key);
+    if (index < 0 || index >= this.lineLength) {
+      return otherwise;
+    }
+    return this.line[index] == 't' || (this.line[index] != 'f' && otherwise);
+  }
+
+  // returns whether the string the given key has in the line is the given word
+  boolean is(String key, String word) {
+    int index = this.find(key);
+    if (index < 0 || index + word.length() + 2 > this.lineLength || this.line[index] != '"') {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i += 1) {
+      if (this.line[index + 1 + i] != word.charAt(i)) {
+        return false;
+      }
+    }
+    return this.line[index + 1 + word.length()] == '"';
+  }
+
+  // writes the given text
+  void write(String text) throws java.io.IOException {
+    for (int i = 0; i < text.length(); i += 1) {
+      this.out.write(text.charAt(i));
+    }
+  }
+
+  // writes the given whole number in decimal
+  void write(long number) throws java.io.IOException {
+    if (number < 0) {
+      this.out.write('-');
+      number = -number;
+    }
+    if (number >= 10) {
+      this.write(number / 10);
+    }
+    this.out.write((int) ('0' + number % 10));
+  }
+
+  // writes the given pegs as a JSON array
+  void writeRow(int[] row, int count) throws java.io.IOException {
+    this.out.write('[');
+    for (int i = 0; i < count; i += 1) {
+      if (i > 0) {
+        this.out.write(',');
+      }
+      this.write(row[i]);
+    }
+    this.out.write(']');
+  }
+
+  // writes the answer to a command that did nothing
+  void error(String message) throws java.io.IOException {
+    this.write("{\"ok\":false,\"error\":\"");
+    this.write(message);
+    this.write("\"}\n");
+  }
+
+  // writes the state of the game, ending the answer
+  void writeStatus() throws java.io.IOException {
+    this.write(",\"status\":\"");
+    this.write(this.game.status == GameState.WON ? "won" : this.game.status == GameState.LOST ? "lost" : "playing");
+    this.write("\"}\n");
+  }
+
+  // answers the command in the line, returning false if it was quit
+  boolean handle() throws java.io.IOException {
+    if (this.is("cmd", "quit")) {
+      return false;
+    }
+    if (this.is("cmd", "new")) {
+      int length = this.number("length", 4, 1, MAX_LENGTH);
+      int guesses = this.number("guesses", 10, 1, MAX_GUESSES);
+      int colors = this.number("colors", 6, 1, MAX_COLORS);
+      if (length < 0) {
+        this.error("length must be between 1 and " + MAX_LENGTH);
+        return true;
+      }
+      if (guesses < 0) {
+        this.error("guesses must be between 1 and " + MAX_GUESSES);
+        return true;
+      }
+      if (colors < 0) {
+        this.error("colors must be between 1 and " + MAX_COLORS);
+        return true;
+      }
+      try {
+        this.game = new GameState(this.bool("duplicates", true), length, guesses, colors,
+            new Random(this.number("seed", 0)));
+        GameMetrics.METRICS.gamesStarted.increment();
+        this.write("{\"ok\":true}\n");
+      }
+      catch (IllegalArgumentException e) {
+        this.error(e.getMessage());
+      }
+      return true;
+    }
+    if (this.game == null) {
+      this.error("no game");
+      return true;
+    }
+    GameState game = this.game;
+    if (this.is("cmd", "place")) {
+      if (game.place(this.number("color", -1, 0, game.colors - 1))) {
+        this.write("{\"ok\":true}\n");
+      }
+      else {
+        this.error("not placed");
+      }
+    }
+    else if (this.is("cmd", "undo")) {
+      if (game.undo()) {
+        this.write("{\"ok\":true}\n");
+      }
+      else {
+        this.error("nothing to undo");
+      }
+    }
+    else if (this.is("cmd", "submit")) {
+      int row = game.currentRow;
+      if (game.submit()) {
+        this.write("{\"ok\":true,\"exact\":");
+        this.write(game.exact[row]);
+        this.write(",\"inexact\":");
+        this.write(game.inexact[row]);
+        this.writeStatus();
+      }
+      else {
+        this.error("row not full");
+      }
+    }
+    else if (this.is("cmd", "state")) {
+      this.write("{\"ok\":true,\"row\":");
+      this.write(game.currentRow + 1);
+      this.write(",\"current\":");
+      this.writeRow(game.guesses[game.currentRow], game.filled[game.currentRow]);
+      this.write(",\"matches\":[");
+      int scored = game.status == GameState.PLAYING ? game.currentRow : game.currentRow + 1;
+      for (int row = 0; row < scored; row += 1) {
+        this.write(row > 0 ? ",[" : "[");
+        this.write(game.exact[row]);
+        this.out.write(',');
+        this.write(game.inexact[row]);
+        this.out.write(']');
+      }
+      this.out.write(']');
+      if (game.status != GameState.PLAYING) {
+        this.write(",\"secret\":");
+        this.writeRow(game.correctSequence, game.lengthOfSequence);
+      }
+      this.writeStatus();
+    }
+    else {
+      this.error("unknown command");
+    }
+    return true;
+  }
+
+  // answers every command until the input ends or a quit command
+  public void run() throws java.io.IOException {
+    while (this.readLine()) {
+      if (this.lineTooLong) {
+        this.error("line too long");
+      }
+      else if (this.lineLength > 0 && !this.handle()) {
+        break;
+      }
+    }
+    this.out.flush();
+  }
+
+  // plays games over stdin and stdout, serving their metrics while they are played if run with
+  // --metrics-port <port>
+  public static void main(String[] args) throws java.io.IOException {
+    com.sun.net.httpserver.HttpServer metrics = MetricsEndpoint.serve(MetricsEndpoint.port(args));
+    try {
+      new HeadlessGame(new java.io.BufferedInputStream(System.in, 1 << 16),
+          new java.io.BufferedOutputStream(new java.io.FileOutputStream(java.io.FileDescriptor.out), 1 << 16)).run();
+    }
+    finally {
+      if (metrics != null) {
+        metrics.stop(0);
+      }
+    }
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.game... GameState
+   *  this.line... byte[]
+   *  this.lineLength... int
+   *  this.lineTooLong... boolean
+   *  this.in... InputStream
+   *  this.out... OutputStream
+   * METHODS:
+   *  this.readLine()... boolean
+   *  this.find(String)... int
+   *  this.number(String, long)... long
+   *  this.number(String, int, int, int)... int
+   *  this.bool(String, boolean)... boolean
+   *  this.is(String, String)... boolean
+   *  this.write(String)... void
+   *  this.write(long)... void
+   *  this.writeRow(int[], int)... void
+   *  this.error(String)... void
+   *  this.writeStatus()... void
+   *  this.handle()... boolean
+   *  this.run()... void
+   * METHODS OF FIELDS:
+   *  this.game.place(int)... boolean
+   *  this.game.undo()... boolean
+   *  this.game.submit()... boolean
+   */
+}
+
+// an immutable vector of a fixed size stored as a trie of 32-wide arrays, the bits of an index
+// choosing the child on each level. Setting an element copies only the arrays on the path to it and
+// shares every other one with the old vector, so an edit costs O(log n) and old vectors stay valid
+class PersistentVector<T> {
+  int size;
+  int shift;
+  Object[] root;
+
+  // how many bits of an index each level of the trie uses, and how many children a node has
+  static final int BITS = 5;
+  static final int WIDTH = 1 << BITS;
+
+  // the constructor
+  PersistentVector(int size, int shift, Object[] root) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+  }
+
+  // returns a vector of the given size with every element the given value
+  static <T> PersistentVector<T> filled(int size, T value) {
+    if (size < 0) {
+      throw new IllegalArgumentException("size of a vector must not be less than 0!");
+    }
+    int shift = 0;
+    while ((long) WIDTH << shift < size) {
+      shift += BITS;
+    }
+    return new PersistentVector<T>(size, shift, PersistentVector.filledNode(size, shift, value));
+  }
+
+  // returns a node holding the given number of elements, all the given value, with children the
+  // given shift below it
+  static Object[] filledNode(int count, int shift, Object value) {
+    if (shift == 0) {
+      Object[] leaf = new Object[WIDTH];
+      java.util.Arrays.fill(leaf, 0, Math.min(count, WIDTH), value);
+      return leaf;
+    }
+    Object[] node = new Object[WIDTH];
+    int perChild = 1 << shift;
+    for (int child = 0; child * perChild < count; child += 1) {
+      node[child] = PersistentVector.filledNode(Math.min(perChild, count - child * perChild), shift - BITS, value);
+    }
+    return node;
+  }
+
+  // returns the element at the given index
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("index " + index + " of a vector of size " + this.size);
+    }
+    Object[] node = this.root;
+    for (int level = this.shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & (WIDTH - 1)];
+    }
+    return (T) node[index & (WIDTH - 1)];
+  }
+
+  // returns this vector with the element at the given index replaced by the given value
+  public PersistentVector<T> set(int index, T value) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("index " + index + " of a vector of size " + this.size);
+    }
+    return new PersistentVector<T>(this.size, this.shift, PersistentVector.setIn(this.root, this.shift, index, value));
+  }
+
+  // returns a copy of the given node with the element at the given index replaced, copying only the
+  // nodes on the path to it
+  static Object[] setIn(Object[] node, int level, int index, Object value) {
+    Object[] copy = node.clone();
+    if (level == 0) {
+      copy[index & (WIDTH - 1)] = value;
+    }
+    else {
+      int child = (index >>> level) & (WIDTH - 1);
+      copy[child] = PersistentVector.setIn((Object[]) node[child], level - BITS, index, value);
+    }
+    return copy;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.size... int
+   *  this.shift... int
+   *  this.root... Object[]
+   * METHODS:
+   *  this.get(int)... T
+   *  this.set(int, T)... PersistentVector<T>
+   * METHODS OF FIELDS:
+   */
+}
+
+// a board of guesses kept in persistent vectors: the palette index of every peg in one vector, row
+// after row, and the number of pegs placed in each row in another. Placing or removing a peg sets one element of each,
+// so an edit shares nearly all of the board with the board before it, and every earlier board stays
+// valid to go back to. Rows are counted from 1 and filled from the left, as in ConsLoLoColor
+class VectorBoard implements ILoLoColor {
+  int rows;
+  int length;
+  PersistentVector<Integer> pegs;
+  PersistentVector<Integer> filled;
+  ILoColor[] rowCache;
+
+  // the constructor
+  VectorBoard(int rows, int length, PersistentVector<Integer> pegs, PersistentVector<Integer> filled) {
+    this(rows, length, pegs, filled, new ILoColor[rows]);
+  }
+
+  // the constructor, with the rows of this board already built as lists, null for the ones not built
+  VectorBoard(int rows, int length, PersistentVector<Integer> pegs, PersistentVector<Integer> filled,
+      ILoColor[] rowCache) {
+    this.rows = rows;
+    this.length = length;
+    this.pegs = pegs;
+    this.filled = filled;
+    this.rowCache = rowCache;
+  }
+
+  // returns this board with the given palette index as a peg and the given filled count of the given
+  // row, keeping the lists built for every other row since they have not changed
+  VectorBoard withPeg(int rowIndex, int position, int index, int count) {
+    ILoColor[] rowCache = this.rowCache.clone();
+    rowCache[rowIndex - 1] = null;
+    return new VectorBoard(this.rows, this.length, this.pegs.set((rowIndex - 1) * this.length + position, index),
+        this.filled.set(rowIndex - 1, count), rowCache);
+  }
+
+  // returns a board of the given number of blank rows of the given length
+  static VectorBoard blank(int rows, int length) {
+    return new VectorBoard(rows, length, PersistentVector.filled(rows * length, Palette.EMPTY),
+        PersistentVector.filled(rows, 0));
+  }
+
+  // returns the given board of the given size as a vector board
+  static VectorBoard of(ILoLoColor board, int rows, int length) {
+    VectorBoard vector = VectorBoard.blank(rows, length);
+    for (int row = 1; row <= rows; row += 1) {
+      ILoColor colors = board.getRowAtIndex(row);
+      for (int position = 0; position < length; position += 1) {
+        if (colors.indexAt(position) != Palette.EMPTY) {
+          vector = (VectorBoard) vector.placeGuess(row, colors.getColorAtIndex(position));
+        }
+      }
+    }
+    return vector;
+  }
+
+  // draws the rows stacked with the first row at the bottom, as ConsLoLoColor does
+  public WorldImage drawLoLoColor() {
+    WorldImage image = new EmptyImage();
+    for (int row = this.rows; row >= 1; row -= 1) {
+      image = new AboveImage(image, this.getRowAtIndex(row).drawCircles());
+    }
+    return image;
+  }
+
+  // returns whether there is a row at the given index
+  boolean hasRow(int rowIndex) {
+    return rowIndex >= 1 && rowIndex <= this.rows;
+  }
+
+  // checks if the row at the given index is all guessed
+  public boolean isRowFull(int rowIndex) {
+    return this.hasRow(rowIndex) && this.filled.get(rowIndex - 1) == this.length;
+  }
+
+  // places a guess in the next blank peg of the given row, if it has one
+  public ILoLoColor placeGuess(int rowIndex, Color color) {
+    if (!this.hasRow(rowIndex) || this.isRowFull(rowIndex)) {
+      return this;
+    }
+    int count = this.filled.get(rowIndex - 1);
+    return this.withPeg(rowIndex, count, Palette.indexOf(color), count + 1);
+  }
+
+  // removes the last color placed in the given row, if any
+  public ILoLoColor removeLastColor(int rowIndex) {
+    if (!this.hasRow(rowIndex) || this.filled.get(rowIndex - 1) == 0) {
+      return this;
+    }
+    int count = this.filled.get(rowIndex - 1) - 1;
+    return this.withPeg(rowIndex, count, Palette.EMPTY, count);
+  }
+
+  // gets the row at the given index as a list of colors, building it only the first time it is asked
+  // for, since the board never changes
+  public ILoColor getRowAtIndex(int rowIndex) {
+    if (!this.hasRow(rowIndex)) {
+      return new MtLoColor();
+    }
+    if (this.rowCache[rowIndex - 1] == null) {
+      ILoColor row = new MtLoColor();
+      for (int position = this.length - 1; position >= 0; position -= 1) {
+        if (position < this.filled.get(rowIndex - 1)) {
+          int index = this.pegs.get((rowIndex - 1) * this.length + position);
+          row = new ConsLoColor(Palette.colorOf(index), index, row);
+        }
+        else {
+          row = ConsLoColor.blank(row);
+        }
+      }
+      this.rowCache[rowIndex - 1] = row;
+    }
+    return this.rowCache[rowIndex - 1];
+  }
+
+  // returns how many pegs have been placed in the given row
+  public int pegsPlaced(int rowIndex) {
+    return this.hasRow(rowIndex) ? this.filled.get(rowIndex - 1) : 0;
+  }
+
+  // returns if there is the given color in the given row, comparing palette indices
+  public boolean inListAtRow(int rowIndex, Color color) {
+    int index = Palette.indexOf(color);
+    for (int position = 0; this.hasRow(rowIndex) && position < this.filled.get(rowIndex - 1); position += 1) {
+      if (this.pegs.get((rowIndex - 1) * this.length + position) == index) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.rows... int
+   *  this.length... int
+   *  this.pegs... PersistentVector<Integer>
+   *  this.filled... PersistentVector<Integer>
+   *  this.rowCache... ILoColor[]
+   * METHODS:
+   *  this.withPeg(int, int, int, int)... VectorBoard
+   *  this.drawLoLoColor()... WorldImage
+   *  this.hasRow(int)... boolean
+   *  this.isRowFull(int)... boolean
+   *  this.placeGuess(int, Color)... ILoLoColor
+   *  this.removeLastColor(int)... ILoLoColor
+   *  this.getRowAtIndex(int)... ILoColor
+   *  this.pegsPlaced(int)... int
+   *  this.inListAtRow(int, Color)... boolean
+   * METHODS OF FIELDS:
+   *  this.pegs.get(int)... Integer
+   *  this.pegs.set(int, Integer)... PersistentVector<Integer>
+   *  this.filled.get(int)... Integer
+   *  this.filled.set(int, Integer)... PersistentVector<Integer>
+   */
+}
+
+// every board a game has been through, with a cursor at the current one. Since boards are
+// immutable and share their structure, keeping all of them is cheap, and undoing or redoing only
+// moves the cursor. Recording a board after undoing drops the boards that were undone
+class BoardHistory {
+  java.util.ArrayList<ILoLoColor> boards;
+  int current;
+
+  // the constructor, starting from the given board
+  BoardHistory(ILoLoColor start) {
+    this.boards = new java.util.ArrayList<ILoLoColor>();
+    this.boards.add(start);
+    this.current = 0;
+  }
+
+  // records the given board as the one after the current board, if it is a different one
+  public void record(ILoLoColor board) {
+    if (board == this.boards.get(this.current)) {
+      return;
+    }
+    while (this.boards.size() > this.current + 1) {
+      this.boards.remove(this.boards.size() - 1);
+    }
+    this.boards.add(board);
+    this.current += 1;
+  }
+
+  // returns the current board
+  public ILoLoColor board() {
+    return this.boards.get(this.current);
+  }
+
+  // returns the board before the current one, or the current one if it is the first
+  public ILoLoColor undo() {
+    this.current = Math.max(0, this.current - 1);
+    return this.board();
+  }
+
+  // returns the board after the current one, or the current one if it is the last
+  public ILoLoColor redo() {
+    this.current = Math.min(this.boards.size() - 1, this.current + 1);
+    return this.board();
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.boards... ArrayList<ILoLoColor>
+   *  this.current... int
+   * METHODS:
+   *  this.record(ILoLoColor)... void
+   *  this.board()... ILoLoColor
+   *  this.undo()... ILoLoColor
+   *  this.redo()... ILoLoColor
+   * METHODS OF FIELDS:
+   */
+}
+
+// the edits of a game in order, for undoing and redoing them. An edit is a delta, the row and
+// position of a peg with its color before and after as indices into the possible colors (BLANK for
+// no color), or the submission of a row, and each is packed into one long of a ring buffer, so the
+// timeline never copies the board. Once the buffer is full the oldest edit is forgotten, keeping
+// memory flat however long the game goes on
+class EditTimeline {
+  long[] deltas;
+  int start;
+  int size;
+  int applied;
+
+  // a peg with no color
+  static final int BLANK = -1;
+  // the position of a delta that submits its row
+  static final int SUBMIT = 0xFFFF;
+
+  // the constructor
+  EditTimeline(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity of a timeline must be greater than 0!");
+    }
+    this.deltas = new long[capacity];
+  }
+
+  // packs an edit into a delta, 16 bits each for the row, position, and colors plus one
+  static long delta(int row, int position, int oldColor, int newColor) {
+    return ((long) row << 48) | ((long) position << 32) | ((long) (oldColor + 1) << 16) | (newColor + 1);
+  }
+
+  // returns the row of the given delta
+  static int row(long delta) {
+    return (int) (delta >>> 48) & 0xFFFF;
+  }
+
+  // returns the position of the given delta
+  static int position(long delta) {
+    return (int) (delta >>> 32) & 0xFFFF;
+  }
+
+  // returns the color before the given delta
+  static int oldColor(long delta) {
+    return ((int) (delta >>> 16) & 0xFFFF) - 1;
+  }
+
+  // returns the color after the given delta
+  static int newColor(long delta) {
+    return ((int) delta & 0xFFFF) - 1;
+  }
+
+  // records the given delta after the ones applied, forgetting the ones that were undone, and the
+  // oldest one if the buffer is full
+  public void record(long delta) {
+    this.size = this.applied;
+    if (this.size == this.deltas.length) {
+      this.start = (this.start + 1) % this.deltas.length;
+      this.size -= 1;
+    }
+    this.deltas[(this.start + this.size) % this.deltas.length] = delta;
+    this.size += 1;
+    this.applied = this.size;
+  }
+
+  // returns whether there is an edit to undo
+  public boolean canUndo() {
+    return this.applied > 0;
+  }
+
+  // returns whether there is an undone edit to redo
+  public boolean canRedo() {
+    return this.applied < this.size;
+  }
+
+  // returns the last applied delta and marks it undone
+  public long undo() {
+    this.applied -= 1;
+    return this.deltas[(this.start + this.applied) % this.deltas.length];
+  }
+
+  // returns the first undone delta and marks it applied again
+  public long redo() {
+    this.applied += 1;
+    return this.deltas[(this.start + this.applied - 1) % this.deltas.length];
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.deltas... long[]
+   *  this.start... int
+   *  this.size... int
+   *  this.applied... int
+   * METHODS:
+   *  this.record(long)... void
+   *  this.canUndo()... boolean
+   *  this.canRedo()... boolean
+   *  this.undo()... long
+   *  this.redo()... long
+   * METHODS OF FIELDS:
+   */
+}
+
+// keeps parked games outside the heap, each in a fixed-size slot of a direct buffer, so a very large
+// number of idle games costs neither heap nor garbage collection. A game is loaded into a GameState
+// only while a move is made on it, then written back. A slot holds one byte each for whether it is
+// used, whether duplicates are allowed, the state, the length, the number of guesses, the number of
+// colors, the current row and the pegs placed in it, then the secret, every row's pegs, and every
+// row's exact and inexact matches, a byte each. Rows before the current one are full and rows after
+// it are blank, so no other counts are needed
+class SessionStore {
+  int maxLength;
+  int maxGuesses;
+  int slotSize;
+  int capacity;
+  java.util.ArrayList<java.nio.ByteBuffer> chunks;
+  int[] free;
+  int freeCount;
+  int used;
+
+  // how many slots each direct buffer holds
+  static final int SLOTS_PER_CHUNK = 1 << 16;
+  // the bytes before the pegs of a slot
+  static final int HEADER = 8;
+
+  // the constructor, for at most the given number of games of at most the given size
+  SessionStore(int capacity, int maxLength, int maxGuesses) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity of a session store must be greater than 0!");
+    }
+    if (maxLength <= 0 || maxLength > 127 || maxGuesses <= 0 || maxGuesses > 127) {
+      throw new IllegalArgumentException("length and guesses of a stored game must be between 1 and 127!");
+    }
+    this.maxLength = maxLength;
+    this.maxGuesses = maxGuesses;
+    this.slotSize = HEADER + maxLength + maxGuesses * maxLength + 2 * maxGuesses;
+    this.capacity = capacity;
+    this.chunks = new java.util.ArrayList<java.nio.ByteBuffer>();
+    this.free = new int[capacity];
+    // the free slots are a stack, lowest slot on top, so slots are used in order
+    for (int i = 0; i < capacity; i += 1) {
+      this.free[i] = capacity - 1 - i;
+    }
+    this.freeCount = capacity;
+  }
+
+  // returns the buffer holding the given slot, allocating it the first time
+  java.nio.ByteBuffer chunkOf(int slot) {
+    int chunk = slot / SLOTS_PER_CHUNK;
+    while (this.chunks.size() <= chunk) {
+      int slots = Math.min(SLOTS_PER_CHUNK, this.capacity - this.chunks.size() * SLOTS_PER_CHUNK);
+      this.chunks.add(java.nio.ByteBuffer.allocateDirect(slots * this.slotSize));
+    }
+    return this.chunks.get(chunk);
+  }
+
+  // returns the offset of the given slot in its buffer
+  int offsetOf(int slot) {
+    return (slot % SLOTS_PER_CHUNK) * this.slotSize;
+  }
+
+  // parks the given game in a free slot and returns the slot
+  public int park(GameState game) {
+    if (game.lengthOfSequence > this.maxLength || game.numberOfGuesses > this.maxGuesses || game.colors > 127) {
+      throw new IllegalArgumentException("game is larger than the slots of this session store!");
+    }
+    if (this.freeCount == 0) {
+      throw new IllegalStateException("session store is full!");
+    }
+    this.freeCount -= 1;
+    int slot = this.free[this.freeCount];
+    this.used += 1;
+    this.store(slot, game);
+    return slot;
+  }
+
+  // writes the given game into the given slot
+  public void store(int slot, GameState game) {
+    java.nio.ByteBuffer chunk = this.chunkOf(slot);
+    int offset = this.offsetOf(slot);
+    int length = game.lengthOfSequence;
+    chunk.put(offset, (byte) 1);
+    chunk.put(offset + 1, (byte) (game.duplicatesAllowed ? 1 : 0));
+    chunk.put(offset + 2, (byte) game.status);
+    chunk.put(offset + 3, (byte) length);
+    chunk.put(offset + 4, (byte) game.numberOfGuesses);
+    chunk.put(offset + 5, (byte) game.colors);
+    chunk.put(offset + 6, (byte) game.currentRow);
+    chunk.put(offset + 7, (byte) game.filled[game.currentRow]);
+    int pegs = offset + HEADER;
+    for (int position = 0; position < length; position += 1) {
+      chunk.put(pegs + position, (byte) game.correctSequence[position]);
+    }
+    pegs += this.maxLength;
+    for (int row = 0; row <= game.currentRow; row += 1) {
+      for (int position = 0; position < length; position += 1) {
+        chunk.put(pegs + row * this.maxLength + position, (byte) game.guesses[row][position]);
+      }
+    }
+    int results = pegs + this.maxGuesses * this.maxLength;
+    for (int row = 0; row <= game.currentRow; row += 1) {
+      chunk.put(results + 2 * row, (byte) game.exact[row]);
+      chunk.put(results + 2 * row + 1, (byte) game.inexact[row]);
+    }
+  }
+
+  // returns the game in the given slot, loaded onto the heap
+  public GameState load(int slot) {
+    java.nio.ByteBuffer chunk = this.chunkOf(slot);
+    int offset = this.offsetOf(slot);
+    if (chunk.get(offset) == 0) {
+      throw new IllegalArgumentException("slot " + slot + " holds no game!");
+    }
+    int length = chunk.get(offset + 3);
+    GameState game = new GameState(chunk.get(offset + 1) == 1, length, chunk.get(offset + 4),
+        chunk.get(offset + 5), new Random(0));
+    game.status = chunk.get(offset + 2);
+    game.currentRow = chunk.get(offset + 6);
+    int pegs = offset + HEADER;
+    for (int position = 0; position < length; position += 1) {
+      game.correctSequence[position] = chunk.get(pegs + position);
+    }
+    pegs += this.maxLength;
+    int results = pegs + this.maxGuesses * this.maxLength;
+    for (int row = 0; row <= game.currentRow; row += 1) {
+      game.filled[row] = row < game.currentRow ? length : chunk.get(offset + 7);
+      for (int position = 0; position < game.filled[row]; position += 1) {
+        game.guesses[row][position] = chunk.get(pegs + row * this.maxLength + position);
+      }
+      game.exact[row] = chunk.get(results + 2 * row);
+      game.inexact[row] = chunk.get(results + 2 * row + 1);
+    }
+    return game;
+  }
+
+  // loads the game in the given slot, makes the given move on it, writes it back and returns what
+  // the move returned
+  public <R> R move(int slot, java.util.function.Function<GameState, R> move) {
+    GameState game = this.load(slot);
+    R result = move.apply(game);
+    this.store(slot, game);
+    return result;
+  }
+
+  // frees the given slot for another game
+  public void release(int slot) {
+    java.nio.ByteBuffer chunk = this.chunkOf(slot);
+    if (chunk.get(this.offsetOf(slot)) == 0) {
+      return;
+    }
+    chunk.put(this.offsetOf(slot), (byte) 0);
+    this.free[this.freeCount] = slot;
+    this.freeCount += 1;
+    this.used -= 1;
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.maxLength... int
+   *  this.maxGuesses... int
+   *  this.slotSize... int
+   *  this.capacity... int
+   *  this.chunks... ArrayList<ByteBuffer>
+   *  this.free... int[]
+   *  this.freeCount... int
+   *  this.used... int
+   * METHODS:
+   *  this.chunkOf(int)... ByteBuffer
+   *  this.offsetOf(int)... int
+   *  this.park(GameState)... int
+   *  this.store(int, GameState)... void
+   *  this.load(int)... GameState
+   *  this.move(int, Function<GameState, R>)... R
+   *  this.release(int)... void
+   * METHODS OF FIELDS:
+   */
+}
+
+// the palette of a game: where each color is among the possible colors, found by its index. The
+// index of a color is its ARGB value, so pegs are compared as ints rather than by Color equality
+// without any table shared between games, and a blank peg has an index of its own instead of
+// sharing WHITE's. A fully transparent black peg cannot be seen, and is taken as blank
+class Palette {
+  int[] keys;
+  int[] slots;
+  Color[] colors;
+  int size;
+
+  // the index of a blank peg, the ARGB value of a color that cannot be seen
+  static final int EMPTY = 0;
+
+  // the constructor, for the palette of the first size colors of the given array. Each color is
+  // kept in the table at the slot its index hashes to, or the next free one after it, and a repeated
+  // color keeps its first position
+  Palette(Color[] colors, int size) {
+    this.colors = colors;
+    this.size = size;
+    // at most half of the table is used, so probing stays short
+    int capacity = Integer.highestOneBit(Math.max(8, size) * 4 - 1);
+    this.keys = new int[capacity];
+    this.slots = new int[capacity];
+    for (int position = 0; position < size; position += 1) {
+      int index = Palette.indexOf(colors[position]);
+      int slot = this.slotOf(index);
+      if (this.slots[slot] == 0) {
+        this.keys[slot] = index;
+        this.slots[slot] = position + 1;
+      }
+    }
+  }
+
+  // returns the palette of the given possible colors
+  static Palette of(ILoColor possibleColors) {
+    Color[] colors = new Color[possibleColors.length()];
+    for (int position = 0; position < colors.length; position += 1) {
+      colors[position] = possibleColors.getColorAtIndex(position);
+    }
+    return new Palette(colors, colors.length);
+  }
+
+  // returns the slot of the table holding the given index, or the free slot where it would go
+  int slotOf(int index) {
+    int mask = this.keys.length - 1;
+    int slot = (index * 0x9E3779B9) >>> 16 & mask;
+    while (this.slots[slot] != 0 && this.keys[slot] != index) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  // returns the position in this palette of the color with the given index, or -1 if it is blank or
+  // not in the palette
+  int positionOf(int index) {
+    if (index == EMPTY) {
+      return -1;
+    }
+    return this.slots[this.slotOf(index)] - 1;
+  }
+
+  // returns the index of the given color
+  static int indexOf(Color color) {
+    return color.getRGB();
+  }
+
+  // returns the color with the given index, drawing a blank peg as white
+  static Color colorOf(int index) {
+    if (index == EMPTY) {
+      return Color.WHITE;
+    }
+    return new Color(index, true);
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.keys... int[]
+   *  this.slots... int[]
+   *  this.colors... Color[]
+   *  this.size... int
+   *  Palette.EMPTY... int
+   * METHODS:
+   *  Palette.of(ILoColor)... Palette
+   *  this.slotOf(int)... int
+   *  this.positionOf(int)... int
+   *  Palette.indexOf(Color)... int
+   *  Palette.colorOf(int)... Color
+   * METHODS OF FIELDS:
+   *  possibleColors.getColorAtIndex(int)... Color
+   */
+}
+
+// the settings of a game of Mastermind that do not change between games: the palette, the length
+// of the code, the number of guesses and the rule on duplicates. Everything derived from them, the
+// blank board, the palette position of each color, the size of the code space and the scoring rules,
+// is worked out once and shared by every game made with the same settings
+class GameConfig {
+  boolean duplicatesAllowed;
+  int lengthOfSequence;
+  int numberOfGuesses;
+  ILoColor possibleColors;
+  int colors;
+  Palette palette;
+  ILoLoColor blankBoard;
+  IVariantEngine engine;
+  long size;
+  long codes;
+  CodeSpace space;
+  volatile byte[] scores;
+
+  static final java.util.concurrent.ConcurrentHashMap<String, GameConfig> CONFIGS =
+      new java.util.concurrent.ConcurrentHashMap<String, GameConfig>();
+  // settings past this many are still made but no longer kept
+  static final int MAX_CONFIGS = 1024;
+  // games with at most this many codes keep the result of every guess against every secret
+  static final long MAX_TABLE = 2048;
+  // the longest code whose results, packed as exact times (length + 1) plus inexact, fit in a byte
+  static final int MAX_TABLE_LENGTH = 10;
+
+  // the constructor
+  GameConfig(boolean duplicatesAllowed, int lengthOfSequence, int numberOfGuesses, ILoColor possibleColors) {
+    // makes sure that the length of the sequence to be guessed is always greater than 0
+    if (lengthOfSequence <= 0)  {
+      throw new IllegalArgumentException("length guesses must be greater than 0!");
+    }
+
+    // makes sure that the number of guesses the player has is greater than 0 
+    if (numberOfGuesses <= 0) {
+      throw new IllegalArgumentException("number of guesses must be greater than 0!");
+    }
+
+    // makes sure that the possible colors the player has to guess from is greater than 0 
+    if (possibleColors.length() <= 0) {
+      throw new IllegalArgumentException("sequence of colors must be greater than 0!");
+    }
+
+    // makes sure that if no duplicates are allowed, then the number of possible colors is greater than the 
+    // sequence length
+    if (!duplicatesAllowed && (possibleColors.length() < lengthOfSequence)) {
+      throw new IllegalArgumentException("sequence of colors must not be greater than the amount of possible colors!");
+    }
+
+    this.duplicatesAllowed = duplicatesAllowed;
+    this.lengthOfSequence = lengthOfSequence;
+    this.numberOfGuesses = numberOfGuesses;
+    this.possibleColors = possibleColors;
+    this.colors = possibleColors.length();
+    this.palette = Palette.of(possibleColors);
+    ILoColor blankRow = new MtLoColor();
+    for (int position = 0; position < lengthOfSequence; position += 1) {
+      blankRow = ConsLoColor.blank(blankRow);
+    }
+    ILoLoColor board = new MtLoLoColor();
+    for (int row = 0; row < numberOfGuesses; row += 1) {
+      board = new ConsLoLoColor(blankRow, board);
+    }
+    this.blankBoard = board;
+    // the rules the guesses are scored by, which are faster to score without duplicates
+    if (duplicatesAllowed || this.colors > NoDuplicatesEngine.MAX_COLORS) {
+      this.engine = new StandardEngine(lengthOfSequence, this.colors);
+    }
+    else {
+      this.engine = new NoDuplicatesEngine(lengthOfSequence, this.colors);
+    }
+    this.size = this.engine.size();
+    // every code of this length, including ones the rules on duplicates would not allow
+    this.codes = new StandardEngine(lengthOfSequence, this.colors).size();
+    if (CodeSpace.fits(lengthOfSequence, this.colors)) {
+      this.space = new CodeSpace(lengthOfSequence, this.colors);
+    }
+  }
+
+  // returns the shared settings for the given game, making and checking them the first time
+  static GameConfig of(boolean duplicatesAllowed, int lengthOfSequence, int numberOfGuesses,
+      ILoColor possibleColors) {
+    String key = GameConfig.key(duplicatesAllowed, lengthOfSequence, numberOfGuesses, possibleColors);
+    GameConfig config = CONFIGS.get(key);
+    if (config != null) {
+      return config;
+    }
+    config = new GameConfig(duplicatesAllowed, lengthOfSequence, numberOfGuesses, possibleColors);
+    if (CONFIGS.size() < MAX_CONFIGS) {
+      GameConfig raced = CONFIGS.putIfAbsent(key, config);
+      return raced == null ? config : raced;
+    }
+    return config;
+  }
+
+  // returns the key of the given settings, naming the palette by the palette index of each color
+  static String key(boolean duplicatesAllowed, int lengthOfSequence, int numberOfGuesses,
+      ILoColor possibleColors) {
+    StringBuilder key = new StringBuilder();
+    key.append(duplicatesAllowed).append(',').append(lengthOfSequence).append(',').append(numberOfGuesses);
+    int colors = possibleColors.length();
+    for (int color = 0; color < colors; color += 1) {
+      key.append(',').append(Palette.indexOf(possibleColors.getColorAtIndex(color)));
+    }
+    return key.toString();
+  }
+
+  // returns the given row as the palette position of each peg
+  public int[] codeOf(ILoColor row) {
+    return row.fillCode(this.palette, new int[this.lengthOfSequence], 0);
+  }
+
+  // returns the rank of the given code among every code of this length, or -1 if a peg is not in the palette
+  long rankOf(int[] code) {
+    long rank = 0;
+    for (int position = 0; position < this.lengthOfSequence; position += 1) {
+      if (code[position] < 0) {
+        return -1;
+      }
+      rank = rank * this.colors + code[position];
+    }
+    return rank;
+  }
+
+  // returns the result of every guess against every secret, indexed by guess rank times the number
+  // of codes plus secret rank, as exact times (length + 1) plus inexact, or null if there are too
+  // many codes to keep them all or the codes are too long for a result to fit in a byte
+  public byte[] scoreTable() {
+    byte[] table = this.scores;
+    if (table != null || this.codes > MAX_TABLE || this.lengthOfSequence > MAX_TABLE_LENGTH) {
+      return table;
+    }
+    int count = (int) this.codes;
+    IVariantEngine rules = this.engine.copy();
+    table = new byte[count * count];
+    int[] guess = new int[this.lengthOfSequence];
+    int[] secret = new int[this.lengthOfSequence];
+    for (int guessRank = 0; guessRank < count; guessRank += 1) {
+      this.codeAtRank(guessRank, guess);
+      for (int secretRank = 0; secretRank < count; secretRank += 1) {
+        this.codeAtRank(secretRank, secret);
+        Matches result = rules.score(guess, secret);
+        table[guessRank * count + secretRank] =
+            (byte) (result.exact * (this.lengthOfSequence + 1) + result.inexact);
+      }
+    }
+    this.scores = table;
+    return table;
+  }
+
+  // writes the code of the given rank into the given array, the first peg being the most significant
+  int[] codeAtRank(long rank, int[] code) {
+    for (int position = this.lengthOfSequence - 1; position >= 0; position -= 1) {
+      code[position] = (int) (rank % this.colors);
+      rank = rank / this.colors;
+    }
+    return code;
+  }
+
+  // scores the given guess against the given secret, from the table when the given rules are the ones
+  // it was made with, there is one and both codes are in the palette, and by the given rules otherwise
+  public Matches score(IVariantEngine rules, int[] guess, int[] secret) {
+    if (rules.getClass() != this.engine.getClass()) {
+      return rules.score(guess, secret);
+    }
+    byte[] table = this.scoreTable();
+    long guessRank = this.rankOf(guess);
+    long secretRank = this.rankOf(secret);
+    if (table == null || guessRank < 0 || secretRank < 0) {
+      return rules.score(guess, secret);
+    }
+    int result = table[(int) (guessRank * this.codes + secretRank)];
+    return new Matches(result / (this.lengthOfSequence + 1), result % (this.lengthOfSequence + 1));
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.duplicatesAllowed... boolean
+   *  this.lengthOfSequence... int
+   *  this.numberOfGuesses... int
+   *  this.possibleColors... ILoColor
+   *  this.colors... int
+   *  this.palette... Palette
+   *  this.blankBoard... ILoLoColor
+   *  this.engine... IVariantEngine
+   *  this.size... long
+   *  this.codes... long
+   *  this.space... CodeSpace
+   *  this.scores... byte[]
+   * METHODS:
+   *  GameConfig.of(boolean, int, int, ILoColor)... GameConfig
+   *  GameConfig.key(boolean, int, int, ILoColor)... String
+   *  this.codeOf(ILoColor)... int[]
+   *  this.rankOf(int[])... long
+   *  this.scoreTable()... byte[]
+   *  this.codeAtRank(long, int[])... int[]
+   *  this.score(IVariantEngine, int[], int[])... Matches
+   * METHODS OF FIELDS:
+   *  this.engine.score(int[], int[])... Matches
+   *  this.engine.copy()... IVariantEngine
+   *  this.possibleColors.getColorAtIndex(int)... Color
+   */
+}
+
+// the throughput of one workload over several timed samples, and the bytes it allocated per operation
+class BenchmarkResult {
+  String name;
+  double[] rates;
+  double bytesPerOp;
+
+  // the constructor
+  BenchmarkResult(String name, double[] rates, double bytesPerOp) {
+    if (rates.length < 2) {
+      throw new IllegalArgumentException("number of samples must be greater than 1!");
+    }
+    this.name = name;
+    this.rates = rates;
+    this.bytesPerOp = bytesPerOp;
+  }
+
+  // returns the mean operations per second of the samples
+  public double mean() {
+    double sum = 0;
+    for (double rate : this.rates) {
+      sum += rate;
+    }
+    return sum / this.rates.length;
+  }
+
+  // returns the sample variance of the operations per second
+  public double variance() {
+    double mean = this.mean();
+    double sum = 0;
+    for (double rate : this.rates) {
+      sum += (rate - mean) * (rate - mean);
+    }
+    return sum / (this.rates.length - 1);
+  }
+
+  // returns this result as one line of a baseline file: the name, the bytes per operation, then the samples
+  public String line() {
+    StringBuilder line = new StringBuilder(this.name).append(' ').append(this.bytesPerOp).append(' ');
+    for (int i = 0; i < this.rates.length; i += 1) {
+      line.append(i == 0 ? "" : ",").append(this.rates[i]);
+    }
+    return line.toString();
+  }
+
+  // reads a result back from one line of a baseline file
+  static BenchmarkResult parse(String line) {
+    String[] fields = line.trim().split(" ");
+    if (fields.length != 3) {
+      throw new IllegalArgumentException("baseline line must have a name, bytes per op and samples!");
+    }
+    String[] samples = fields[2].split(",");
+    double[] rates = new double[samples.length];
+    for (int i = 0; i < samples.length; i += 1) {
+      rates[i] = Double.parseDouble(samples[i]);
+    }
+    return new BenchmarkResult(fields[0], rates, Double.parseDouble(fields[1]));
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.name... String
+   *  this.rates... double[]
+   *  this.bytesPerOp... double
+   * METHODS:
+   *  this.mean()... double
+   *  this.variance()... double
+   *  this.line()... String
+   *  BenchmarkResult.parse(String)... BenchmarkResult
+   * METHODS OF FIELDS:
+   */
+}
+
+// runs a fixed suite of workloads over the hot paths of the game (scoring lists of colors, making
+// secrets, playing whole games through the keys, drawing the scene) and compares them with the
+// results stored in FILE. A workload fails when its mean throughput is both significantly lower by
+// Welch's t-test and lower by more than MAX_SLOWDOWN, or when it allocates more than MAX_GROWTH more
+// bytes per operation. Run with: java BenchmarkSuite [record]
+class BenchmarkSuite {
+  // the file the baseline is stored in
+  static final String FILE = "benchmarks.txt";
+  // the workloads, and how many operations each times per sample
+  static final String[] NAMES = {"score", "secret", "game", "scene", "render"};
+  static final int[] OPS = {2000000, 500000, 20000, 20000, 2000};
+  static final int WARMUPS = 5;
+  static final int SAMPLES = 10;
+  // a drop in throughput must be this likely not to be noise, and this large, to fail
+  static final double SIGNIFICANCE = 0.01;
+  static final double MAX_SLOWDOWN = 0.10;
+  // allocation may grow by this share, plus a few bytes of noise, before it fails
+  static final double MAX_GROWTH = 0.10;
+  static final double ALLOCATION_SLACK = 16;
+  // keeps the results of the workloads alive so they are not optimized away
+  static volatile long sink;
+
+  // returns the workload with the given name; each run of it does the given number of operations
+  // and returns a checksum of what they computed
+  static java.util.function.IntToLongFunction workload(String name, long seed) {
+    Random rand = new Random(seed);
+    ILoColor palette = new MtLoColor();
+    for (int color = 5; color >= 0; color -= 1) {
+      palette = new ConsLoColor(new Color(color * 40, 255 - color * 40, 128), palette);
+    }
+    ILoColor colors = palette;
+    if (name.equals("score")) {
+      ILoColor[] codes = new ILoColor[256];
+      for (int i = 0; i < codes.length; i += 1) {
+        codes[i] = colors.generateRandomSequence(rand, true, 4);
+      }
+      return ops -> {
+        long checksum = 0;
+        for (int op = 0; op < ops; op += 1) {
+          ILoColor guess = codes[op & 255];
+          ILoColor secret = codes[(op * 31 + 7) & 255];
+          checksum += guess.exactMatches(secret) * 8 + guess.inexactMatches(secret);
+        }
+        return checksum;
+      };
+    }
+    if (name.equals("secret")) {
+      return ops -> {
+        long checksum = 0;
+        for (int op = 0; op < ops; op += 1) {
+          checksum += colors.generateRandomSequence(rand, op % 2 == 0, 4).length();
+        }
+        return checksum;
+      };
+    }
+    if (name.equals("game")) {
+      return ops -> {
+        long checksum = 0;
+        for (int op = 0; op < ops; op += 1) {
+          checksum += BenchmarkSuite.playGame(new Mastermind(true, 4, 10, colors, rand), rand);
+        }
+        return checksum;
+      };
+    }
+    if (name.equals("scene") || name.equals("render")) {
+      Mastermind game = new Mastermind(true, 4, 10, colors, rand);
+      for (int key = 0; key < 12; key += 1) {
+        game.onKeyEvent(Integer.toString(1 + rand.nextInt(6)));
+        game.onKeyEvent("enter");
+      }
+      if (name.equals("render")) {
+        BoardRenderer renderer = new BoardRenderer();
+        return ops -> {
+          long checksum = 0;
+          for (int op = 0; op < ops; op += 1) {
+            checksum += renderer.render(game).getRGB(op % BoardRenderer.WIDTH, 400);
+          }
+          return checksum;
+        };
+      }
+      return ops -> {
+        long checksum = 0;
+        for (int op = 0; op < ops; op += 1) {
+          checksum += System.identityHashCode(game.drawScene());
+        }
+        return checksum;
+      };
+    }
+    throw new IllegalArgumentException("workload must be one of score, secret, game, scene or render!");
+  }
+
+  // plays random guesses through the keys until the game is won or lost, returning the rows played
+  static int playGame(Mastermind game, Random rand) {
+    for (int row = 1; row <= game.numberOfGuesses; row += 1) {
+      for (int peg = 0; peg < game.lengthOfSequence; peg += 1) {
+        game.onKeyEvent(Integer.toString(1 + rand.nextInt(Math.min(9, game.possibleColors.length()))));
+      }
+      game.onKeyEvent("enter");
+      if (game.currentNumberOfGuesses == row) {
+        return row;
+      }
+    }
+    return game.numberOfGuesses;
+  }
+
+  // times the given workload: the warmup samples are thrown away, then each sample runs the given
+  // number of operations, and the bytes allocated are counted over all of the timed samples
+  static BenchmarkResult measure(String name, java.util.function.IntToLongFunction workload, int ops,
+      int warmups, int samples) {
+    for (int i = 0; i < warmups; i += 1) {
+      sink += workload.applyAsLong(ops);
+    }
+    java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+    com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean
+        ? (com.sun.management.ThreadMXBean) threads : null;
+    long thread = Thread.currentThread().getId();
+    long allocatedBefore = allocations == null ? 0 : allocations.getThreadAllocatedBytes(thread);
+    double[] rates = new double[samples];
+    for (int i = 0; i < samples; i += 1) {
+      long start = System.nanoTime();
+      sink += workload.applyAsLong(ops);
+      rates[i] = ops * 1e9 / Math.max(1, System.nanoTime() - start);
+    }
+    // without a count of allocated bytes, allocation is reported as -1 and never compared
+    double bytesPerOp = allocations == null ? -1
+        : (allocations.getThreadAllocatedBytes(thread) - allocatedBefore) / (double) (ops * (long) samples);
+    return new BenchmarkResult(name, rates, bytesPerOp);
+  }
+
+  // returns Welch's t statistic of the current result against the baseline, negative when it is slower
+  static double welchT(BenchmarkResult baseline, BenchmarkResult current) {
+    double error = Math.sqrt(baseline.variance() / baseline.rates.length
+        + current.variance() / current.rates.length);
+    if (error == 0) {
+      return current.mean() == baseline.mean() ? 0 : Math.signum(current.mean() - baseline.mean())
+          * Double.POSITIVE_INFINITY;
+    }
+    return (current.mean() - baseline.mean()) / error;
+  }
+
+  // returns the Welch-Satterthwaite degrees of freedom of the two results
+  static double welchDegrees(BenchmarkResult baseline, BenchmarkResult current) {
+    double a = baseline.variance() / baseline.rates.length;
+    double b = current.variance() / current.rates.length;
+    if (a + b == 0) {
+      return baseline.rates.length + current.rates.length - 2;
+    }
+    return (a + b) * (a + b)
+        / (a * a / (baseline.rates.length - 1) + b * b / (current.rates.length - 1));
+  }
+
+  // returns the probability that a Student's t variable with the given degrees of freedom is below t
+  static double studentCdf(double t, double degrees) {
+    if (Double.isInfinite(t)) {
+      return t > 0 ? 1 : 0;
+    }
+    double tail = 0.5 * BenchmarkSuite.incompleteBeta(degrees / (degrees + t * t), degrees / 2, 0.5);
+    return t > 0 ? 1 - tail : tail;
+  }
+
+  // returns the regularized incomplete beta function I_x(a, b)
+  static double incompleteBeta(double x, double a, double b) {
+    if (x <= 0) {
+      return 0;
+    }
+    if (x >= 1) {
+      return 1;
+    }
+    double front = Math.exp(BenchmarkSuite.logGamma(a + b) - BenchmarkSuite.logGamma(a)
+        - BenchmarkSuite.logGamma(b) + a * Math.log(x) + b * Math.log(1 - x));
+    // the continued fraction converges quickly only below this point, so past it the symmetry
+    // I_x(a, b) = 1 - I_(1-x)(b, a) is used
+    if (x < (a + 1) / (a + b + 2)) {
+      return front * BenchmarkSuite.betaFraction(x, a, b) / a;
+    }
+    return 1 - front * BenchmarkSuite.betaFraction(1 - x, b, a) / b;
+  }
+
+  // evaluates the continued fraction of the incomplete beta function by Lentz's method
+  static double betaFraction(double x, double a, double b) {
+    double tiny = 1e-300;
+    double c = 1;
+    double d = 1 - (a + b) * x / (a + 1);
+    d = 1 / (Math.abs(d) < tiny ? tiny : d);
+    double fraction = d;
+    for (int m = 1; m <= 200; m += 1) {
+      for (int half = 0; half < 2; half += 1) {
+        double numerator = half == 0
+            ? m * (b - m) * x / ((a + 2 * m - 1) * (a + 2 * m))
+            : -(a + m) * (a + b + m) * x / ((a + 2 * m) * (a + 2 * m + 1));
+        d = 1 + numerator * d;
+        d = 1 / (Math.abs(d) < tiny ? tiny : d);
+        c = 1 + numerator / c;
+        c = Math.abs(c) < tiny ? tiny : c;
+        fraction *= d * c;
+      }
+      if (Math.abs(d * c - 1) < 1e-12) {
+        break;
+      }
+    }
+    return fraction;
+  }
+
+  // returns the log of the gamma function by the Lanczos approximation
+  static double logGamma(double x) {
+    double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+        -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+    double sum = 1.000000000190015;
+    for (int i = 0; i < coefficients.length; i += 1) {
+      sum += coefficients[i] / (x + 1 + i);
+    }
+    double shifted = x + 5.5;
+    return (x + 0.5) * Math.log(shifted) - shifted + Math.log(2.5066282746310005 * sum / x);
+  }
+
+  // returns why the current result is a regression from the baseline, or null if it is not
+  static String regression(BenchmarkResult baseline, BenchmarkResult current) {
+    double slowdown = 1 - current.mean() / baseline.mean();
+    double p = BenchmarkSuite.studentCdf(BenchmarkSuite.welchT(baseline, current),
+        BenchmarkSuite.welchDegrees(baseline, current));
+    if (slowdown > MAX_SLOWDOWN && p < SIGNIFICANCE) {
+      return String.format("%s: throughput fell %.1f%% (p = %.4f)", current.name, slowdown * 100, p);
+    }
+    if (baseline.bytesPerOp >= 0 && current.bytesPerOp >= 0
+        && current.bytesPerOp > baseline.bytesPerOp * (1 + MAX_GROWTH) + ALLOCATION_SLACK) {
+      return String.format("%s: allocation grew from %.1f to %.1f bytes per op", current.name,
+          baseline.bytesPerOp, current.bytesPerOp);
+    }
+    return null;
+  }
+
+  // reads the results of a baseline file, skipping comments
+  static java.util.LinkedHashMap<String, BenchmarkResult> load(java.io.BufferedReader in) throws java.io.IOException {
+    java.util.LinkedHashMap<String, BenchmarkResult> results = new java.util.LinkedHashMap<String, BenchmarkResult>();
+    for (String line = in.readLine(); line != null; line = in.readLine()) {
+      if (!line.isBlank() && !line.startsWith("#")) {
+        BenchmarkResult result = BenchmarkResult.parse(line);
+        results.put(result.name, result);
+      }
+    }
+    return results;
+  }
+
+  // writes the given results as a baseline file
+  static void write(java.io.PrintStream out, java.util.Collection<BenchmarkResult> results) {
+    out.println("# name bytesPerOp opsPerSecond,... generated by BenchmarkSuite record");
+    for (BenchmarkResult result : results) {
+      out.println(result.line());
+    }
+  }
+
+  // runs the suite, then records it as the baseline if asked to or if there is none, and otherwise
+  // compares it with the baseline and exits with status 1 if any workload regressed
+  public static void main(String[] args) throws java.io.IOException {
+    java.util.ArrayList<BenchmarkResult> results = new java.util.ArrayList<BenchmarkResult>();
+    for (int i = 0; i < NAMES.length; i += 1) {
+      BenchmarkResult result = BenchmarkSuite.measure(NAMES[i], BenchmarkSuite.workload(NAMES[i], 42), OPS[i],
+          WARMUPS, SAMPLES);
+      System.out.printf("%-8s %14.0f ops/s +- %.1f%% %10.1f bytes/op%n", result.name, result.mean(),
+          100 * Math.sqrt(result.variance()) / result.mean(), result.bytesPerOp);
+      results.add(result);
+    }
+    java.io.File file = new java.io.File(FILE);
+    if ((args.length > 0 && args[0].equals("record")) || !file.exists()) {
+      try (java.io.PrintStream out = new java.io.PrintStream(new java.io.FileOutputStream(file))) {
+        BenchmarkSuite.write(out, results);
+      }
+      System.out.println("recorded the baseline in " + FILE);
+      return;
+    }
+    java.util.LinkedHashMap<String, BenchmarkResult> baseline;
+    try (java.io.BufferedReader in = new java.io.BufferedReader(new java.io.FileReader(file))) {
+      baseline = BenchmarkSuite.load(in);
+    }
+    int failures = 0;
+    for (BenchmarkResult result : results) {
+      String failure = baseline.containsKey(result.name)
+          ? BenchmarkSuite.regression(baseline.get(result.name), result) : null;
+      if (failure != null) {
+        System.out.println("REGRESSION " + failure);
+        failures += 1;
+      }
+    }
+    System.out.println(failures == 0 ? "no regressions against " + FILE : failures + " regressions");
+    if (failures > 0) {
+      System.exit(1);
+    }
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  BenchmarkSuite.sink... long
+   * METHODS:
+   *  BenchmarkSuite.workload(String, long)... IntToLongFunction
+   *  BenchmarkSuite.playGame(Mastermind, Random)... int
+   *  BenchmarkSuite.measure(String, IntToLongFunction, int, int, int)... BenchmarkResult
+   *  BenchmarkSuite.welchT(BenchmarkResult, BenchmarkResult)... double
+   *  BenchmarkSuite.welchDegrees(BenchmarkResult, BenchmarkResult)... double
+   *  BenchmarkSuite.studentCdf(double, double)... double
+   *  BenchmarkSuite.incompleteBeta(double, double, double)... double
+   *  BenchmarkSuite.betaFraction(double, double, double)... double
+   *  BenchmarkSuite.logGamma(double)... double
+   *  BenchmarkSuite.regression(BenchmarkResult, BenchmarkResult)... String
+   *  BenchmarkSuite.load(BufferedReader)... LinkedHashMap<String, BenchmarkResult>
+   *  BenchmarkSuite.write(PrintStream, Collection<BenchmarkResult>)... void
+   * METHODS OF FIELDS:
+   *  result.mean()... double
+   *  result.variance()... double
+   */
+}
+
+// the flight recorder events of a game. Each is cheap when nothing is recording: an event is only
+// filled in and committed once shouldCommit says a recording wants it. None keep stack traces, since
+// where each one is emitted is fixed
+@jdk.jfr.Name("mastermind.GameCreated")
+@jdk.jfr.Label("Game Created")
+@jdk.jfr.Category("Mastermind")
+@jdk.jfr.StackTrace(false)
+class GameCreatedEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Length")
+  int length;
+  @jdk.jfr.Label("Colors")
+  int colors;
+  @jdk.jfr.Label("Guesses")
+  int guesses;
+  @jdk.jfr.Label("Duplicates Allowed")
+  boolean duplicatesAllowed;
+
+  // fills in the event and commits it, if it is being recorded
+  void report(int length, int colors, int guesses, boolean duplicatesAllowed) {
+    if (this.shouldCommit()) {
+      this.length = length;
+      this.colors = colors;
+      this.guesses = guesses;
+      this.duplicatesAllowed = duplicatesAllowed;
+      this.commit();
+    }
+  }
+}
+
+// a key event and how long the game took to handle it
+@jdk.jfr.Name("mastermind.KeyPress")
+@jdk.jfr.Label("Key Press")
+@jdk.jfr.Category("Mastermind")
+@jdk.jfr.StackTrace(false)
+class KeyPressEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Key")
+  String key;
+  @jdk.jfr.Label("Row")
+  int row;
+
+  // ends the event, then fills it in and commits it, if it is being recorded
+  void report(String key, int row) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.key = key;
+      this.row = row;
+      this.commit();
+    }
+  }
+}
+
+// a row submitted and how it was scored
+@jdk.jfr.Name("mastermind.Submission")
+@jdk.jfr.Label("Submission")
+@jdk.jfr.Category("Mastermind")
+@jdk.jfr.StackTrace(false)
+class SubmissionEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Row")
+  int row;
+  @jdk.jfr.Label("Exact")
+  int exact;
+  @jdk.jfr.Label("Inexact")
+  int inexact;
+  @jdk.jfr.Label("Status")
+  @jdk.jfr.Description("GameState.PLAYING, WON or LOST after the row")
+  int status;
+
+  // fills in the event and commits it, if it is being recorded
+  void report(int row, int exact, int inexact, int status) {
+    if (this.shouldCommit()) {
+      this.row = row;
+      this.exact = exact;
+      this.inexact = inexact;
+      this.status = status;
+      this.commit();
+    }
+  }
+}
+
+// how long making the secret of a game took
+@jdk.jfr.Name("mastermind.SecretGenerated")
+@jdk.jfr.Label("Secret Generated")
+@jdk.jfr.Category("Mastermind")
+@jdk.jfr.StackTrace(false)
+class SecretGeneratedEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Length")
+  int length;
+  @jdk.jfr.Label("Duplicates Allowed")
+  boolean duplicatesAllowed;
+
+  // ends the event, then fills it in and commits it, if it is being recorded
+  void report(int length, boolean duplicatesAllowed) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.length = length;
+      this.duplicatesAllowed = duplicatesAllowed;
+      this.commit();
+    }
+  }
+}
+
+// how long choosing a suggested guess took, where it came from and how many codes were still possible
+@jdk.jfr.Name("mastermind.GuessSelected")
+@jdk.jfr.Label("Guess Selected")
+@jdk.jfr.Category({"Mastermind", "Solver"})
+@jdk.jfr.StackTrace(false)
+class GuessSelectedEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Row")
+  int row;
+  @jdk.jfr.Label("Source")
+  @jdk.jfr.Description("opening, exact, genetic or sampled")
+  String source;
+  @jdk.jfr.Label("Candidates")
+  long candidates;
+
+  // ends the event, then fills in the row and commits it, if it is being recorded
+  void report(int row) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.row = row;
+      this.commit();
+    }
+  }
+}
+
+// how long making the scene took, and whether the scene drawn on the last tick was used again
+@jdk.jfr.Name("mastermind.SceneRendered")
+@jdk.jfr.Label("Scene Rendered")
+@jdk.jfr.Category("Mastermind")
+@jdk.jfr.StackTrace(false)
+class SceneRenderedEvent extends jdk.jfr.Event {
+  @jdk.jfr.Label("Cached")
+  boolean cached;
+  @jdk.jfr.Label("Row")
+  int row;
+
+  // ends the event, then fills it in and commits it, if it is being recorded
+  void report(boolean cached, int row) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.cached = cached;
+      this.row = row;
+      this.commit();
+    }
+  }
+}
+
+// a histogram that many threads can record into without locking: a LongAdder per bucket, each
+// bucket counting the values up to its bound that are above the bound before it
+class MetricHistogram {
+  double[] bounds;
+  java.util.concurrent.atomic.LongAdder[] buckets;
+  java.util.concurrent.atomic.LongAdder count;
+  java.util.concurrent.atomic.DoubleAdder sum;
+
+  // the constructor
+  MetricHistogram(double[] bounds) {
+    for (int i = 1; i < bounds.length; i += 1) {
+      if (bounds[i] <= bounds[i - 1]) {
+        throw new IllegalArgumentException("bounds of a histogram must be increasing!");
+      }
+    }
+    this.bounds = bounds;
+    // the last bucket holds the values above every bound
+    this.buckets = new java.util.concurrent.atomic.LongAdder[bounds.length + 1];
+    for (int i = 0; i < this.buckets.length; i += 1) {
+      this.buckets[i] = new java.util.concurrent.atomic.LongAdder();
+    }
+    this.count = new java.util.concurrent.atomic.LongAdder();
+    this.sum = new java.util.concurrent.atomic.DoubleAdder();
+  }
+
+  // counts the given value in the first bucket whose bound it does not pass
+  public void record(double value) {
+    int bucket = 0;
+    while (bucket < this.bounds.length && value > this.bounds[bucket]) {
+      bucket += 1;
+    }
+    this.buckets[bucket].increment();
+    this.count.increment();
+    this.sum.add(value);
+  }
+
+  // writes the histogram in the Prometheus text format, where each bucket counts every value up to its bound
+  public void write(StringBuilder out, String name, String help) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(" histogram\n");
+    long cumulative = 0;
+    for (int i = 0; i < this.buckets.length; i += 1) {
+      cumulative += this.buckets[i].sum();
+      String bound = i < this.bounds.length ? Double.toString(this.bounds[i]) : "+Inf";
+      out.append(name).append("_bucket{le=\"").append(bound).append("\"} ").append(cumulative).append('\n');
+    }
+    out.append(name).append("_sum ").append(this.sum.sum()).append('\n');
+    out.append(name).append("_count ").append(this.count.sum()).append('\n');
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.bounds... double[]
+   *  this.buckets... LongAdder[]
+   *  this.count... LongAdder
+   *  this.sum... DoubleAdder
+   * METHODS:
+   *  this.record(double)... void
+   *  this.write(StringBuilder, String, String)... void
+   * METHODS OF FIELDS:
+   *  this.buckets[i].increment()... void
+   *  this.buckets[i].sum()... long
+   */
+}
+
+// the counters and histograms of every game in this process, fed by Mastermind as games start, keys
+// are pressed, rows are scored and submitted, scenes are drawn and games end. Submissions per second
+// are the rate of the submissions counter, which Prometheus works out from successive scrapes
+class GameMetrics {
+  java.util.concurrent.atomic.LongAdder gamesStarted;
+  java.util.concurrent.atomic.LongAdder gamesWon;
+  java.util.concurrent.atomic.LongAdder gamesLost;
+  java.util.concurrent.atomic.LongAdder keyEvents;
+  java.util.concurrent.atomic.LongAdder submissions;
+  java.util.concurrent.atomic.LongAdder scoringCalls;
+  MetricHistogram guessesPerGame;
+  MetricHistogram renderSeconds;
+
+  // the metrics every game records into
+  static final GameMetrics METRICS = new GameMetrics();
+
+  // the constructor
+  GameMetrics() {
+    this.gamesStarted = new java.util.concurrent.atomic.LongAdder();
+    this.gamesWon = new java.util.concurrent.atomic.LongAdder();
+    this.gamesLost = new java.util.concurrent.atomic.LongAdder();
+    this.keyEvents = new java.util.concurrent.atomic.LongAdder();
+    this.submissions = new java.util.concurrent.atomic.LongAdder();
+    this.scoringCalls = new java.util.concurrent.atomic.LongAdder();
+    this.guessesPerGame = new MetricHistogram(new double[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 12, 15, 20});
+    this.renderSeconds = new MetricHistogram(new double[] {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005,
+        0.01, 0.025, 0.05, 0.1});
+  }
+
+  // counts a game that ended, won or lost, after the given number of rows
+  public void gameEnded(boolean won, int rows) {
+    if (won) {
+      this.gamesWon.increment();
+    }
+    else {
+      this.gamesLost.increment();
+    }
+    this.guessesPerGame.record(rows);
+  }
+
+  // returns every metric in the Prometheus text format
+  public String exposition() {
+    StringBuilder out = new StringBuilder();
+    GameMetrics.counter(out, "mastermind_games_started_total", "Games created.", this.gamesStarted);
+    GameMetrics.counter(out, "mastermind_games_won_total", "Games won.", this.gamesWon);
+    GameMetrics.counter(out, "mastermind_games_lost_total", "Games lost.", this.gamesLost);
+    GameMetrics.counter(out, "mastermind_key_events_total", "Key events handled.", this.keyEvents);
+    GameMetrics.counter(out, "mastermind_submissions_total", "Rows submitted and scored.", this.submissions);
+    GameMetrics.counter(out, "mastermind_scoring_calls_total", "Rows scored against a secret.", this.scoringCalls);
+    this.guessesPerGame.write(out, "mastermind_guesses_per_game", "Rows used by each finished game.");
+    this.renderSeconds.write(out, "mastermind_render_seconds", "Time taken to make each scene.");
+    return out.toString();
+  }
+
+  // writes the given counter in the Prometheus text format
+  static void counter(StringBuilder out, String name, String help, java.util.concurrent.atomic.LongAdder value) {
+    out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    out.append("# TYPE ").append(name).append(" counter\n");
+    out.append(name).append(' ').append(value.sum()).append('\n');
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.gamesStarted... LongAdder
+   *  this.gamesWon... LongAdder
+   *  this.gamesLost... LongAdder
+   *  this.keyEvents... LongAdder
+   *  this.submissions... LongAdder
+   *  this.scoringCalls... LongAdder
+   *  this.guessesPerGame... MetricHistogram
+   *  this.renderSeconds... MetricHistogram
+   * METHODS:
+   *  this.gameEnded(boolean, int)... void
+   *  this.exposition()... String
+   *  GameMetrics.counter(StringBuilder, String, String, LongAdder)... void
+   * METHODS OF FIELDS:
+   *  this.guessesPerGame.record(double)... void
+   *  this.guessesPerGame.write(StringBuilder, String, String)... void
+   *  this.renderSeconds.write(StringBuilder, String, String)... void
+   */
+}
+
+// serves the metrics of the given GameMetrics at /metrics on the loopback address, so only the
+// machine running the games can scrape them. The endpoint runs inside the process playing the games,
+// started by HeadlessGame with --metrics-port <port> and by the javalib game with -Dmetrics.port=<port>,
+// which ExamplesMastermind serves from once when the class is loaded, before testMastermind plays
+class MetricsEndpoint {
+  // the port Prometheus is pointed at when --metrics-port is given without one
+  static final int PORT = 9404;
+  // the argument asking for the endpoint
+  static final String OPTION = "--metrics-port";
+  // the system property asking for the endpoint of the javalib game
+  static final String PROPERTY = "metrics.port";
+
+  // starts serving the given metrics on the given port, 0 picking any free port
+  static com.sun.net.httpserver.HttpServer start(GameMetrics metrics, int port) throws java.io.IOException {
+    com.sun.net.httpserver.HttpServer server = com.sun.net.httpserver.HttpServer.create(
+        new java.net.InetSocketAddress(java.net.InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/metrics", exchange -> {
+      byte[] body = metrics.exposition().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+      exchange.sendResponseHeaders(200, body.length);
+      try (java.io.OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+    return server;
+  }
+
+  // returns the port given after --metrics-port in the given arguments, PORT if none follows it,
+  // or -1 if the endpoint was not asked for
+  static int port(String[] args) {
+    for (int i = 0; i < args.length; i += 1) {
+      if (args[i].equals(OPTION)) {
+        if (i + 1 == args.length) {
+          return PORT;
+        }
+        try {
+          int port = Integer.parseInt(args[i + 1]);
+          if (port >= 0 && port <= 65535) {
+            return port;
+          }
+        }
+        catch (NumberFormatException e) {
+          // reported below, as a port out of range is
+        }
+        throw new IllegalArgumentException("metrics port must be between 0 and 65535!");
+      }
+    }
+    return -1;
+  }
+
+  // serves the metrics of the games in this process on the given port, or does nothing and returns
+  // null if the port is negative. The address goes to stderr, since stdout may carry a protocol
+  static com.sun.net.httpserver.HttpServer serve(int port) throws java.io.IOException {
+    if (port < 0) {
+      return null;
+    }
+    com.sun.net.httpserver.HttpServer server = MetricsEndpoint.start(GameMetrics.METRICS, port);
+    System.err.println("serving metrics at http://localhost:" + server.getAddress().getPort() + "/metrics");
+    return server;
+  }
+
+  // serves the metrics of the javalib game on the port of the PROPERTY, or returns null if it is not
+  // set or the port cannot be served, since the game is played either way
+  static com.sun.net.httpserver.HttpServer serveProperty() {
+    try {
+      return MetricsEndpoint.serve(Integer.getInteger(PROPERTY, -1));
+    }
+    catch (java.io.IOException e) {
+      System.err.println("cannot serve metrics: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  MetricsEndpoint.PORT... int
+   *  MetricsEndpoint.OPTION... String
+   *  MetricsEndpoint.PROPERTY... String
+   * METHODS:
+   *  MetricsEndpoint.start(GameMetrics, int)... HttpServer
+   *  MetricsEndpoint.port(String[])... int
+   *  MetricsEndpoint.serve(int)... HttpServer
+   *  MetricsEndpoint.serveProperty()... HttpServer
+   * METHODS OF FIELDS:
+   *  metrics.exposition()... String
+   */
+}
+
+// draws the board of a game, laid out as Mastermind.drawScene and lastScene lay it out, straight into
+// one BufferedImage that is reused for every render, without a display and without building a
+// WorldImage tree. Each peg is a copy of a circle sprite drawn once per palette index. A renderer is
+// not safe to share between threads, so each thread rendering keeps its own
+class BoardRenderer {
+  java.awt.image.BufferedImage canvas;
+  java.awt.Graphics2D graphics;
+  java.util.HashMap<Integer, java.awt.image.BufferedImage> sprites;
+  java.util.HashMap<Integer, java.awt.Font> fonts;
+
+  // the size of the scene and of a peg, as in Mastermind
+  static final int WIDTH = 500;
+  static final int HEIGHT = 700;
+  static final int RADIUS = 20;
+  // the font javalib draws a TextImage in
+  static final String FONT = "Arial";
+  // sprites past this many are drawn again rather than kept, as a color may be seen only once
+  static final int MAX_SPRITES = 256;
+
+  // the constructor
+  BoardRenderer() {
+    this.canvas = new java.awt.image.BufferedImage(WIDTH, HEIGHT, java.awt.image.BufferedImage.TYPE_INT_RGB);
+    this.graphics = this.canvas.createGraphics();
+    this.graphics.setRenderingHint(java.awt.RenderingHints.KEY_TEXT_ANTIALIASING,
+        java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    this.sprites = new java.util.HashMap<Integer, java.awt.image.BufferedImage>();
+    this.fonts = new java.util.HashMap<Integer, java.awt.Font>();
+  }
+
+  // returns the circle of the color with the given palette index, drawing it the first time
+  java.awt.image.BufferedImage sprite(int index) {
+    java.awt.image.BufferedImage sprite = this.sprites.get(index);
+    if (sprite == null) {
+      sprite = new java.awt.image.BufferedImage(2 * RADIUS, 2 * RADIUS, java.awt.image.BufferedImage.TYPE_INT_ARGB);
+      java.awt.Graphics2D g = sprite.createGraphics();
+      g.setRenderingHint(java.awt.RenderingHints.KEY_ANTIALIASING, java.awt.RenderingHints.VALUE_ANTIALIAS_ON);
+      g.setColor(Palette.colorOf(index));
+      g.fillOval(0, 0, 2 * RADIUS, 2 * RADIUS);
+      g.dispose();
+      if (this.sprites.size() >= MAX_SPRITES) {
+        this.sprites.clear();
+      }
+      this.sprites.put(index, sprite);
+    }
+    return sprite;
+  }
+
+  // returns the font of the given size
+  java.awt.Font font(int size) {
+    java.awt.Font font = this.fonts.get(size);
+    if (font == null) {
+      font = new java.awt.Font(FONT, java.awt.Font.PLAIN, size);
+      this.fonts.put(size, font);
+    }
+    return font;
+  }
+
+  // draws the given row of pegs with its left edge at x and its top at y
+  void drawRow(ILoColor row, int x, int y) {
+    int length = row.length();
+    for (int position = 0; position < length; position += 1) {
+      this.graphics.drawImage(this.sprite(row.indexAt(position)), x + 2 * RADIUS * position, y, null);
+    }
+  }
+
+  // draws the given row of pegs centered on the given point
+  void drawRowCentered(ILoColor row, int x, int y) {
+    this.drawRow(row, x - RADIUS * row.length(), y - RADIUS);
+  }
+
+  // draws the given text in the given size and color centered on the given point
+  void drawText(String text, int size, Color color, int x, int y) {
+    this.graphics.setFont(this.font(size));
+    this.graphics.setColor(color);
+    java.awt.FontMetrics metrics = this.graphics.getFontMetrics();
+    this.graphics.drawString(text, x - metrics.stringWidth(text) / 2,
+        y + (metrics.getAscent() - metrics.getDescent()) / 2);
+  }
+
+  // draws the lines of text stacked in the given size, the whole block centered on the given point
+  void drawLines(String[] lines, Color[] colors, int size, int x, int y) {
+    int top = y - size * lines.length / 2;
+    for (int line = 0; line < lines.length; line += 1) {
+      this.drawText(lines[line], size, colors[line], x, top + size * line + size / 2);
+    }
+  }
+
+  // draws what drawScene draws for the given game: the background, the rows of guesses with the first
+  // at the bottom, the palette, and the matches with the most recent on top
+  void drawBoard(Mastermind game) {
+    int x = (WIDTH - (20 * game.possibleColors.length())) / 2;
+    this.graphics.setColor(Color.PINK);
+    this.graphics.fillRect(0, 0, WIDTH, HEIGHT);
+    this.drawText("exact    inexact", 20, Color.BLACK, 400, 500);
+    int rows = game.numberOfGuesses;
+    int top = 400 - RADIUS * rows;
+    for (int row = 1; row <= rows; row += 1) {
+      this.drawRowCentered(game.listOfGuesses.getRowAtIndex(row), x, top + 2 * RADIUS * (rows - row) + RADIUS);
+    }
+    this.drawRowCentered(game.possibleColors, x, 650);
+    int count = game.listOfMatches.length();
+    String[] lines = new String[count];
+    Color[] colors = new Color[count];
+    for (int i = 0; i < count; i += 1) {
+      Matches matches = game.listOfMatches.getMatchAtIndex(i);
+      lines[i] = "" + matches.exact + "       " + matches.inexact;
+      colors[i] = Color.BLACK;
+    }
+    this.drawLines(lines, colors, 30, 400, 500 - game.currentNumberOfGuesses * 20);
+  }
+
+  // renders the scene of the given game into the reused canvas and returns it
+  public java.awt.image.BufferedImage render(Mastermind game) {
+    this.drawBoard(game);
+    return this.canvas;
+  }
+
+  // renders the last scene of the given game, with the secret, the given message and how each row
+  // went, into the reused canvas and returns it
+  public java.awt.image.BufferedImage renderLast(Mastermind game, String msg) {
+    this.drawBoard(game);
+    int x = (WIDTH - (20 * game.possibleColors.length())) / 2;
+    this.drawRowCentered(game.correctSequence, x, 100);
+    this.drawText(msg, 40, Color.BLACK, x, 150);
+    RowReport[] reports = game.analyze();
+    String[] lines = new String[reports.length];
+    Color[] colors = new Color[reports.length];
+    for (int row = 0; row < reports.length; row += 1) {
+      lines[row] = reports[row].describe();
+      colors[row] = reports[row].wasted ? Color.RED : Color.BLACK;
+    }
+    this.drawLines(lines, colors, 12, 250, 230);
+    return this.canvas;
+  }
+
+  // encodes the given image as PNG bytes
+  static byte[] png(java.awt.image.BufferedImage image) {
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    try {
+      javax.imageio.ImageIO.write(image, "png", bytes);
+    }
+    catch (java.io.IOException e) {
+      throw new java.io.UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  // renders the scene of the given game as PNG bytes
+  public byte[] renderPng(Mastermind game) {
+    return BoardRenderer.png(this.render(game));
+  }
+
+  // renders the last scene of the given game as PNG bytes
+  public byte[] renderLastPng(Mastermind game, String msg) {
+    return BoardRenderer.png(this.renderLast(game, msg));
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  this.canvas... BufferedImage
+   *  this.graphics... Graphics2D
+   *  this.sprites... HashMap<Integer, BufferedImage>
+   *  this.fonts... HashMap<Integer, Font>
+   * METHODS:
+   *  this.sprite(int)... BufferedImage
+   *  this.font(int)... Font
+   *  this.drawRow(ILoColor, int, int)... void
+   *  this.drawRowCentered(ILoColor, int, int)... void
+   *  this.drawText(String, int, Color, int, int)... void
+   *  this.drawLines(String[], Color[], int, int, int)... void
+   *  this.drawBoard(Mastermind)... void
+   *  this.render(Mastermind)... BufferedImage
+   *  this.renderLast(Mastermind, String)... BufferedImage
+   *  BoardRenderer.png(BufferedImage)... byte[]
+   *  this.renderPng(Mastermind)... byte[]
+   *  this.renderLastPng(Mastermind, String)... byte[]
+   * METHODS OF FIELDS:
+   *  this.graphics.drawImage(Image, int, int, ImageObserver)... boolean
+   *  this.graphics.drawString(String, int, int)... void
+   *  game.listOfGuesses.getRowAtIndex(int)... ILoColor
+   *  game.listOfMatches.getMatchAtIndex(int)... Matches
+   */
+}
+
+// snapshot tests of rendering: a fixed matrix of games, each drawn by makeScene blank and part way
+// through and by lastScene at its end, is drawn offscreen and compared with the golden PNG stored for
+// it in DIRECTORY. Pixels are compared by luma-weighted color difference so antialiasing noise is
+// tolerated, and a case fails when more than MAX_DIFFERENT of its pixels differ or it has no golden
+// image. Failing cases leave the actual image and a map of the differing pixels in a separate output
+// directory, so checking never writes into DIRECTORY. The cases are rendered in parallel.
+// Run with: java [-Dgolden.dir=<directory>] GoldenImages [update]
+class GoldenImages {
+  // where the golden images are stored, golden in the working directory unless -Dgolden.dir is given
+  static final String DIRECTORY = System.getProperty("golden.dir", "golden");
+  // how far apart two pixels may be, weighted by how bright each channel looks, and still match
+  static final int TOLERANCE = 24;
+  // the share of pixels that may differ before a case fails
+  static final double MAX_DIFFERENT = 0.002;
+  // the colors the palettes are taken from
+  static final Color[] COLORS = {new Color(84, 237, 50), new Color(255, 103, 85), new Color(255, 156, 18),
+      new Color(112, 207, 245), new Color(170, 112, 245), new Color(255, 244, 38), Color.BLACK, Color.GRAY};
+  // the kinds of game: length, colors and whether duplicates are allowed
+  static final int[][] KINDS = {{4, 6, 1}, {4, 6, 0}, {5, 8, 1}, {3, 4, 0}};
+  // how far each game is played before it is drawn
+  static final String[] STATES = {"blank", "playing", "last"};
+  static final int GUESSES = 8;
+  // the size of a scene, as Mastermind draws it
+  static final int WIDTH = 500;
+  static final int HEIGHT = 700;
+
+  // returns the palette of the first given number of COLORS
+  static ILoColor palette(int colors) {
+    ILoColor palette = new MtLoColor();
+    for (int color = colors - 1; color >= 0; color -= 1) {
+      palette = new ConsLoColor(COLORS[color], palette);
+    }
+    return palette;
+  }
+
+  // returns the name of the case of the given kind of game in the given state
+  static String caseName(int[] kind, String state) {
+    return kind[0] + "x" + kind[1] + (kind[2] == 1 ? "-dup-" : "-unique-") + state;
+  }
+
+  // plays the given game in the given state, with a secret and guesses that depend only on the case,
+  // and returns the scene the game shows in it
+  static WorldScene scene(int[] kind, String state) {
+    ILoColor palette = GoldenImages.palette(kind[1]);
+    Random rand = new Random(GoldenImages.caseName(kind, state).hashCode());
+    Mastermind game = new Mastermind(kind[2] == 1, kind[0], GUESSES, palette, rand);
+    game.correctSequence = palette.generateRandomSequence(rand, kind[2] == 1, kind[0]);
+    if (state.equals("playing")) {
+      for (int row = 0; row < 3; row += 1) {
+        for (int peg = 0; peg < kind[0]; peg += 1) {
+          game.onKeyEvent(Integer.toString(1 + rand.nextInt(kind[1])));
+        }
+        game.onKeyEvent("enter");
+      }
+    }
+    if (state.equals("last")) {
+      BenchmarkSuite.playGame(game, rand);
+      int status = game.exactMatchesCount == game.lengthOfSequence ? GameState.WON : GameState.LOST;
+      return game.lastScene(GameState.endMessage(status));
+    }
+    return game.makeScene();
+  }
+
+  // draws the scene of the given game in the given state into a new image
+  static java.awt.image.BufferedImage render(int[] kind, String state) {
+    java.awt.image.BufferedImage image = new java.awt.image.BufferedImage(WIDTH, HEIGHT,
+        java.awt.image.BufferedImage.TYPE_INT_RGB);
+    java.awt.Graphics2D graphics = image.createGraphics();
+    graphics.setColor(Color.WHITE);
+    graphics.fillRect(0, 0, WIDTH, HEIGHT);
+    GoldenImages.scene(kind, state).draw(graphics);
+    graphics.dispose();
+    return image;
+  }
+
+  // returns the share of pixels of the actual image that look different from the expected one, every
+  // pixel when their sizes differ
+  static double difference(java.awt.image.BufferedImage expected, java.awt.image.BufferedImage actual) {
+    int width = expected.getWidth();
+    int height = expected.getHeight();
+    if (width != actual.getWidth() || height != actual.getHeight()) {
+      return 1;
+    }
+    int[] want = expected.getRGB(0, 0, width, height, null, 0, width);
+    int[] got = actual.getRGB(0, 0, width, height, null, 0, width);
+    int different = 0;
+    for (int i = 0; i < want.length; i += 1) {
+      different += GoldenImages.matches(want[i], got[i]) ? 0 : 1;
+    }
+    return different / (double) want.length;
+  }
+
+  // returns whether the two colors are within TOLERANCE of each other, weighting each channel by how
+  // bright it looks
+  static boolean matches(int expected, int actual) {
+    if (expected == actual) {
+      return true;
+    }
+    int red = Math.abs(((expected >> 16) & 0xFF) - ((actual >> 16) & 0xFF));
+    int green = Math.abs(((expected >> 8) & 0xFF) - ((actual >> 8) & 0xFF));
+    int blue = Math.abs((expected & 0xFF) - (actual & 0xFF));
+    return 299 * red + 587 * green + 114 * blue <= 1000 * TOLERANCE;
+  }
+
+  // returns the actual image with every pixel that does not match the expected one drawn red
+  static java.awt.image.BufferedImage differences(java.awt.image.BufferedImage expected,
+      java.awt.image.BufferedImage actual) {
+    java.awt.image.BufferedImage map = new java.awt.image.BufferedImage(actual.getWidth(), actual.getHeight(),
+        java.awt.image.BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < actual.getHeight(); y += 1) {
+      for (int x = 0; x < actual.getWidth(); x += 1) {
+        boolean inside = x < expected.getWidth() && y < expected.getHeight();
+        boolean same = inside && GoldenImages.matches(expected.getRGB(x, y), actual.getRGB(x, y));
+        map.setRGB(x, y, same ? actual.getRGB(x, y) : Color.RED.getRGB());
+      }
+    }
+    return map;
+  }
+
+  // renders every case and compares it with its golden image in the given directory, writing the
+  // actual image and the map of differences of each failing case to the given output directory, or
+  // stores every case as its golden image if asked to update them. Returns a line per failing case
+  static java.util.List<String> check(java.io.File directory, java.io.File output, boolean update) {
+    (update ? directory : output).mkdirs();
+    java.util.List<String> failures = java.util.Collections.synchronizedList(new java.util.ArrayList<String>());
+    java.util.stream.IntStream.range(0, KINDS.length * STATES.length).parallel().forEach(i -> {
+      int[] kind = KINDS[i / STATES.length];
+      String name = GoldenImages.caseName(kind, STATES[i % STATES.length]);
+      java.awt.image.BufferedImage actual = GoldenImages.render(kind, STATES[i % STATES.length]);
+      java.io.File golden = new java.io.File(directory, name + ".png");
+      try {
+        if (update) {
+          javax.imageio.ImageIO.write(actual, "png", golden);
+          return;
+        }
+        if (!golden.exists()) {
+          javax.imageio.ImageIO.write(actual, "png", new java.io.File(output, name + ".actual.png"));
+          failures.add(name + ": no golden image");
+          return;
+        }
+        java.awt.image.BufferedImage expected = javax.imageio.ImageIO.read(golden);
+        double different = GoldenImages.difference(expected, actual);
+        if (different > MAX_DIFFERENT) {
+          javax.imageio.ImageIO.write(actual, "png", new java.io.File(output, name + ".actual.png"));
+          javax.imageio.ImageIO.write(GoldenImages.differences(expected, actual), "png",
+              new java.io.File(output, name + ".diff.png"));
+          failures.add(String.format("%s: %.2f%% of pixels differ", name, different * 100));
+        }
+      }
+      catch (java.io.IOException e) {
+        failures.add(name + ": " + e.getMessage());
+      }
+    });
+    java.util.Collections.sort(failures);
+    return failures;
+  }
+
+  // checks every case against DIRECTORY, or updates the golden images, exiting with status 1 if any
+  // failed. The images of failing cases go to a new temporary directory
+  public static void main(String[] args) throws java.io.IOException {
+    boolean update = args.length > 0 && args[0].equals("update");
+    java.io.File output = java.nio.file.Files.createTempDirectory("golden").toFile();
+    java.util.List<String> failures = GoldenImages.check(new java.io.File(DIRECTORY), output, update);
+    for (String failure : failures) {
+      System.out.println("FAIL " + failure);
+    }
+    System.out.println(update ? "updated the golden images in " + DIRECTORY
+        : failures.isEmpty() ? "every image matches"
+        : failures.size() + " images differ, see " + output.getPath());
+    if (!failures.isEmpty()) {
+      System.exit(1);
+    }
+  }
+
+  /* TEMPLATE:
+   * FIELDS:
+   *  GoldenImages.WIDTH... int
+   *  GoldenImages.HEIGHT... int
+   * METHODS:
+   *  GoldenImages.palette(int)... ILoColor
+   *  GoldenImages.caseName(int[], String)... String
+   *  GoldenImages.scene(int[], String)... WorldScene
+   *  GoldenImages.render(int[], String)... BufferedImage
+   *  GoldenImages.difference(BufferedImage, BufferedImage)... double
+   *  GoldenImages.matches(int, int)... boolean
+   *  GoldenImages.differences(BufferedImage, BufferedImage)... BufferedImage
+   *  GoldenImages.check(File, File, boolean)... List<String>
+   * METHODS OF FIELDS:
+   *  game.makeScene()... WorldScene
+   *  game.lastScene(String)... WorldScene
+   *  GoldenImages.scene(int[], String).draw(Graphics2D)... void
+   */
+}
+
+
+//examples and tests
+class ExamplesMastermind{
+  Color blue = new Color(112, 207, 245);
+  Color red = new Color(255, 103, 85);
+  Color purple = new Color(170, 112, 245);
+  Color orange = new Color(255, 156, 18);
+  Color yellow = new Color(255, 244, 38);
+  Color green = new Color(84, 237, 50);
+
+
+  ILoColor mt = new MtLoColor();
+  ILoColor blueRed = new ConsLoColor(blue,
+      new ConsLoColor(red,
+
+          new MtLoColor()));
+
+  ILoColor redBlue = new ConsLoColor(red,
+      new ConsLoColor(blue,
+
+          new MtLoColor()));
+
+  ILoColor blueRedPurple = new ConsLoColor(blue,
+      new ConsLoColor(red,
+          new ConsLoColor(purple,
+              new MtLoColor())));
+
+  ILoColor purpleRedBlue = new ConsLoColor(purple,
+      new ConsLoColor(red,
+          new ConsLoColor(blue,
+              new MtLoColor())));
+
+  ILoColor greenYellowOrangeBlue =  new ConsLoColor(green,
       new ConsLoColor(yellow,
           new ConsLoColor(orange,
               new ConsLoColor(blue,
@@ -982,9 +8217,9 @@ class ExamplesMastermind{
   boolean testRowsOfGuesses(Tester t) {
     return t.checkExpect(game1.rowsOfGuesses(0, 0), new MtLoLoColor())
         && t.checkExpect(game1.rowsOfGuesses(1, 3), new ConsLoLoColor(
-            new ConsLoColor(new Color(255, 255, 255),
-                new ConsLoColor(new Color(255, 255, 255),
-                    new ConsLoColor(new Color(255, 255, 255),
+            ConsLoColor.blank(
+                ConsLoColor.blank(
+                    ConsLoColor.blank(
                         new MtLoColor()))),
             new MtLoLoColor()))
         && t.checkExpect(game1.rowsOfGuesses(-1, -1), new MtLoLoColor());
@@ -1001,21 +8236,21 @@ class ExamplesMastermind{
   boolean testCreateBlankGuesses(Tester t) {
     return t.checkExpect(game1.createBlankGuesses(0), new MtLoColor())
         && t.checkExpect(game1.createBlankGuesses(-5), new MtLoColor())
-        && t.checkExpect(game1.createBlankGuesses(1), new ConsLoColor(Color.WHITE, new MtLoColor()))
-        && t.checkExpect(game1.createBlankGuesses(5), new ConsLoColor(Color.WHITE,
-            new ConsLoColor(Color.WHITE,
-                new ConsLoColor(Color.WHITE,
-                    new ConsLoColor(Color.WHITE,
-                        new ConsLoColor(Color.WHITE, new MtLoColor()))))))
-        && t.checkExpect(game1.createBlankGuesses(9), new ConsLoColor(Color.WHITE,
-            new ConsLoColor(Color.WHITE,
-                new ConsLoColor(Color.WHITE,
-                    new ConsLoColor(Color.WHITE,
-                        new ConsLoColor(Color.WHITE,
-                            new ConsLoColor(Color.WHITE,
-                                new ConsLoColor(Color.WHITE,
-                                    new ConsLoColor(Color.WHITE,
-                                        new ConsLoColor(Color.WHITE, new MtLoColor()))))))))));
+        && t.checkExpect(game1.createBlankGuesses(1), ConsLoColor.blank(new MtLoColor()))
+        && t.checkExpect(game1.createBlankGuesses(5), ConsLoColor.blank(
+            ConsLoColor.blank(
+                ConsLoColor.blank(
+                    ConsLoColor.blank(
+                        ConsLoColor.blank(new MtLoColor()))))))
+        && t.checkExpect(game1.createBlankGuesses(9), ConsLoColor.blank(
+            ConsLoColor.blank(
+                ConsLoColor.blank(
+                    ConsLoColor.blank(
+                        ConsLoColor.blank(
+                            ConsLoColor.blank(
+                                ConsLoColor.blank(
+                                    ConsLoColor.blank(
+                                        ConsLoColor.blank(new MtLoColor()))))))))));
   }
 
 
@@ -1118,10 +8353,10 @@ class ExamplesMastermind{
                             new ConsLoColor(new Color(255, 255, 255),
                                 new ConsLoColor(new Color(255, 255, 0),
                                     new ConsLoColor(new Color(0, 255, 0),
-                                        new ConsLoColor(new Color(255, 255, 255), new MtLoColor()))))))))))
+                                        ConsLoColor.blank(new MtLoColor()))))))))))
         && t.checkExpect(this.blueRedPurple.removeLastColor(), new ConsLoColor(new Color(112, 207, 245),
             new ConsLoColor(new Color(255, 103, 85),
-                new ConsLoColor(new Color(255, 255, 255), new MtLoColor()))))
+                ConsLoColor.blank(new MtLoColor()))))
         && t.checkExpect(this.l1.removeLastColor(3), this.l1)
         && t.checkExpect(this.l2.removeLastColor(4), new ConsLoLoColor(
             new ConsLoColor(
@@ -1247,15 +8482,16 @@ class ExamplesMastermind{
   // tests for placeColorInRow
   boolean testplaceColorInRow(Tester t) {
     return t.checkExpect(this.mt.placeColorInRow(blue), new MtLoColor())
-        && t.checkExpect(this.nineColors.placeColorInRow(red), new ConsLoColor(new Color(84, 237, 50),
+        && t.checkExpect(this.nineColors.placeColorInRow(red), this.nineColors)
+        && t.checkExpect(this.nineColors.removeLastColor().placeColorInRow(red), new ConsLoColor(new Color(84, 237, 50),
             new ConsLoColor(new Color(255, 103, 85),
                 new ConsLoColor(new Color(255, 156, 18),
                     new ConsLoColor(new Color(112, 207, 245),
                         new ConsLoColor(new Color(0, 0, 0),
-                            new ConsLoColor(new Color(255, 103, 85),
+                            new ConsLoColor(new Color(255, 255, 255),
                                 new ConsLoColor(new Color(255, 255, 0),
                                     new ConsLoColor(new Color(0, 255, 0),
-                                        new ConsLoColor(new Color(255, 200, 0),
+                                        new ConsLoColor(new Color(255, 103, 85),
                                             new MtLoColor()))))))))))
         && t.checkExpect(this.redBlue.placeColorInRow(orange), new ConsLoColor(new Color(255, 103, 85),
             new ConsLoColor(new Color(112, 207, 245),
@@ -1285,6 +8521,1402 @@ class ExamplesMastermind{
         && t.checkExpect(this.blueRedPurple.generateRandomSequence(seedRandom, false, 0), new MtLoColor());
   }
 
+  // tests for indexOfColor
+  boolean testindexOfColor(Tester t) {
+    return t.checkExpect(this.mt.indexOfColor(blue), -1)
+        && t.checkExpect(this.greenRedOrangeBlue.indexOfColor(green), 0)
+        && t.checkExpect(this.greenRedOrangeBlue.indexOfColor(blue), 3)
+        && t.checkExpect(this.greenRedOrangeBlue.indexOfColor(purple), -1);
+  }
+
+  // tests for toIndices
+  boolean testtoIndices(Tester t) {
+    return t.checkExpect(this.mt.toIndices(this.greenRedOrangeBlue), new int[0])
+        && t.checkExpect(this.redBlue.toIndices(this.greenRedOrangeBlue), new int[] {1, 3})
+        && t.checkExpect(this.blueRedPurple.toIndices(this.greenRedOrangeBlue), new int[] {3, 1, -1});
+  }
+
+  // tests for CodeSpace
+  boolean testCodeSpace(Tester t) {
+    CodeSpace space = new CodeSpace(4, 6);
+    int[] code = space.codeAtRank(1000, new int[4]);
+    return t.checkExpect(space.size, 1296L)
+        && t.checkExpect(code, new int[] {4, 3, 4, 4})
+        && t.checkExpect(space.rankOf(code), 1000L)
+        && t.checkExpect(space.unpack(space.pack(code), new int[4]), code)
+        && t.checkExpect(space.pegAt(space.pack(code), 1), 3)
+        && t.checkConstructorException(
+            new IllegalArgumentException("length of a packed code must be between 1 and 16!"),
+            "CodeSpace", 17, 6);
+  }
+
+  // tests that BatchScorer's block and scalar scoring agree with ConsLoColor on every code
+  boolean testBatchScorer(Tester t) {
+    CodeSpace space = new CodeSpace(4, 4);
+    BatchScorer scorer = new BatchScorer(space, 100);
+    long[] codes = new long[(int) space.size];
+    for (int rank = 0; rank < space.size; rank += 1) {
+      codes[rank] = space.packedAtRank(rank);
+    }
+    int[] guess = this.duplicates.toIndices(this.greenRedOrangeBlue);
+    int[] exact = new int[codes.length];
+    int[] inexact = new int[codes.length];
+    int[] scalarExact = new int[codes.length];
+    int[] scalarInexact = new int[codes.length];
+    scorer.score(guess, codes, 0, codes.length, exact, inexact);
+    scorer.scoreScalar(guess, codes, 0, codes.length, scalarExact, scalarInexact);
+    boolean agrees = true;
+    for (int rank = 0; rank < codes.length; rank += 1) {
+      int[] code = space.codeAtRank(rank, new int[4]);
+      ILoColor secret = new MtLoColor();
+      for (int position = 3; position >= 0; position -= 1) {
+        secret = new ConsLoColor(this.greenRedOrangeBlue.getColorAtIndex(code[position]), secret);
+      }
+      agrees = agrees
+          && exact[rank] == this.duplicates.exactMatches(secret)
+          && inexact[rank] == this.duplicates.inexactMatches(secret)
+          && scalarExact[rank] == exact[rank]
+          && scalarInexact[rank] == inexact[rank];
+    }
+    int[] buffer = scorer.blockExact;
+    int[] again = new int[codes.length];
+    scorer.score(guess, codes, 0, codes.length, again, new int[codes.length]);
+    int loaded = scorer.loadRanks(250, 10);
+    scorer.scoreBlock(guess, loaded, exact, inexact);
+    return t.checkExpect(agrees, true)
+        && t.checkExpect(again[17], scalarExact[17])
+        && t.checkExpect(scorer.blockExact == buffer, true)
+        && t.checkExpect(loaded, 6)
+        && t.checkExpect(exact[5], scorer.score(guess, space.codeAtRank(255, new int[4])).exact)
+        && t.checkExpect(scorer.score(guess, guess).exact, 4)
+        && t.checkExpect(scorer.score(guess, new int[] {1, 0, 3, 3}).inexact, 2);
+  }
+
+  // tests for ShardWorker
+  boolean testShardWorker(Tester t) {
+    ShardWorker worker = new ShardWorker(new CodeSpace(2, 3));
+    long[][] whole = worker.histograms(new int[][] {{0, 1}, {0, 0}}, 0, 9);
+    long[][] firstHalf = worker.histograms(new int[][] {{0, 1}, {0, 0}}, 0, 4);
+    long[][] secondHalf = worker.histograms(new int[][] {{0, 1}, {0, 0}}, 4, 9);
+    return t.checkExpect(ShardWorker.resultCount(2), 9)
+        // {0, 1} against 00 01 02 10 11 12 20 21 22
+        && t.checkExpect(whole[0], new long[] {1, 2, 1, 4, 0, 0, 1, 0, 0})
+        && t.checkExpect(whole[1], new long[] {4, 0, 0, 4, 0, 0, 1, 0, 0})
+        && t.checkExpect(firstHalf[0][3] + secondHalf[0][3], 4L);
+  }
+
+  // tests for ShardCoordinator
+  boolean testShardCoordinator(Tester t) {
+    CodeSpace space = new CodeSpace(4, 6);
+    ShardCoordinator local = new ShardCoordinator(space, 0);
+    ShardCoordinator pooled = new ShardCoordinator(space, 2);
+    int[][] openings = local.openingCandidates();
+    ShardCoordinator broken = new ShardCoordinator(space, 1, 1, 10000, 2, java.util.Arrays.asList(
+        System.getProperty("java.home") + "/bin/java", "-version"));
+    RuntimeException failure = null;
+    try {
+      broken.histograms(openings);
+    }
+    catch (IllegalStateException e) {
+      failure = e;
+    }
+    return t.checkExpect(openings, new int[][] {{0, 0, 0, 0}, {0, 0, 0, 1}, {0, 0, 1, 1}, {0, 0, 1, 2}, {0, 1, 2, 3}})
+        && t.checkExpect(pooled.histograms(openings), local.histograms(openings))
+        && t.checkExpect(ShardCoordinator.largest(local.histograms(openings)[2]), 256L)
+        && t.checkExpect(local.bestOpening(), new int[] {0, 0, 1, 1})
+        && t.checkExpect(failure != null, true);
+  }
+
+  // tests for the strategies
+  boolean testStrategies(Tester t) {
+    long[] histogram = new long[] {4, 0, 2, 0, 0, 0, 0, 0, 1};
+    return t.checkExpect(new MinimaxStrategy().cost(histogram, 7), 4.0)
+        && t.checkExpect(new ExpectedSizeStrategy().cost(histogram, 7), 3.0)
+        && t.checkExpect(new MostPartsStrategy().cost(histogram, 7), -3.0)
+        && t.checkExpect(new MostPartsStrategy().name(), "most parts");
+  }
+
+  // tests for PartitionEngine
+  boolean testPartitionEngine(Tester t) {
+    CodeSpace space = new CodeSpace(2, 3);
+    PartitionEngine engine = new PartitionEngine(space);
+    long[] secrets = new long[] {space.pack(new int[] {1, 0}), space.pack(new int[] {2, 2}),
+        space.pack(new int[] {0, 1})};
+    return t.checkExpect(PartitionEngine.resultIndex(2, 1, 1), 4)
+        && t.checkExpect(engine.histograms(new int[][] {{0, 1}}, secrets, 3)[0],
+            new long[] {1, 0, 1, 0, 0, 0, 1, 0, 0})
+        && t.checkExpect(engine.histograms(new int[][] {{0, 1}}, 0, 9),
+            new ShardWorker(space).histograms(new int[][] {{0, 1}}, 0, 9));
+  }
+
+  // tests for Solver
+  boolean testSolver(Tester t) {
+    CodeSpace space = new CodeSpace(4, 6);
+    Solver solver = new Solver(space, new MinimaxStrategy());
+    long[] candidates = solver.allCodes();
+    int kept = solver.filter(candidates, candidates.length, new int[] {0, 0, 1, 1}, 4, 0);
+    int worst = 0;
+    for (long rank = 0; rank < space.size; rank += 1) {
+      worst = Math.max(worst, solver.play(space.codeAtRank(rank, new int[4]), 10));
+    }
+    return t.checkExpect(candidates.length, 1296)
+        && t.checkExpect(kept, 1)
+        && t.checkExpect(space.unpack(candidates[0], new int[4]), new int[] {0, 0, 1, 1})
+        && t.checkExpect(solver.nextGuess(solver.allCodes(), 1296), new int[] {0, 0, 1, 1})
+        && t.checkExpect(solver.play(new int[] {5, 4, 3, 2}, 2), -1)
+        && t.checkExpect(worst, 5);
+  }
+
+  // tests for OptimalSolver
+  boolean testOptimalSolver(Tester t) {
+    CodeSpace space = new CodeSpace(3, 3);
+    OptimalSolver solver = new OptimalSolver(space);
+    DecisionNode tree = solver.solveTree();
+    Solver minimax = new Solver(space, new MinimaxStrategy());
+    long heuristic = 0;
+    for (long rank = 0; rank < space.size; rank += 1) {
+      heuristic += minimax.play(space.codeAtRank(rank, new int[3]), 10);
+    }
+    return t.checkExpect(solver.lowerBound(1), 1L)
+        && t.checkExpect(solver.lowerBound(5), 9L)
+        && t.checkExpect(solver.canonical(new int[] {0, 0, 1}, 0), true)
+        && t.checkExpect(solver.canonical(new int[] {0, 2, 1}, 0), false)
+        && t.checkExpect(solver.canonical(new int[] {2, 1, 1}, 1), false)
+        && t.checkExpect(solver.canonical(new int[] {0, 1, 1}, 1), true)
+        && t.checkExpect(solver.guessesFor(0), new int[] {0, 1, 3, 4, 5})
+        && t.checkExpect(solver.guessesFor(0) == solver.guessesFor(0), true)
+        && t.checkExpect(tree.guess, new int[] {0, 0, 1})
+        && t.checkExpect(tree.verify(space, this.blueRedPurple), 73L)
+        && t.checkExpect(heuristic >= 73, true);
+  }
+
+  // tests for DecisionNode
+  boolean testDecisionNode(Tester t) {
+    CodeSpace space = new CodeSpace(1, 2);
+    DecisionNode tree = new DecisionNode(new int[] {0}, 4);
+    DecisionNode broken = new DecisionNode(new int[] {0}, 4);
+    tree.children[PartitionEngine.resultIndex(1, 0, 0)] = new DecisionNode(new int[] {1}, 4);
+    return t.checkExpect(DecisionNode.toList(new int[] {1, 0}, this.blueRed), this.redBlue)
+        && t.checkExpect(tree.verify(space, this.blueRed), 3L)
+        && t.checkExpect(broken.verify(space, this.blueRed), -1L);
+  }
+
+  // tests for StaticSolver
+  boolean testStaticSolver(Tester t) {
+    StaticSolver solver = new StaticSolver(new CodeSpace(2, 3), 4, 500);
+    int[][] guesses = solver.solve(7);
+    int[] ranks = new int[guesses.length];
+    for (int i = 0; i < guesses.length; i += 1) {
+      ranks[i] = (int) solver.space.rankOf(guesses[i]);
+    }
+    StaticSolver distinct = new StaticSolver(new CodeSpace(3, 4), false, 4, 2000);
+    int[][] distinctGuesses = distinct.solve(7);
+    int[] distinctRanks = new int[distinctGuesses.length];
+    boolean noDuplicates = true;
+    for (int i = 0; i < distinctGuesses.length; i += 1) {
+      distinctRanks[i] = (int) distinct.space.rankOf(distinctGuesses[i]);
+      noDuplicates = noDuplicates && !distinct.space.hasDuplicates(distinct.space.pack(distinctGuesses[i]));
+    }
+    return t.checkExpect(solver.fewestGuesses(), 2)
+        && t.checkExpect(solver.unresolved(new int[] {0}), 8)
+        // 01 and 10 cannot tell 00 from 11, 02 from 21 or 12 from 20
+        && t.checkExpect(solver.unresolved(new int[] {1, 3}), 6)
+        && t.checkExpect(solver.splitOf(0)[PartitionEngine.resultIndex(2, 2, 0)].cardinality(), 1)
+        && t.checkExpect(solver.unresolved(ranks), 0)
+        && t.checkExpect(guesses.length <= 3, true)
+        && t.checkExpect(distinct.allowed.length, 24)
+        && t.checkExpect(distinct.unresolved(new int[0]), 24)
+        && t.checkExpect(distinct.unresolved(distinctRanks), 0)
+        && t.checkExpect(noDuplicates, true);
+  }
+
+  // tests for StaticMastermind
+  boolean testStaticMastermind(Tester t) {
+    StaticMastermind game = new StaticMastermind(true, 4, 10, greenRedOrangeBlue, new Random());
+    game.onKeyEvent("1");
+    game.onKeyEvent("2");
+    game.onKeyEvent("3");
+    game.onKeyEvent("4");
+    game.onKeyEvent("enter");
+    boolean noFeedbackYet = game.listOfMatches instanceof MtLoMatches;
+    int rowBeforeSubmit = game.currentNumberOfGuesses;
+    game.onKeyEvent("h");
+    game.onKeyEvent("s");
+    StaticMastermind distinct = new StaticMastermind(false, 3, 10, greenRedOrangeBlue, new Random());
+    distinct.onKeyEvent("h");
+    StaticMastermind queued = new StaticMastermind(true, 4, 10, greenRedOrangeBlue, new Random());
+    queued.queueInput(8);
+    queued.onKeyEvent("h");
+    queued.onKeyEvent("enter");
+    boolean waited = queued.currentNumberOfGuesses == 1 && queued.listOfGuesses.getRowAtIndex(1).whiteRow();
+    queued.onTick();
+    return t.checkExpect(waited, true)
+        && t.checkExpect(queued.currentNumberOfGuesses, 2)
+        && t.checkExpect(distinct.plannedGuesses != null, true)
+        && t.checkExpect(distinct.listOfGuesses.isRowFull(1), true)
+        && t.checkExpect(new StaticMastermind(true, 8, 10, greenRedOrangeBlue, new Random()).plannedGuesses,
+            null)
+        && t.checkExpect(noFeedbackYet, true)
+        && t.checkExpect(rowBeforeSubmit, 2)
+        && t.checkExpect(game.submitted, true)
+        && t.checkExpect(game.listOfMatches instanceof ConsLoMatches, true)
+        && t.checkExpect(game.listOfGuesses.isRowFull(2), true);
+  }
+
+  // tests for the ILoMatches accessors
+  boolean testMatchesAccessors(Tester t) {
+    return t.checkExpect(this.m5.length(), 0)
+        && t.checkExpect(this.m7.length(), 2)
+        && t.checkExpect(this.m7.getMatchAtIndex(1), this.m2)
+        && t.checkExpect(this.m5.getMatchAtIndex(0), this.m1);
+  }
+
+  // tests for SampledSolver
+  boolean testSampledSolver(Tester t) {
+    Random rand = new Random(3);
+    SampledSolver solver = new SampledSolver(10, 8, true, 200, 40, 200, rand);
+    int[] secret = new int[] {3, 1, 4, 1, 5, 2, 6, 5, 3, 5};
+    int guesses = 0;
+    boolean consistent = true;
+    for (boolean solved = false; !solved && guesses < 25;) {
+      int[] guess = solver.nextGuess();
+      Matches result = solver.score(guess, secret);
+      guesses += 1;
+      solved = result.exact == 10;
+      solver.addFeedback(guess, result.exact, result.inexact);
+      for (int[] code : solver.reservoir) {
+        consistent = consistent && solver.brokenConstraints(code) == 0;
+      }
+    }
+    SampledSolver noDuplicates = new SampledSolver(4, 6, false, 10, 5, 50, new Random(1));
+    int[] sampled = noDuplicates.sample();
+    return t.checkExpect(solver.score(new int[] {0, 1, 1, 2, 0, 0, 0, 0, 0, 0}, secret), new Matches(1, 2))
+        && t.checkExpect(consistent, true)
+        && t.checkExpect(guesses < 25, true)
+        && t.checkExpect(solver.coverage() >= 0 && solver.coverage() <= 1, true)
+        && t.checkExpect(noDuplicates.contains(sampled, sampled[0]), true)
+        && t.checkExpect(new CodeSpace(4, 6).hasDuplicates(new CodeSpace(4, 6).pack(sampled)), false)
+        && t.checkConstructorException(
+            new IllegalArgumentException("sample sizes must be greater than 0!"),
+            "SampledSolver", 4, 6, true, 0, 5, 50, new Random());
+  }
+
+  // tests for ConstraintGenerator
+  boolean testConstraintGenerator(Tester t) {
+    int[][] guesses = new int[][] {{0, 0, 1, 1}, {2, 3, 2, 3}};
+    Matches[] results = new Matches[] {new Matches(0, 0), new Matches(0, 2)};
+    ConstraintGenerator generator = new ConstraintGenerator(4, 6, true, guesses, results);
+    SampledSolver checker = new SampledSolver(4, 6, true, 10, 5, 50, new Random());
+    checker.addFeedback(guesses[0], 0, 0);
+    checker.addFeedback(guesses[1], 0, 2);
+    boolean consistent = true;
+    Random rand = new Random(5);
+    for (int i = 0; i < 50; i += 1) {
+      consistent = consistent && checker.brokenConstraints(generator.generate(rand, 1000)) == 0;
+    }
+    ConstraintGenerator contradiction = new ConstraintGenerator(4, 6, true,
+        new int[][] {{0, 1, 2, 3}, {0, 1, 2, 3}}, new Matches[] {new Matches(4, 0), new Matches(0, 4)});
+    ConstraintGenerator unlucky = new ConstraintGenerator(8, 8, true,
+        new int[][] {{0, 1, 2, 3, 4, 5, 6, 7}}, new Matches[] {new Matches(0, 0)});
+    return t.checkExpect(generator.domains[0], 0b111000)
+        && t.checkExpect(generator.maxCounts[0], 0)
+        && t.checkExpect(generator.maxCounts[2], 4)
+        && t.checkExpect(consistent, true)
+        && t.checkExpect(contradiction.generate(rand, 1000), null)
+        && t.checkExpect(contradiction.impossible, true)
+        && t.checkExpect(unlucky.generate(rand, 1000), null)
+        && t.checkExpect(unlucky.impossible, true)
+        && t.checkConstructorException(
+            new IllegalArgumentException("colors of a constraint generator must be at most 31!"),
+            "ConstraintGenerator", 4, 40, true, new int[0][], new Matches[0]);
+  }
+
+  // tests for GeneticSolver
+  boolean testGeneticSolver(Tester t) {
+    CodeSpace space = new CodeSpace(10, 6);
+    GeneticSolver solver = new GeneticSolver(space, true, 200, 50, new Random(2));
+    long a = space.pack(new int[] {0, 1, 2, 3, 4, 5, 0, 1, 2, 3});
+    long b = space.pack(new int[] {1, 1, 2, 5, 5, 5, 5, 5, 5, 5});
+    int[] secret = new int[] {2, 2, 0, 1, 4, 3, 5, 5, 0, 1};
+    solver.addFeedback(space.unpack(a, new int[10]), 1, 8);
+    boolean fromParents = true;
+    for (int i = 0; i < 20; i += 1) {
+      long child = solver.crossover(a, b);
+      for (int position = 0; position < 10; position += 1) {
+        fromParents = fromParents && (space.pegAt(child, position) == space.pegAt(a, position)
+            || space.pegAt(child, position) == space.pegAt(b, position));
+      }
+    }
+    int[] guess = solver.nextGuess();
+    GeneticSolver noDuplicates = new GeneticSolver(new CodeSpace(10, 12), false, 50, 10, new Random(4));
+    long mutated = noDuplicates.mutate(noDuplicates.crossover(noDuplicates.randomCode(), noDuplicates.randomCode()));
+    return t.checkExpect(space.exactMatches(a, b), 3)
+        && t.checkExpect(space.totalMatches(a, b), 4)
+        && t.checkExpect(solver.fitnessOf(space.pack(secret)), 0)
+        && t.checkExpect(solver.fitnessOf(b), 7)
+        && t.checkExpect(fromParents, true)
+        && t.checkExpect(solver.fitnessOf(space.pack(guess)), 0)
+        && t.checkExpect(new CodeSpace(10, 12).hasDuplicates(mutated), false)
+        && t.checkConstructorException(
+            new IllegalArgumentException("population size must be greater than 1!"),
+            "GeneticSolver", space, true, 1, 50, new Random());
+  }
+
+  // tests for StandardEngine and NoDuplicatesEngine
+  boolean testVariantEngines(Tester t) {
+    NoDuplicatesEngine bullsAndCows = new NoDuplicatesEngine(4, 6);
+    StandardEngine standard = new StandardEngine(4, 6);
+    boolean agree = true;
+    boolean ranks = true;
+    int[] code = new int[4];
+    for (long rank = 0; rank < bullsAndCows.size(); rank += 1) {
+      bullsAndCows.codeAtRank(rank, code);
+      ranks = ranks && bullsAndCows.rankOf(code) == rank;
+      Matches fast = bullsAndCows.score(new int[] {0, 2, 4, 1}, code);
+      Matches slow = standard.score(new int[] {0, 2, 4, 1}, code);
+      agree = agree && fast.exact == slow.exact && fast.inexact == slow.inexact;
+    }
+    long[] codes = bullsAndCows.allCodes(new CodeSpace(4, 6));
+    Mastermind game = new Mastermind(false, 4, 10, greenRedOrangeBlue, new Random());
+    return t.checkExpect(bullsAndCows.size(), 360L)
+        && t.checkExpect(standard.size(), 1296L)
+        && t.checkExpect(new StandardEngine(40, 9).size(), Long.MAX_VALUE)
+        && t.checkExpect(codes.length, 360)
+        && t.checkExpect(new CodeSpace(4, 6).hasDuplicates(codes[359]), false)
+        && t.checkExpect(bullsAndCows.codeAtRank(0, new int[4]), new int[] {0, 1, 2, 3})
+        && t.checkExpect(bullsAndCows.codeAtRank(359, new int[4]), new int[] {5, 4, 3, 2})
+        && t.checkExpect(bullsAndCows.rankOf(new int[] {0, 1, 2, 4}), 1L)
+        && t.checkExpect(ranks, true)
+        && t.checkExpect(agree, true)
+        && t.checkExpect(standard.score(new int[] {0, 0, 1, 1}, new int[] {1, 0, 0, 2}), new Matches(1, 2))
+        && t.checkExpect(game.engine instanceof NoDuplicatesEngine, true)
+        && t.checkExpect(game.scoreRow(game.correctSequence), new Matches(4, 0))
+        && t.checkConstructorException(
+            new IllegalArgumentException("colors without duplicates must be at most 63!"),
+            "NoDuplicatesEngine", 4, 64);
+  }
+
+  // tests for MultiBoardScorer and MultiMastermind
+  boolean testMultiMastermind(Tester t) {
+    MultiBoardScorer scorer = new MultiBoardScorer(new int[][] {{0, 1, 2, 3}, {3, 3, 0, 0}, {0, 1, 2, 3}}, 6);
+    Matches[] results = scorer.scoreAll(new int[] {0, 1, 3, 3});
+    MultiMastermind game = new MultiMastermind(true, 4, 10, greenRedOrangeBlue, new Random(), 3);
+    game.onKeyEvent("1");
+    game.onKeyEvent("1");
+    game.onKeyEvent("2");
+    game.onKeyEvent("2");
+    WorldImage drawn = game.drawColumn(1);
+    boolean cached = game.drawColumn(1) == drawn;
+    game.onKeyEvent("enter");
+    boolean redrawn = game.columns[1] == null && game.drawColumn(1) != drawn;
+    MultiMastermind queued = new MultiMastermind(true, 4, 10, greenRedOrangeBlue, new Random(), 2);
+    queued.queueInput(8);
+    queued.onKeyEvent("1");
+    queued.onKeyEvent("2");
+    queued.onKeyEvent("3");
+    queued.onKeyEvent("4");
+    queued.onKeyEvent("enter");
+    boolean waited = queued.boardMatches[0] instanceof MtLoMatches && queued.pendingKeys.size() == 5;
+    queued.onTick();
+    return t.checkExpect(waited, true)
+        && t.checkExpect(queued.boardMatches[1].length(), 1)
+        && t.checkExpect(results[0], new Matches(3, 0))
+        && t.checkExpect(results[1], new Matches(0, 3))
+        && t.checkExpect(results[2], new Matches(3, 0))
+        && t.checkExpect(game.secrets[0], game.correctSequence)
+        && t.checkExpect(cached, true)
+        && t.checkExpect(redrawn, true)
+        && t.checkExpect(game.boardMatches[2].length(), 1)
+        && t.checkExpect(game.listOfMatches, game.boardMatches[0])
+        && t.checkExpect(game.currentNumberOfGuesses, 2)
+        && t.checkConstructorException(
+            new IllegalArgumentException("number of boards must be greater than 0!"),
+            "MultiMastermind", true, 4, 10, greenRedOrangeBlue, new Random(), 0);
+  }
+
+  // tests for BlackPegEngine, LyingEngine and CandidateFilter
+  boolean testFeedbackVariants(Tester t) {
+    CodeSpace space = new CodeSpace(4, 6);
+    int[] secret = new int[] {1, 3, 3, 5};
+    BlackPegEngine blackPegs = new BlackPegEngine(new StandardEngine(4, 6));
+    CandidateFilter exactOnly = new CandidateFilter(blackPegs, space, 0);
+    for (int[] guess : new int[][] {{0, 0, 1, 1}, {1, 2, 3, 4}, {3, 3, 5, 5}}) {
+      Matches result = blackPegs.score(guess, secret);
+      exactOnly.addFeedback(guess, result.exact, result.inexact);
+    }
+    boolean consistent = true;
+    for (long code : exactOnly.remaining()) {
+      int[] pegs = space.unpack(code, new int[4]);
+      consistent = consistent && blackPegs.score(new int[] {1, 2, 3, 4}, pegs).exact == 2;
+    }
+    // games scored by other rules go through those rules rather than the table of their settings
+    ILoColor secretRow = new ConsLoColor(green, new ConsLoColor(red, new ConsLoColor(orange,
+        new ConsLoColor(blue, new MtLoColor()))));
+    Mastermind blackPegGame = new Mastermind(true, 4, 10, greenRedOrangeBlue, new Random());
+    blackPegGame.correctSequence = secretRow;
+    blackPegGame.engine = new BlackPegEngine(new StandardEngine(4, 4));
+    Mastermind lyingGame = new Mastermind(true, 4, 10, greenRedOrangeBlue, new Random());
+    lyingGame.correctSequence = secretRow;
+    LyingEngine lyingRules = new LyingEngine(new StandardEngine(4, 4), 4, 100, 1.0, new Random(11));
+    lyingGame.engine = lyingRules;
+    for (String key : new String[] {"2", "1", "3", "4", "enter"}) {
+      blackPegGame.onKeyEvent(key);
+      lyingGame.onKeyEvent(key);
+    }
+    Matches blackPegResult = new Matches(blackPegGame.exactMatchesCount, blackPegGame.inexactMatchesCount);
+    boolean lied = lyingGame.exactMatchesCount != 2 || lyingGame.inexactMatchesCount != 2;
+    int liesBeforeSolving = lyingRules.liesTold;
+    for (String key : new String[] {"1", "2", "3", "4", "enter"}) {
+      lyingGame.onKeyEvent(key);
+    }
+    LyingEngine liar = new LyingEngine(new StandardEngine(4, 6), 4, 1, 1.0, new Random(8));
+    Matches lie = liar.score(new int[] {0, 0, 1, 1}, secret);
+    Matches truth = liar.score(new int[] {0, 0, 1, 1}, secret);
+    LyingEngine always = new LyingEngine(new StandardEngine(4, 6), 4, 100, 1.0, new Random(9));
+    Matches solved = always.score(secret, secret);
+    NoDuplicatesEngine distinct = new NoDuplicatesEngine(4, 5);
+    LyingEngine distinctLiar = new LyingEngine(distinct, 4, 100, 1.0, new Random(10));
+    boolean validLies = true;
+    for (int i = 0; i < 50; i += 1) {
+      Matches told = always.score(new int[] {0, 1, 2, 3}, secret);
+      Matches distinctTold = distinctLiar.score(new int[] {0, 1, 2, 3}, new int[] {4, 3, 2, 1});
+      validLies = validLies && told.exact < 4 && distinctTold.exact < 4
+          && distinctTold.exact + distinctTold.inexact >= 3;
+    }
+    CandidateFilter lying = new CandidateFilter(new StandardEngine(4, 6), space, 1);
+    lying.addFeedback(new int[] {0, 0, 1, 1}, lie.exact, lie.inexact);
+    lying.addFeedback(new int[] {1, 2, 3, 4}, 2, 0);
+    lying.addFeedback(new int[] {1, 2, 3, 4}, 2, 0);
+    long packed = space.pack(secret);
+    boolean kept = false;
+    for (long code : lying.remaining()) {
+      kept = kept || code == packed;
+    }
+    return t.checkExpect(blackPegs.score(new int[] {1, 1, 3, 3}, secret), new Matches(2, 0))
+        && t.checkExpect(blackPegResult, new Matches(2, 0))
+        && t.checkExpect(lied, true)
+        && t.checkExpect(liesBeforeSolving, 1)
+        && t.checkExpect(lyingGame.exactMatchesCount, 4)
+        && t.checkExpect(lyingRules.liesTold, 1)
+        && t.checkExpect(consistent, true)
+        && t.checkExpect(exactOnly.count > 0 && exactOnly.count < 1296, true)
+        && t.checkExpect(lie.exact == 0 && lie.inexact == 1, false)
+        && t.checkExpect(truth, new Matches(0, 1))
+        && t.checkExpect(liar.liesTold, 1)
+        && t.checkExpect(solved, new Matches(4, 0))
+        && t.checkExpect(always.liesTold, 50)
+        && t.checkExpect(validLies, true)
+        && t.checkExpect(new StandardEngine(4, 6).canScore(3, 1), false)
+        && t.checkExpect(new StandardEngine(4, 1).canScore(2, 0), false)
+        && t.checkExpect(distinct.canScore(1, 1), false)
+        && t.checkExpect(distinct.canScore(1, 2), true)
+        && t.checkExpect(blackPegs.canScore(2, 1), false)
+        && t.checkExpect(new BlackPegEngine(distinct).canScore(1, 0), true)
+        && t.checkExpect(new BlackPegEngine(distinct).canScore(3, 0), true)
+        && t.checkExpect(new BlackPegEngine(new NoDuplicatesEngine(4, 4)).canScore(3, 0), false)
+        && t.checkExpect(kept, true)
+        && t.checkExpect(lying.countWithErrors(0) + lying.countWithErrors(1), lying.count)
+        && t.checkConstructorException(
+            new IllegalArgumentException("number of lies must not be less than 0!"),
+            "LyingEngine", new StandardEngine(4, 6), 4, -1, 0.5, new Random());
+  }
+
+  // tests for GameAnalyzer and analyze
+  boolean testGameAnalyzer(Tester t) {
+    GameAnalyzer analyzer = GameAnalyzer.forGame(4, 6, true);
+    int[] secret = new int[] {1, 3, 3, 5};
+    StandardEngine rules = new StandardEngine(4, 6);
+    int[][] guesses = new int[][] {{0, 0, 1, 1}, {0, 0, 1, 1}, {2, 2, 4, 4}, {1, 3, 3, 5}};
+    Matches[] results = new Matches[guesses.length];
+    for (int row = 0; row < guesses.length; row += 1) {
+      results[row] = rules.score(guesses[row], secret);
+    }
+    RowReport[] reports = analyzer.analyze(guesses, results);
+    Mastermind game = new Mastermind(true, 4, 10, greenRedOrangeBlue, new Random());
+    game.onKeyEvent("1");
+    game.onKeyEvent("2");
+    game.onKeyEvent("3");
+    game.onKeyEvent("4");
+    game.onKeyEvent("enter");
+    RowReport[] played = game.analyze();
+    long start = System.nanoTime();
+    GameAnalyzer.forGame(6, 6, true).analyze(new int[][] {{0, 0, 1, 1, 2, 2}, {0, 1, 3, 3, 4, 5}},
+        new Matches[] {new Matches(1, 2), new Matches(2, 1)});
+    long analysisMillis = (System.nanoTime() - start) / 1000000;
+    return t.checkExpect(GameAnalyzer.forGame(4, 6, true), analyzer)
+        && t.checkExpect(GameAnalyzer.forGame(12, 9, true), null)
+        && t.checkExpect(GameAnalyzer.bits(new long[] {2, 2, 0}, 4), 1.0)
+        && t.checkExpect(reports.length, 4)
+        && t.checkExpect(reports[0].candidatesBefore, 1296L)
+        && t.checkExpect(reports[0].bestBits >= reports[0].expectedBits, true)
+        && t.checkExpect(reports[1].candidatesBefore, reports[1].candidatesAfter)
+        && t.checkExpect(reports[1].wasted, true)
+        && t.checkExpect(reports[1].consistent, false)
+        && t.checkExpect(reports[3].consistent, true)
+        && t.checkExpect(reports[3].wasted, false)
+        && t.checkExpect(reports[3].candidatesAfter, 1L)
+        && t.checkExpect(played.length, 1)
+        && t.checkExpect(game.analyze() == played, true)
+        && t.checkExpect(played[0].candidatesBefore, 256L)
+        && t.checkExpect(analysisMillis < 1000, true);
+  }
+
+  // tests for OpeningTable
+  boolean testOpeningTable(Tester t) throws java.io.IOException {
+    OpeningTable table = new OpeningTable();
+    table.load(new java.io.BufferedReader(new java.io.StringReader(
+        "# comment\n4 6 true 0000 625,0,0,0,0,500,0,0,0,0,150,0,0,0,0,20,0,0,0,0,1,0,0,0,0\n"
+        + "4 6 true 0011 256,256,96,16,1,256,208,36,0,0,114,32,4,0,0,20,0,0,0,0,1,0,0,0,0\n"
+        + "4 6 true 0123 16,152,312,136,9,108,252,132,8,0,96,48,6,0,0,20,0,0,0,0,1,0,0,0,0\n")));
+    OpeningTable generated = OpeningTable.generate(3, 4);
+    java.io.ByteArrayOutputStream written = new java.io.ByteArrayOutputStream();
+    generated.write(new java.io.PrintStream(written));
+    OpeningTable reloaded = new OpeningTable();
+    reloaded.load(new java.io.BufferedReader(new java.io.StringReader(written.toString())));
+    long total = 0;
+    for (long count : generated.histograms.get(OpeningTable.key(3, 4, false)).get(0)) {
+      total += count;
+    }
+    return t.checkExpect(table.best(4, 6, true, new MinimaxStrategy()), new int[] {0, 0, 1, 1})
+        && t.checkExpect(table.best(4, 6, true, new MostPartsStrategy()), new int[] {0, 1, 2, 3})
+        && t.checkExpect(table.best(5, 6, true, new MinimaxStrategy()), null)
+        && t.checkExpect(generated.openings.get(OpeningTable.key(3, 4, true)).size(), 3)
+        && t.checkExpect(generated.openings.get(OpeningTable.key(3, 2, false)), null)
+        && t.checkExpect(total, 24L)
+        && t.checkExpect(reloaded.histograms.get(OpeningTable.key(2, 3, true)).get(1),
+            generated.histograms.get(OpeningTable.key(2, 3, true)).get(1))
+        && t.checkExpect(reloaded.best(3, 4, true, new MinimaxStrategy()),
+            generated.best(3, 4, true, new MinimaxStrategy()));
+  }
+
+  // tests for GameState
+  boolean testGameState(Tester t) {
+    long submitted = GameMetrics.METRICS.submissions.sum();
+    long lost = GameMetrics.METRICS.gamesLost.sum();
+    GameState game = new GameState(false, 4, 2, 6, new Random(3));
+    game.correctSequence = new int[] {0, 1, 2, 3};
+    boolean placed = game.place(1);
+    boolean repeated = game.place(1);
+    boolean early = game.submit();
+    game.place(0);
+    game.undo();
+    game.place(2);
+    game.place(3);
+    game.place(0);
+    boolean full = game.place(4);
+    game.submit();
+    GameState last = new GameState(true, 2, 1, 3, new Random(3));
+    last.correctSequence = new int[] {2, 2};
+    last.place(2);
+    last.place(1);
+    last.submit();
+    submitted = GameMetrics.METRICS.submissions.sum() - submitted;
+    lost = GameMetrics.METRICS.gamesLost.sum() - lost;
+    return t.checkExpect(placed, true)
+        && t.checkExpect(submitted, 2L)
+        && t.checkExpect(lost, 1L)
+        && t.checkExpect(repeated, false)
+        && t.checkExpect(early, false)
+        && t.checkExpect(full, false)
+        && t.checkExpect(game.guesses[0], new int[] {1, 2, 3, 0})
+        && t.checkExpect(game.exact[0], 0)
+        && t.checkExpect(game.inexact[0], 4)
+        && t.checkExpect(game.currentRow, 1)
+        && t.checkExpect(game.guesses[1], new int[] {GameState.EMPTY, GameState.EMPTY, GameState.EMPTY,
+            GameState.EMPTY})
+        && t.checkExpect(last.status, GameState.LOST)
+        && t.checkExpect(last.place(0), false)
+        && t.checkExpect(GameState.outcome(4, 4, 1, 10), GameState.WON)
+        && t.checkExpect(GameState.endMessage(GameState.WON), "yay you won! :)")
+        && t.checkExpect(new GameState(false, 5, 10, 8, new Random()).correctSequence.length, 5)
+        && t.checkConstructorException(
+            new IllegalArgumentException("sequence of colors must not be greater than the amount of possible colors!"),
+            "GameState", false, 5, 10, 4, new Random());
+  }
+
+  // tests for HeadlessGame
+  boolean testHeadlessGame(Tester t) {
+    String commands = "{\"cmd\":\"place\",\"color\":0}\n"
+        + "{\"cmd\": \"new\", \"length\": 2, \"colors\": 3, \"guesses\": 1, \"seed\": 4}\n"
+        + "\n{\"cmd\":\"place\",\"color\":2}\r\n{\"cmd\":\"submit\"}\n{\"cmd\":\"place\",\"color\":9}\n"
+        + "{\"cmd\":\"undo\"}\n{\"cmd\":\"state\"}\n{\"cmd\":\"quit\"}\n{\"cmd\":\"state\"}\n";
+    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+    HeadlessGame headless = new HeadlessGame(new java.io.ByteArrayInputStream(commands.getBytes()), out);
+    long started = GameMetrics.METRICS.gamesStarted.sum();
+    try {
+      headless.run();
+    }
+    catch (java.io.IOException e) {
+      return false;
+    }
+    started = GameMetrics.METRICS.gamesStarted.sum() - started;
+    String[] answers = out.toString().split("\n");
+    String hostile = "{\"cmd\":\"new\",\"length\":100000000,\"guesses\":100000000}\n"
+        + "{\"cmd\":\"new\",\"guesses\":4294967298}\n"
+        + "{\"cmd\":\"new\",\"colors\":99999999999999999999999}\n"
+        + "{\"cmd\":\"new\",\"length\":2,\"colors\":3}\n"
+        + "{\"cmd\":\"place\",\"color\":4294967298}\n"
+        + "{\"cmd\":\"" + "x".repeat(HeadlessGame.MAX_LINE) + "\"}\n{\"cmd\":\"state\"}\n";
+    java.io.ByteArrayOutputStream limited = new java.io.ByteArrayOutputStream();
+    HeadlessGame bounded = new HeadlessGame(new java.io.ByteArrayInputStream(hostile.getBytes()), limited);
+    try {
+      bounded.run();
+    }
+    catch (java.io.IOException e) {
+      return false;
+    }
+    String[] refused = limited.toString().split("\n");
+    return t.checkExpect(started, 1L)
+        && t.checkExpect(refused.length, 7)
+        && t.checkExpect(refused[0], "{\"ok\":false,\"error\":\"length must be between 1 and 64\"}")
+        && t.checkExpect(refused[1], "{\"ok\":false,\"error\":\"guesses must be between 1 and 1000\"}")
+        && t.checkExpect(refused[2], "{\"ok\":false,\"error\":\"colors must be between 1 and 63\"}")
+        && t.checkExpect(refused[3], "{\"ok\":true}")
+        && t.checkExpect(refused[4], "{\"ok\":false,\"error\":\"not placed\"}")
+        && t.checkExpect(refused[5], "{\"ok\":false,\"error\":\"line too long\"}")
+        && t.checkExpect(bounded.line.length, HeadlessGame.MAX_LINE)
+        && t.checkExpect(answers.length, 7)
+        && t.checkExpect(answers[0], "{\"ok\":false,\"error\":\"no game\"}")
+        && t.checkExpect(answers[1], "{\"ok\":true}")
+        && t.checkExpect(answers[3], "{\"ok\":false,\"error\":\"row not full\"}")
+        && t.checkExpect(answers[4], "{\"ok\":false,\"error\":\"not placed\"}")
+        && t.checkExpect(answers[5], "{\"ok\":true}")
+        && t.checkExpect(answers[6], "{\"ok\":true,\"row\":1,\"current\":[],\"matches\":[],\"status\":\"playing\"}")
+        && t.checkExpect(headless.game.lengthOfSequence, 2)
+        && t.checkExpect(headless.game.duplicatesAllowed, true);
+  }
+
+  // tests for queueInput and onTick
+  boolean testQueuedInput(Tester t) {
+    Mastermind game = new Mastermind(true, 4, 10, greenRedOrangeBlue, new Random()).queueInput(3);
+    game.onKeyEvent("1");
+    game.onKeyEvent("2");
+    game.onKeyEvent("3");
+    game.onKeyEvent("4");
+    game.onKeyEvent("enter");
+    boolean untouched = game.listOfGuesses.getRowAtIndex(1).whiteRow();
+    WorldScene before = game.makeScene();
+    boolean cached = game.makeScene() == before;
+    game.onTick();
+    boolean partial = !game.listOfGuesses.isRowFull(1) && game.pendingKeys.size() == 2;
+    boolean redrawn = game.makeScene() != before;
+    game.onTick();
+    boolean rejected = false;
+    try {
+      new Mastermind(true, 4, 10, greenRedOrangeBlue, new Random()).queueInput(0);
+    }
+    catch (IllegalArgumentException e) {
+      rejected = e.getMessage().equals("max events per tick must be greater than 0!");
+    }
+    return t.checkExpect(untouched, true)
+        && t.checkExpect(cached, true)
+        && t.checkExpect(partial, true)
+        && t.checkExpect(redrawn, true)
+        && t.checkExpect(game.pendingKeys.isEmpty(), true)
+        && t.checkExpect(game.listOfMatches.length(), 1)
+        && t.checkExpect(game.onTick(), game)
+        && t.checkExpect(new Mastermind(true, 4, 10, greenRedOrangeBlue, new Random()).pendingKeys, null)
+        && t.checkExpect(rejected, true);
+  }
+
+  // tests for PersistentVector
+  boolean testPersistentVector(Tester t) {
+    PersistentVector<Integer> empty = PersistentVector.filled(2000, 0);
+    PersistentVector<Integer> edited = empty.set(1500, 7).set(3, 9);
+    boolean shared = edited.root[1] != empty.root[1] && empty.set(1500, 7).root[0] == empty.root[0];
+    boolean bounds = false;
+    try {
+      empty.get(2000);
+    }
+    catch (IndexOutOfBoundsException e) {
+      bounds = true;
+    }
+    return t.checkExpect(empty.shift, 10)
+        && t.checkExpect(edited.get(1500), 7)
+        && t.checkExpect(edited.get(3), 9)
+        && t.checkExpect(empty.get(1500), 0)
+        && t.checkExpect(edited.get(1999), 0)
+        && t.checkExpect(shared, true)
+        && t.checkExpect(PersistentVector.filled(20, "a").shift, 0)
+        && t.checkExpect(bounds, true);
+  }
+
+  // tests for VectorBoard and BoardHistory
+  boolean testVectorBoard(Tester t) {
+    ILoLoColor lists = new Mastermind().rowsOfGuesses(3, 4).placeGuess(1, green).placeGuess(1, red)
+        .placeGuess(2, blue);
+    ILoLoColor vector = VectorBoard.of(new Mastermind().rowsOfGuesses(3, 4), 3, 4).placeGuess(1, green)
+        .placeGuess(1, red).placeGuess(2, blue);
+    ILoLoColor full = vector.placeGuess(1, blue).placeGuess(1, orange);
+    BoardHistory history = new BoardHistory(vector);
+    history.record(full);
+    history.record(full.removeLastColor(1));
+    history.undo();
+    history.undo();
+    ILoLoColor undone = history.board();
+    history.redo();
+    history.record(vector.placeGuess(3, red));
+    Mastermind game = new Mastermind(true, 4, 10, greenRedOrangeBlue, new Random()).useVectorBoard();
+    game.onKeyEvent("2");
+    game.onKeyEvent("2");
+    game.onKeyEvent("backspace");
+    ILoColor afterBackspace = game.listOfGuesses.getRowAtIndex(1);
+    game.onKeyEvent("z");
+    int afterUndo = game.pegsPlaced(1);
+    game.onKeyEvent("z");
+    game.onKeyEvent("z");
+    int afterUndoAll = game.pegsPlaced(1);
+    game.onKeyEvent("y");
+    game.onKeyEvent("y");
+    int afterRedo = game.pegsPlaced(1);
+    game.onKeyEvent("3");
+    game.onKeyEvent("4");
+    game.onKeyEvent("enter");
+    game.onKeyEvent("z");
+    boolean submittedKept = game.listOfGuesses.isRowFull(1) && game.history.boards.size() == 1;
+    ILoColor cached = vector.getRowAtIndex(1);
+    VectorBoard edited = (VectorBoard) vector.placeGuess(2, red);
+    return t.checkExpect(afterUndo, 2)
+        && t.checkExpect(afterUndoAll, 0)
+        && t.checkExpect(afterRedo, 2)
+        && t.checkExpect(submittedKept, true)
+        && t.checkExpect(vector.getRowAtIndex(1) == cached, true)
+        && t.checkExpect(edited.rowCache[0] == cached, true)
+        && t.checkExpect(edited.rowCache[1], null)
+        && t.checkExpect(vector.pegsPlaced(2), 1)
+        && t.checkExpect(lists.pegsPlaced(1), 2)
+        && t.checkExpect(vector.pegsPlaced(4), 0)
+        && t.checkExpect(vector.getRowAtIndex(1), lists.getRowAtIndex(1))
+        && t.checkExpect(vector.getRowAtIndex(2), lists.getRowAtIndex(2))
+        && t.checkExpect(vector.drawLoLoColor(), lists.drawLoLoColor())
+        && t.checkExpect(vector.isRowFull(1), false)
+        && t.checkExpect(full.isRowFull(1), true)
+        && t.checkExpect(full.placeGuess(1, red), full)
+        && t.checkExpect(full.inListAtRow(1, orange), true)
+        && t.checkExpect(vector.inListAtRow(1, orange), false)
+        && t.checkExpect(full.removeLastColor(1).getRowAtIndex(1), vector.placeGuess(1, blue).getRowAtIndex(1))
+        && t.checkExpect(vector.removeLastColor(3), vector)
+        && t.checkExpect(undone, vector)
+        && t.checkExpect(history.boards.size(), 3)
+        && t.checkExpect(history.redo(), history.board())
+        && t.checkExpect(game.listOfGuesses instanceof VectorBoard, true)
+        && t.checkExpect(afterBackspace,
+            new ConsLoColor(red, ConsLoColor.blank(ConsLoColor.blank(
+                ConsLoColor.blank(new MtLoColor())))));
+  }
+
+  // tests for EditTimeline
+  boolean testEditTimeline(Tester t) {
+    EditTimeline timeline = new EditTimeline(3);
+    long delta = EditTimeline.delta(7, 2, EditTimeline.BLANK, 5);
+    timeline.record(EditTimeline.delta(1, 0, EditTimeline.BLANK, 0));
+    timeline.record(EditTimeline.delta(1, 1, EditTimeline.BLANK, 1));
+    timeline.record(EditTimeline.delta(1, 2, EditTimeline.BLANK, 2));
+    timeline.record(EditTimeline.delta(1, 3, EditTimeline.BLANK, 3));
+    long last = timeline.undo();
+    long before = timeline.undo();
+    long oldest = timeline.undo();
+    boolean exhausted = !timeline.canUndo();
+    timeline.redo();
+    timeline.record(EditTimeline.delta(1, 1, EditTimeline.BLANK, 4));
+    return t.checkExpect(EditTimeline.row(delta), 7)
+        && t.checkExpect(EditTimeline.position(delta), 2)
+        && t.checkExpect(EditTimeline.oldColor(delta), EditTimeline.BLANK)
+        && t.checkExpect(EditTimeline.newColor(delta), 5)
+        && t.checkExpect(EditTimeline.newColor(last), 3)
+        && t.checkExpect(EditTimeline.newColor(before), 2)
+        && t.checkExpect(EditTimeline.newColor(oldest), 1)
+        && t.checkExpect(exhausted, true)
+        && t.checkExpect(timeline.canRedo(), false)
+        && t.checkExpect(timeline.size, 2)
+        && t.checkConstructorException(
+            new IllegalArgumentException("capacity of a timeline must be greater than 0!"), "EditTimeline", 0);
+  }
+
+  // tests for practice mode's undo and redo keys
+  boolean testPracticeUndo(Tester t) {
+    Mastermind game = new Mastermind(true, 2, 10, greenRedOrangeBlue, new Random()).practice(100);
+    game.correctSequence = new ConsLoColor(blue, new ConsLoColor(blue, new MtLoColor()));
+    game.onKeyEvent("1");
+    game.onKeyEvent("2");
+    game.onKeyEvent("backspace");
+    game.onKeyEvent("3");
+    game.onKeyEvent("enter");
+    game.onKeyEvent("4");
+    boolean secondRow = game.currentNumberOfGuesses == 2 && game.pegsPlaced(2) == 1;
+    game.onKeyEvent("z");
+    game.onKeyEvent("z");
+    boolean unsubmitted = game.currentNumberOfGuesses == 1 && game.listOfMatches.length() == 0;
+    game.onKeyEvent("z");
+    game.onKeyEvent("z");
+    ILoColor restored = game.listOfGuesses.getRowAtIndex(1);
+    game.onKeyEvent("y");
+    game.onKeyEvent("y");
+    game.onKeyEvent("y");
+    game.onKeyEvent("y");
+    Mastermind plain = new Mastermind(true, 2, 10, greenRedOrangeBlue, new Random());
+    plain.onKeyEvent("1");
+    plain.onKeyEvent("z");
+    // undoing a submission drops the hints and analysis worked out from it
+    Mastermind hinted = new Mastermind(true, 9, 10, nineColors, new Random()).practice(100);
+    for (int peg = 0; peg < 9; peg += 1) {
+      hinted.onKeyEvent("1");
+    }
+    hinted.onKeyEvent("enter");
+    hinted.suggestGuess();
+    hinted.analysis = new RowReport[0];
+    hinted.cachedScene = hinted.drawScene();
+    boolean hintedFromRow = hinted.sampler != null && hinted.sampler.guesses.size() == 1;
+    hinted.onKeyEvent("z");
+    boolean forgotten = hinted.sampler == null && hinted.analysis == null && hinted.cachedScene == null;
+    // a row submitted on several boards is taken back on each of them, solved or not
+    MultiMastermind multi = new MultiMastermind(true, 4, 10, greenRedOrangeBlue, new Random(), 2);
+    multi.practice(100);
+    multi.scorer = new MultiBoardScorer(new int[][] {{3, 3, 3, 3}, {0, 1, 2, 3}}, 4);
+    for (String key : new String[] {"1", "2", "3", "4", "enter"}) {
+      multi.onKeyEvent(key);
+    }
+    boolean multiSolved = multi.solved[1] && multi.currentNumberOfGuesses == 2;
+    multi.onKeyEvent("z");
+    multi.onKeyEvent("z");
+    boolean multiUndone = multi.currentNumberOfGuesses == 1 && multi.pegsPlaced(1) == 3 && !multi.solved[1]
+        && multi.boardMatches[0].length() == 0 && multi.boardMatches[1].length() == 0
+        && multi.listOfMatches == multi.boardMatches[0];
+    multi.onKeyEvent("y");
+    multi.onKeyEvent("y");
+    // a static game takes back its locked in rows and the scoring of all of them
+    StaticMastermind locked = new StaticMastermind(true, 4, 10, greenRedOrangeBlue, new Random());
+    locked.practice(100);
+    locked.correctSequence = new ConsLoColor(blue, new ConsLoColor(blue, new ConsLoColor(blue,
+        new ConsLoColor(blue, new MtLoColor()))));
+    for (String key : new String[] {"1", "2", "3", "4", "enter", "4", "3", "2", "1", "s"}) {
+      locked.onKeyEvent(key);
+    }
+    locked.onKeyEvent("z");
+    boolean unscored = !locked.submitted && locked.listOfMatches.length() == 0
+        && locked.currentNumberOfGuesses == 2 && locked.pegsPlaced(2) == 4;
+    locked.onKeyEvent("z");
+    boolean unplaced = locked.pegsPlaced(2) == 3;
+    locked.onKeyEvent("y");
+    locked.onKeyEvent("y");
+    boolean rescored = locked.submitted && locked.listOfMatches.length() == 2 && locked.currentNumberOfGuesses == 3;
+    for (int undo = 0; undo < 6; undo += 1) {
+      locked.onKeyEvent("z");
+    }
+    return t.checkExpect(secondRow, true)
+        && t.checkExpect(multiSolved, true)
+        && t.checkExpect(multiUndone, true)
+        && t.checkExpect(multi.solved[1], true)
+        && t.checkExpect(multi.boardMatches[1], new ConsLoMatches(new Matches(4, 0), new MtLoMatches()))
+        && t.checkExpect(multi.currentNumberOfGuesses, 2)
+        && t.checkExpect(unscored, true)
+        && t.checkExpect(unplaced, true)
+        && t.checkExpect(rescored, true)
+        && t.checkExpect(locked.currentNumberOfGuesses, 1)
+        && t.checkExpect(locked.pegsPlaced(1), 4)
+        && t.checkExpect(hintedFromRow, true)
+        && t.checkExpect(forgotten, true)
+        && t.checkExpect(unsubmitted, true)
+        && t.checkExpect(restored, new ConsLoColor(green, new ConsLoColor(red, new MtLoColor())))
+        && t.checkExpect(game.currentNumberOfGuesses, 2)
+        && t.checkExpect(game.listOfMatches.length(), 1)
+        && t.checkExpect(game.listOfGuesses.getRowAtIndex(1),
+            new ConsLoColor(green, new ConsLoColor(orange, new MtLoColor())))
+        && t.checkExpect(game.pegsPlaced(2), 1)
+        && t.checkExpect(plain.pegsPlaced(1), 1);
+  }
+
+  // tests for SessionStore
+  boolean testSessionStore(Tester t) {
+    SessionStore store = new SessionStore(70000, 6, 10);
+    GameState game = new GameState(true, 4, 10, 6, new Random(5));
+    game.place(1);
+    game.place(2);
+    game.place(2);
+    game.place(3);
+    game.submit();
+    game.place(5);
+    int slot = store.park(game);
+    int last = 0;
+    for (int i = 1; i < 66000; i += 1) {
+      last = store.park(new GameState(false, 6, 10, 8, new Random(i)));
+    }
+    GameState loaded = store.load(slot);
+    boolean placed = store.move(slot, moved -> moved.place(4));
+    GameState moved = store.load(slot);
+    GameState far = store.load(last);
+    store.release(slot);
+    int reused = store.park(new GameState(true, 2, 3, 3, new Random()));
+    boolean full = false;
+    try {
+      SessionStore tiny = new SessionStore(1, 4, 10);
+      tiny.park(game);
+      tiny.park(game);
+    }
+    catch (IllegalStateException e) {
+      full = true;
+    }
+    return t.checkExpect(loaded.correctSequence, game.correctSequence)
+        && t.checkExpect(loaded.guesses, game.guesses)
+        && t.checkExpect(loaded.filled, game.filled)
+        && t.checkExpect(loaded.exact, game.exact)
+        && t.checkExpect(loaded.inexact, game.inexact)
+        && t.checkExpect(loaded.currentRow, 1)
+        && t.checkExpect(placed, true)
+        && t.checkExpect(moved.guesses[1][1], 4)
+        && t.checkExpect(far.lengthOfSequence, 6)
+        && t.checkExpect(far.duplicatesAllowed, false)
+        && t.checkExpect(store.chunks.size(), 2)
+        && t.checkExpect(reused, slot)
+        && t.checkExpect(store.used, 66000)
+        && t.checkExpect(full, true)
+        && t.checkConstructorException(
+            new IllegalArgumentException("capacity of a session store must be greater than 0!"),
+            "SessionStore", 0, 4, 10);
+  }
+
+  // tests for Palette and the palette indices of pegs
+  boolean testPalette(Tester t) {
+    ILoColor whiteRow = new Mastermind().createBlankGuesses(3).placeColorInRow(Color.WHITE);
+    ILoColor secret = new ConsLoColor(Color.WHITE, new ConsLoColor(red, new ConsLoColor(blue, new MtLoColor())));
+    ILoColor guess = new ConsLoColor(blue, new ConsLoColor(red, new ConsLoColor(Color.WHITE, new MtLoColor())));
+    Mastermind small = new Mastermind(true, 3, 2, this.greenRedOrangeBlue, new Random(2));
+    // more colors than any game plays with, none of which are kept once the game is gone
+    Color[] many = new Color[5000];
+    for (int i = 0; i < many.length; i += 1) {
+      many[i] = new Color(0, i / 256, i % 256);
+    }
+    Palette wide = new Palette(many, many.length);
+    Palette repeated = new Palette(new Color[] {red, blue, red, Color.WHITE}, 4);
+    return t.checkExpect(Palette.indexOf(red), Palette.indexOf(new Color(255, 103, 85)))
+        && t.checkExpect(Palette.colorOf(Palette.indexOf(blue)), blue)
+        && t.checkExpect(Palette.colorOf(Palette.EMPTY), Color.WHITE)
+        && t.checkExpect(Palette.colorOf(Palette.indexOf(new Color(1, 2, 3, 4))), new Color(1, 2, 3, 4))
+        && t.checkExpect(wide.positionOf(Palette.indexOf(new Color(0, 0, 7))), 7)
+        && t.checkExpect(wide.positionOf(Palette.indexOf(new Color(0, 19, 135))), 4999)
+        && t.checkExpect(wide.positionOf(Palette.indexOf(new Color(0, 20, 0))), -1)
+        && t.checkExpect(repeated.positionOf(Palette.indexOf(red)), 0)
+        && t.checkExpect(repeated.positionOf(Palette.indexOf(Color.WHITE)), 3)
+        && t.checkExpect(repeated.positionOf(Palette.EMPTY), -1)
+        && t.checkExpect(Palette.indexOf(Color.WHITE) == Palette.EMPTY, false)
+        && t.checkExpect(new ConsLoColor(red, new MtLoColor()).index, Palette.indexOf(red))
+        && t.checkExpect(ConsLoColor.blank(new MtLoColor()).index, Palette.EMPTY)
+        && t.checkExpect(whiteRow.indexAt(0), Palette.indexOf(Color.WHITE))
+        && t.checkExpect(whiteRow.indexAt(1), Palette.EMPTY)
+        && t.checkExpect(whiteRow.indexAt(5), Palette.EMPTY)
+        && t.checkExpect(whiteRow.whiteRow(), false)
+        && t.checkExpect(whiteRow.removeLastColor().whiteRow(), true)
+        && t.checkExpect(new ConsLoLoColor(whiteRow.placeColorInRow(Color.WHITE).placeColorInRow(Color.WHITE),
+            new MtLoLoColor()).isRowFull(1), true)
+        && t.checkExpect(new ConsLoLoColor(whiteRow, new MtLoLoColor()).isRowFull(1), false)
+        && t.checkExpect(whiteRow.inListIndex(Palette.EMPTY), true)
+        && t.checkExpect(whiteRow.removeIndex(Palette.EMPTY).length(), 2)
+        && t.checkExpect(secret.exactMatches(guess), 1)
+        && t.checkExpect(secret.inexactMatches(guess), 2)
+        && t.checkExpect(VectorBoard.of(new ConsLoLoColor(whiteRow, new MtLoLoColor()), 1, 3).getRowAtIndex(1),
+            whiteRow)
+        && t.checkExpect(small.onKeyEvent("5"), small)
+        && t.checkExpect(small.listOfGuesses.getRowAtIndex(1).whiteRow(), true);
+  }
+
+  // tests for GameConfig
+  boolean testGameConfig(Tester t) {
+    GameConfig config = GameConfig.of(true, 3, 5, this.greenRedOrangeBlue);
+    GameConfig unique = GameConfig.of(false, 3, 5, this.greenRedOrangeBlue);
+    Mastermind game = new Mastermind(true, 3, 5, this.greenRedOrangeBlue, new Random(3));
+    Mastermind other = new Mastermind(true, 3, 5, this.greenRedOrangeBlue, new Random(4));
+    ILoColor row = new ConsLoColor(blue, new ConsLoColor(green, new ConsLoColor(blue, new MtLoColor())));
+    int[] secret = new int[] {3, 3, 0};
+    boolean tableAgrees = true;
+    for (int guess = 0; guess < 64; guess += 1) {
+      int[] code = config.codeAtRank(guess, new int[3]);
+      Matches fromTable = config.score(config.engine, code, secret);
+      Matches fromRules = config.engine.score(code, secret);
+      tableAgrees = tableAgrees && fromTable.exact == fromRules.exact && fromTable.inexact == fromRules.inexact;
+    }
+    boolean rejected = false;
+    try {
+      GameConfig.of(false, 5, 5, this.greenRedOrangeBlue);
+    }
+    catch (IllegalArgumentException e) {
+      rejected = e.getMessage().equals("sequence of colors must not be greater than the amount of possible colors!");
+    }
+    // a long code over few colors has too many results to pack in a byte, so it is scored by the rules
+    ILoColor twoColors = new ConsLoColor(green, new ConsLoColor(red, new MtLoColor()));
+    Mastermind longCode = new Mastermind(true, 11, 3, twoColors, new Random(5));
+    longCode.correctSequence = new MtLoColor();
+    for (int peg = 0; peg < 11; peg += 1) {
+      longCode.correctSequence = new ConsLoColor(peg % 3 == 0 ? red : green, longCode.correctSequence);
+    }
+    for (int peg = 0; peg < 11; peg += 1) {
+      longCode.onKeyEvent(Integer.toString(1 + twoColors.indexOfColor(longCode.correctSequence.getColorAtIndex(peg))));
+    }
+    longCode.onKeyEvent("enter");
+    // sixteen pegs of sixteen colors have more codes than a long counts, so there is no packed space
+    ILoColor sixteenColors = new MtLoColor();
+    for (int color = 15; color >= 0; color -= 1) {
+      sixteenColors = new ConsLoColor(new Color(color * 16, 40, 200), sixteenColors);
+    }
+    Mastermind widest = new Mastermind(true, 16, 10, sixteenColors, new Random(6));
+    return t.checkExpect(GameConfig.of(true, 3, 5, this.greenRedOrangeBlue) == config, true)
+        && t.checkExpect(longCode.config.scoreTable(), null)
+        && t.checkExpect(longCode.exactMatchesCount, 11)
+        && t.checkExpect(longCode.inexactMatchesCount, 0)
+        && t.checkExpect(widest.config.space, null)
+        && t.checkExpect(CodeSpace.fits(15, 16), true)
+        && t.checkExpect(CodeSpace.fits(16, 16), false)
+        && t.checkExpect(CodeSpace.fits(16, 15), true)
+        && t.checkExpect(GameConfig.of(true, 3, 6, this.greenRedOrangeBlue) == config, false)
+        && t.checkExpect(unique == config, false)
+        && t.checkExpect(game.config == config, true)
+        && t.checkExpect(game.listOfGuesses == other.listOfGuesses, true)
+        && t.checkExpect(game.engine == config.engine, false)
+        && t.checkExpect(config.blankBoard, new Mastermind().rowsOfGuesses(5, 3))
+        && t.checkExpect(config.palette.positionOf(Palette.indexOf(red)), 1)
+        && t.checkExpect(config.codeOf(row), new int[] {3, 0, 3})
+        && t.checkExpect(config.codeOf(ConsLoColor.blank(new ConsLoColor(red, new ConsLoColor(blue, new MtLoColor())))),
+            new int[] {-1, 1, 3})
+        && t.checkExpect(config.rankOf(new int[] {3, 0, 3}), 51L)
+        && t.checkExpect(config.size, 64L)
+        && t.checkExpect(unique.size, 24L)
+        && t.checkExpect(unique.codes, 64L)
+        && t.checkExpect(config.space.size, 64L)
+        && t.checkExpect(config.scoreTable().length, 64 * 64)
+        && t.checkExpect(config.scoreTable() == config.scoreTable(), true)
+        && t.checkExpect(tableAgrees, true)
+        && t.checkExpect(rejected, true);
+  }
+
+  // tests for BenchmarkResult and BenchmarkSuite
+  boolean testBenchmarkSuite(Tester t) throws java.io.IOException {
+    BenchmarkResult baseline = new BenchmarkResult("score", new double[] {100, 101, 99, 100, 100}, 10);
+    BenchmarkResult slower = new BenchmarkResult("score", new double[] {80, 81, 79, 80, 80}, 10);
+    BenchmarkResult hungrier = new BenchmarkResult("score", new double[] {100, 99, 101, 100, 100}, 100);
+    BenchmarkResult timed = BenchmarkSuite.measure("score", BenchmarkSuite.workload("score", 1), 100, 1, 3);
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    BenchmarkSuite.write(new java.io.PrintStream(bytes), java.util.List.of(baseline, slower));
+    java.util.LinkedHashMap<String, BenchmarkResult> loaded = BenchmarkSuite.load(
+        new java.io.BufferedReader(new java.io.StringReader(bytes.toString())));
+    boolean unknown = false;
+    try {
+      BenchmarkSuite.workload("paint", 1);
+    }
+    catch (IllegalArgumentException e) {
+      unknown = e.getMessage().equals("workload must be one of score, secret, game, scene or render!");
+    }
+    int rows = BenchmarkSuite.playGame(new Mastermind(true, 4, 10, this.greenRedOrangeBlue, new Random(5)),
+        new Random(6));
+    return t.checkExpect(new BenchmarkResult("a", new double[] {1, 2, 3}, 0).mean(), 2.0)
+        && t.checkExpect(new BenchmarkResult("a", new double[] {1, 2, 3}, 0).variance(), 1.0)
+        && t.checkConstructorException(new IllegalArgumentException("number of samples must be greater than 1!"),
+            "BenchmarkResult", "a", new double[] {1}, 0.0)
+        && t.checkExpect(BenchmarkResult.parse(baseline.line()), baseline)
+        && t.checkExpect(loaded.size(), 1)
+        && t.checkExpect(loaded.get("score"), slower)
+        && t.checkExpect(Math.abs(BenchmarkSuite.incompleteBeta(0.5, 2, 2) - 0.5) < 1e-9, true)
+        && t.checkExpect(Math.abs(BenchmarkSuite.studentCdf(0, 5) - 0.5) < 1e-9, true)
+        && t.checkExpect(Math.abs(BenchmarkSuite.studentCdf(2.015, 5) - 0.95) < 1e-3, true)
+        && t.checkExpect(Math.abs(BenchmarkSuite.studentCdf(-2.015, 5) - 0.05) < 1e-3, true)
+        && t.checkExpect(BenchmarkSuite.welchT(baseline, slower) < 0, true)
+        && t.checkExpect(BenchmarkSuite.welchDegrees(baseline, baseline), 8.0)
+        && t.checkExpect(BenchmarkSuite.regression(baseline, baseline), null)
+        && t.checkExpect(BenchmarkSuite.regression(slower, baseline), null)
+        && t.checkExpect(BenchmarkSuite.regression(baseline, slower) != null, true)
+        && t.checkExpect(BenchmarkSuite.regression(baseline, hungrier),
+            "score: allocation grew from 10.0 to 100.0 bytes per op")
+        && t.checkExpect(timed.rates.length, 3)
+        && t.checkExpect(timed.mean() > 0, true)
+        && t.checkExpect(rows >= 1 && rows <= 10, true)
+        && t.checkExpect(unknown, true);
+  }
+
+  // tests for the flight recorder events
+  boolean testFlightRecorderEvents(Tester t) throws java.io.IOException {
+    jdk.jfr.Recording recording = new jdk.jfr.Recording();
+    String[] names = {"mastermind.GameCreated", "mastermind.KeyPress", "mastermind.Submission",
+        "mastermind.SecretGenerated", "mastermind.GuessSelected", "mastermind.SceneRendered"};
+    for (String name : names) {
+      recording.enable(name);
+    }
+    recording.start();
+    Mastermind game = new Mastermind(true, 4, 10, this.greenRedOrangeBlue, new Random(1));
+    game.onKeyEvent("1");
+    game.onKeyEvent("2");
+    game.onKeyEvent("3");
+    game.onKeyEvent("4");
+    game.onKeyEvent("enter");
+    game.suggestGuess();
+    game.makeScene();
+    // queued keys are only timed when a tick applies them
+    Mastermind queued = new Mastermind(true, 4, 10, this.greenRedOrangeBlue, new Random(1)).queueInput(8);
+    queued.onKeyEvent("1");
+    queued.onKeyEvent("2");
+    queued.onTick();
+    recording.stop();
+    java.nio.file.Path file = java.nio.file.Files.createTempFile("mastermind", ".jfr");
+    recording.dump(file);
+    recording.close();
+    java.util.List<jdk.jfr.consumer.RecordedEvent> events = jdk.jfr.consumer.RecordingFile.readAllEvents(file);
+    java.nio.file.Files.delete(file);
+    java.util.HashMap<String, jdk.jfr.consumer.RecordedEvent> last =
+        new java.util.HashMap<String, jdk.jfr.consumer.RecordedEvent>();
+    int keys = 0;
+    for (jdk.jfr.consumer.RecordedEvent event : events) {
+      last.put(event.getEventType().getName(), event);
+      keys += event.getEventType().getName().equals("mastermind.KeyPress") ? 1 : 0;
+    }
+    jdk.jfr.consumer.RecordedEvent submission = last.get("mastermind.Submission");
+    return t.checkExpect(last.keySet().containsAll(java.util.List.of(names)), true)
+        && t.checkExpect(keys, 7)
+        && t.checkExpect(last.get("mastermind.GameCreated").getInt("colors"), 4)
+        && t.checkExpect(last.get("mastermind.KeyPress").getString("key"), "2")
+        && t.checkExpect(submission.getInt("row"), 1)
+        && t.checkExpect(submission.getInt("exact") + submission.getInt("inexact"), 4)
+        && t.checkExpect(last.get("mastermind.SecretGenerated").getInt("length"), 4)
+        && t.checkExpect(last.get("mastermind.GuessSelected").getString("source"), "exact")
+        && t.checkExpect(last.get("mastermind.GuessSelected").getLong("candidates") > 0, true)
+        && t.checkExpect(last.get("mastermind.SceneRendered").getBoolean("cached"), false);
+  }
+
+  // tests for MetricHistogram, GameMetrics and MetricsEndpoint
+  boolean testGameMetrics(Tester t) throws java.io.IOException {
+    MetricHistogram histogram = new MetricHistogram(new double[] {1, 5});
+    histogram.record(0.5);
+    histogram.record(1);
+    histogram.record(3);
+    histogram.record(9);
+    StringBuilder written = new StringBuilder();
+    histogram.write(written, "rows", "Rows.");
+    GameMetrics metrics = new GameMetrics();
+    metrics.gameEnded(true, 3);
+    metrics.gameEnded(false, 10);
+    metrics.submissions.add(13);
+    long started = GameMetrics.METRICS.gamesStarted.sum();
+    long scored = GameMetrics.METRICS.scoringCalls.sum();
+    long submitted = GameMetrics.METRICS.submissions.sum();
+    long ended = GameMetrics.METRICS.gamesWon.sum() + GameMetrics.METRICS.gamesLost.sum();
+    Mastermind game = new Mastermind(true, 1, 1, this.greenRedOrangeBlue, new Random(1));
+    game.onKeyEvent("1");
+    game.onKeyEvent("enter");
+    started = GameMetrics.METRICS.gamesStarted.sum() - started;
+    scored = GameMetrics.METRICS.scoringCalls.sum() - scored;
+    submitted = GameMetrics.METRICS.submissions.sum() - submitted;
+    ended = GameMetrics.METRICS.gamesWon.sum() + GameMetrics.METRICS.gamesLost.sum() - ended;
+    // a queued key is counted once, when it is applied, and the pegs of a hint are not keys
+    long keys = GameMetrics.METRICS.keyEvents.sum();
+    Mastermind queued = new Mastermind(true, 4, 10, this.greenRedOrangeBlue, new Random(1)).queueInput(8);
+    queued.onKeyEvent("1");
+    queued.onKeyEvent("2");
+    long whileQueued = GameMetrics.METRICS.keyEvents.sum() - keys;
+    queued.onTick();
+    long afterTick = GameMetrics.METRICS.keyEvents.sum() - keys;
+    Mastermind hinted = new Mastermind(true, 4, 10, this.greenRedOrangeBlue, new Random(1));
+    hinted.onKeyEvent("h");
+    hinted.onKeyEvent("a");
+    long afterHints = GameMetrics.METRICS.keyEvents.sum() - keys;
+    boolean badPort = false;
+    try {
+      MetricsEndpoint.port(new String[] {"--metrics-port", "http"});
+    }
+    catch (IllegalArgumentException e) {
+      badPort = e.getMessage().equals("metrics port must be between 0 and 65535!");
+    }
+    com.sun.net.httpserver.HttpServer server = MetricsEndpoint.start(metrics, 0);
+    String scraped;
+    java.net.HttpURLConnection connection = (java.net.HttpURLConnection) new java.net.URL(
+        "http://localhost:" + server.getAddress().getPort() + "/metrics").openConnection();
+    try (java.io.InputStream in = connection.getInputStream()) {
+      scraped = new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+    }
+    finally {
+      server.stop(0);
+    }
+    return t.checkConstructorException(new IllegalArgumentException("bounds of a histogram must be increasing!"),
+        "MetricHistogram", new double[] {2, 1})
+        && t.checkExpect(written.toString(), "# HELP rows Rows.\n# TYPE rows histogram\n"
+            + "rows_bucket{le=\"1.0\"} 2\nrows_bucket{le=\"5.0\"} 3\nrows_bucket{le=\"+Inf\"} 4\n"
+            + "rows_sum 13.5\nrows_count 4\n")
+        && t.checkExpect(metrics.gamesWon.sum(), 1L)
+        && t.checkExpect(metrics.gamesLost.sum(), 1L)
+        && t.checkExpect(metrics.guessesPerGame.count.sum(), 2L)
+        && t.checkExpect(started, 1L)
+        && t.checkExpect(scored, 1L)
+        && t.checkExpect(submitted, 1L)
+        && t.checkExpect(ended, 1L)
+        && t.checkExpect(whileQueued, 0L)
+        && t.checkExpect(afterTick, 2L)
+        && t.checkExpect(afterHints, 4L)
+        && t.checkExpect(hinted.listOfMatches.length(), 1)
+        && t.checkExpect(connection.getResponseCode(), 200)
+        && t.checkExpect(connection.getContentType(), "text/plain; version=0.0.4; charset=utf-8")
+        && t.checkExpect(scraped, metrics.exposition())
+        && t.checkExpect(scraped.contains("mastermind_submissions_total 13\n"), true)
+        && t.checkExpect(scraped.contains("mastermind_guesses_per_game_bucket{le=\"3.0\"} 1\n"), true)
+        && t.checkExpect(MetricsEndpoint.port(new String[] {}), -1)
+        && t.checkExpect(MetricsEndpoint.port(new String[] {"--metrics-port", "9100"}), 9100)
+        && t.checkExpect(MetricsEndpoint.port(new String[] {"--metrics-port"}), MetricsEndpoint.PORT)
+        && t.checkExpect(MetricsEndpoint.serve(-1), null)
+        && t.checkExpect(System.getProperty(MetricsEndpoint.PROPERTY) != null || MetricsEndpoint.serveProperty() == null,
+            true)
+        && t.checkExpect(badPort, true);
+  }
+
+  // tests for BoardRenderer
+  boolean testBoardRenderer(Tester t) throws java.io.IOException {
+    BoardRenderer renderer = new BoardRenderer();
+    Mastermind game = new Mastermind(true, 4, 10, this.greenRedOrangeBlue, new Random(7));
+    game.onKeyEvent("4");
+    game.onKeyEvent("1");
+    int x = (500 - 20 * 4) / 2;
+    java.awt.image.BufferedImage image = renderer.render(game);
+    // the first row is the bottom one of the board centered at y 400, and its pegs are centered 40 apart
+    int bottom = 400 + 20 * 10 - 20;
+    int firstPeg = image.getRGB(x - 20 * 4 + 20, bottom);
+    int secondPeg = image.getRGB(x - 20 * 4 + 60, bottom);
+    int blankPeg = image.getRGB(x - 20 * 4 + 100, bottom);
+    int background = image.getRGB(5, 5);
+    int paletteRed = image.getRGB(x - 20 * 4 + 60, 650);
+    byte[] png = renderer.renderPng(game);
+    java.awt.image.BufferedImage decoded = javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(png));
+    boolean sameSprite = renderer.sprite(Palette.indexOf(blue)) == renderer.sprite(Palette.indexOf(blue));
+    game.onKeyEvent("1");
+    game.onKeyEvent("1");
+    game.onKeyEvent("enter");
+    java.awt.image.BufferedImage last = renderer.renderLast(game, "aw you lost! :(");
+    int secretPeg = last.getRGB(x - 20 * 4 + 20, 100);
+    return t.checkExpect(image == renderer.canvas, true)
+        && t.checkExpect(firstPeg, blue.getRGB())
+        && t.checkExpect(secondPeg, green.getRGB())
+        && t.checkExpect(blankPeg, Color.WHITE.getRGB())
+        && t.checkExpect(background, Color.PINK.getRGB())
+        && t.checkExpect(paletteRed, red.getRGB())
+        && t.checkExpect(decoded.getWidth(), 500)
+        && t.checkExpect(decoded.getHeight(), 700)
+        && t.checkExpect(decoded.getRGB(x - 20 * 4 + 20, bottom), blue.getRGB())
+        && t.checkExpect(sameSprite, true)
+        && t.checkExpect(secretPeg, Palette.colorOf(game.correctSequence.indexAt(0)).getRGB());
+  }
+
+  // tests for GoldenImages, and every case against the stored golden images, which must be found in
+  // DIRECTORY: run from the directory holding golden or pass -Dgolden.dir
+  boolean testGoldenImages(Tester t) throws java.io.IOException {
+    int[] kind = GoldenImages.KINDS[0];
+    java.awt.image.BufferedImage first = GoldenImages.render(kind, "last");
+    java.awt.image.BufferedImage second = GoldenImages.render(kind, "last");
+    java.awt.image.BufferedImage small = new java.awt.image.BufferedImage(10, 10,
+        java.awt.image.BufferedImage.TYPE_INT_RGB);
+    java.nio.file.Path directory = java.nio.file.Files.createTempDirectory("golden");
+    java.nio.file.Path output = java.nio.file.Files.createTempDirectory("golden-output");
+    java.util.List<String> missing = GoldenImages.check(directory.toFile(), output.toFile(), false);
+    int missingLeft = output.toFile().listFiles().length;
+    for (java.io.File file : output.toFile().listFiles()) {
+      file.delete();
+    }
+    java.util.List<String> created = GoldenImages.check(directory.toFile(), output.toFile(), true);
+    java.util.List<String> unchanged = GoldenImages.check(directory.toFile(), output.toFile(), false);
+    java.io.File golden = directory.resolve("4x6-dup-blank.png").toFile();
+    java.awt.image.BufferedImage broken = javax.imageio.ImageIO.read(golden);
+    java.awt.Graphics2D graphics = broken.createGraphics();
+    graphics.setColor(Color.BLACK);
+    graphics.fillRect(0, 0, 100, 100);
+    graphics.dispose();
+    javax.imageio.ImageIO.write(broken, "png", golden);
+    java.util.List<String> changed = GoldenImages.check(directory.toFile(), output.toFile(), false);
+    boolean leftImages = output.resolve("4x6-dup-blank.actual.png").toFile().exists()
+        && output.resolve("4x6-dup-blank.diff.png").toFile().exists();
+    java.io.File[] files = directory.toFile().listFiles();
+    java.io.File[] outputs = output.toFile().listFiles();
+    for (java.io.File file : files) {
+      file.delete();
+    }
+    for (java.io.File file : outputs) {
+      file.delete();
+    }
+    java.io.File stored = new java.io.File(GoldenImages.DIRECTORY);
+    boolean storedFound = stored.isDirectory();
+    java.util.List<String> storedFailures = storedFound
+        ? GoldenImages.check(stored, output.toFile(), false) : java.util.List.of("no directory " + stored);
+    for (java.io.File file : output.toFile().listFiles()) {
+      file.delete();
+    }
+    directory.toFile().delete();
+    output.toFile().delete();
+    return t.checkExpect(GoldenImages.matches(0x102030, 0x102030), true)
+        && t.checkExpect(GoldenImages.matches(0x102030, 0x122232), true)
+        && t.checkExpect(GoldenImages.matches(0xFF0000, 0x000000), false)
+        && t.checkExpect(GoldenImages.difference(first, second), 0.0)
+        && t.checkExpect(GoldenImages.difference(first, small), 1.0)
+        && t.checkExpect(GoldenImages.caseName(kind, "last"), "4x6-dup-last")
+        && t.checkExpect(missing.size(), GoldenImages.KINDS.length * GoldenImages.STATES.length)
+        && t.checkExpect(missing.get(0), "3x4-unique-blank: no golden image")
+        && t.checkExpect(missingLeft, GoldenImages.KINDS.length * GoldenImages.STATES.length)
+        && t.checkExpect(created.isEmpty(), true)
+        && t.checkExpect(unchanged.isEmpty(), true)
+        && t.checkExpect(changed, java.util.List.of("4x6-dup-blank: 2.86% of pixels differ"))
+        && t.checkExpect(leftImages, true)
+        && t.checkExpect(files.length, GoldenImages.KINDS.length * GoldenImages.STATES.length)
+        && t.checkExpect(outputs.length, 2)
+        && t.checkExpect(storedFound, true)
+        && t.checkExpect(storedFailures, java.util.List.of());
+  }
+
+  // tests for suggestGuess and the h and a keys
+  boolean testSuggestions(Tester t) {
+    Mastermind game = new Mastermind(false, 4, 10, greenRedOrangeBlue, new Random());
+    int[] first = game.suggestGuess();
+    game.onKeyEvent("h");
+    boolean placed = game.listOfGuesses.isRowFull(1);
+    for (int move = 0; move < 8 && game.listOfMatches.getMatchAtIndex(0).exact != 4; move += 1) {
+      game.onKeyEvent("a");
+    }
+    Mastermind large = new Mastermind(true, 12, 30, nineColors, new Random());
+    int[] evolved = large.suggestGuess();
+    large.onKeyEvent("h");
+    large.onKeyEvent("enter");
+    int[] next = large.suggestGuess();
+    Mastermind wide = new Mastermind(true, 9, 30, nineColors, new Random());
+    int[] sampled = wide.suggestGuess();
+    // hints in games with other rules check the codes by those rules, so the secret is never ruled out
+    ILoColor secret = new ConsLoColor(green, new ConsLoColor(green, new ConsLoColor(red,
+        new ConsLoColor(blue, new MtLoColor()))));
+    Mastermind blackPegs = new Mastermind(true, 4, 12, greenRedOrangeBlue, new Random(3));
+    blackPegs.correctSequence = secret;
+    blackPegs.engine = new BlackPegEngine(new StandardEngine(4, 4));
+    Mastermind lying = new Mastermind(true, 4, 12, greenRedOrangeBlue, new Random(3));
+    lying.correctSequence = secret;
+    LyingEngine liar = new LyingEngine(new StandardEngine(4, 4), 4, 1, 1.0, new Random(4));
+    lying.engine = liar;
+    boolean onlyExact = true;
+    for (int move = 0; move < 12 && blackPegs.exactMatchesCount != 4; move += 1) {
+      blackPegs.onKeyEvent("a");
+      onlyExact = onlyExact && blackPegs.inexactMatchesCount == 0;
+    }
+    for (int move = 0; move < 12 && lying.exactMatchesCount != 4; move += 1) {
+      lying.onKeyEvent("a");
+    }
+    RowReport[] blackPegReports = blackPegs.analyze();
+    RowReport[] lyingReports = lying.analyze();
+    return t.checkExpect(first.length, 4)
+        && t.checkExpect(blackPegs.exactMatchesCount, 4)
+        && t.checkExpect(onlyExact, true)
+        && t.checkExpect(blackPegs.candidates.count >= 1, true)
+        && t.checkExpect(blackPegReports.length, blackPegs.listOfMatches.length())
+        && t.checkExpect(blackPegReports[blackPegReports.length - 1].candidatesAfter >= 1, true)
+        && t.checkExpect(lying.exactMatchesCount, 4)
+        && t.checkExpect(liar.liesTold, 1)
+        && t.checkExpect(lying.candidates.maxErrors, 1)
+        && t.checkExpect(lyingReports[lyingReports.length - 1].candidatesAfter >= 1, true)
+        && t.checkExpect(placed, true)
+        && t.checkExpect(game.listOfMatches.getMatchAtIndex(0).exact, 4)
+        && t.checkExpect(evolved.length, 12)
+        && t.checkExpect(large.evolver != null, true)
+        && t.checkExpect(large.sampler, null)
+        && t.checkExpect(large.evolver.guesses.size(), 1)
+        && t.checkExpect(next.length, 12)
+        && t.checkExpect(sampled.length, 9)
+        && t.checkExpect(wide.sampler != null, true);
+  }
+
   // tests for makeScene
   boolean testmakeScene(Tester t) {
     return t.checkExpect(this.game1.makeScene(), new WorldScene(500, 700)
@@ -1355,6 +9987,9 @@ class ExamplesMastermind{
   }
 
 
+  // the endpoint serving the metrics of the games played here when run with -Dmetrics.port=<port>
+  static final com.sun.net.httpserver.HttpServer METRICS = MetricsEndpoint.serveProperty();
+
   Mastermind game1 = new Mastermind(false, 4, 4, greenRedOrangeBlue, new Random());
   Mastermind game2 = new Mastermind(true, 6, 6, nineColors, new Random());
   Mastermind game3 = new Mastermind(true, 7, 3, nineColors, new Random());